@@ -0,0 +1,171 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generator of inputs for the grammars of sslr-examples, which resemble real files in their variety of tokens,
+ * and whose size and shape are configurable.
+ * Generation is deterministic, so that the same input is parsed by all runs of a benchmark.
+ */
+final class Corpus {
+
+  enum Shape {
+    /**
+     * Long sequences of small constructs, as in data files and lists of declarations.
+     */
+    FLAT,
+    /**
+     * Constructs nested up to a few dozens of levels, as in code with nested blocks and parenthesized expressions.
+     */
+    DEEP
+  }
+
+  private static final int MAX_DEPTH = 40;
+
+  private final Random random = new Random(42);
+  private final StringBuilder sb = new StringBuilder();
+  private final int size;
+
+  private Corpus(int size) {
+    this.size = size;
+  }
+
+  /**
+   * @return JSON array of at least the given number of characters
+   */
+  static String json(int size, Shape shape) {
+    Corpus corpus = new Corpus(size);
+    corpus.sb.append("[\n");
+    while (corpus.sb.length() < size) {
+      corpus.sb.append("  ");
+      if (shape == Shape.FLAT) {
+        corpus.jsonObject(0);
+      } else {
+        corpus.jsonValue(corpus.depth());
+      }
+      corpus.sb.append(",\n");
+    }
+    corpus.sb.append("  {}\n]\n");
+    return corpus.sb.toString();
+  }
+
+  private void jsonObject(int depth) {
+    int n = random.nextInt(1000);
+    sb.append("{\"id\": ").append(n)
+      .append(", \"name\": \"item ").append(n).append("\\t\\\"quoted\\\"\"")
+      .append(", \"tags\": [\"a\", \"b\\u00e9\"]")
+      .append(", \"active\": ").append(random.nextBoolean())
+      .append(", \"score\": -").append(n).append(".5e-3")
+      .append(", \"parent\": ");
+    if (depth > 0) {
+      jsonValue(depth - 1);
+    } else {
+      sb.append("null");
+    }
+    sb.append('}');
+  }
+
+  private void jsonValue(int depth) {
+    if (depth == 0) {
+      sb.append(random.nextInt(100));
+    } else if (random.nextBoolean()) {
+      jsonObject(depth);
+    } else {
+      sb.append("[1, ");
+      jsonValue(depth - 1);
+      sb.append(", {}]");
+    }
+  }
+
+  /**
+   * @return arithmetic expression of at least the given number of characters
+   */
+  static String expression(int size, Shape shape) {
+    Corpus corpus = new Corpus(size);
+    corpus.operand(shape);
+    while (corpus.sb.length() < size) {
+      corpus.sb.append(corpus.random.nextInt(5) == 0 ? "\n" : " ").append("+-*/".charAt(corpus.random.nextInt(4))).append(' ');
+      corpus.operand(shape);
+    }
+    return corpus.sb.toString();
+  }
+
+  private void operand(Shape shape) {
+    int depth = shape == Shape.FLAT ? 0 : depth();
+    for (int i = 0; i < depth; i++) {
+      sb.append('(');
+    }
+    primary();
+    for (int i = 0; i < depth; i++) {
+      sb.append(" + ");
+      primary();
+      sb.append(')');
+    }
+  }
+
+  private void primary() {
+    if (random.nextBoolean()) {
+      sb.append(random.nextInt(10000));
+    } else {
+      sb.append("var").append(random.nextInt(100));
+    }
+  }
+
+  /**
+   * @return PEG grammar of at least the given number of characters
+   */
+  static String peg(int size, Shape shape) {
+    Corpus corpus = new Corpus(size);
+    for (int rule = 0; corpus.sb.length() < size; rule++) {
+      corpus.sb.append("rule").append(rule).append(" = ");
+      if (shape == Shape.FLAT) {
+        corpus.pegSequence();
+        corpus.sb.append("\n  | ");
+        corpus.pegSequence();
+      } else {
+        corpus.pegExpression(corpus.depth());
+      }
+      corpus.sb.append(" ;\n");
+    }
+    return corpus.sb.toString();
+  }
+
+  private void pegSequence() {
+    sb.append("\"keyword\" rule").append(random.nextInt(100)).append("* &rule").append(random.nextInt(100))
+      .append(" !\";\" \"x\"? rule").append(random.nextInt(100)).append('+');
+  }
+
+  private void pegExpression(int depth) {
+    if (depth == 0) {
+      sb.append("rule").append(random.nextInt(100));
+    } else {
+      sb.append("( \"").append(depth).append("\" ");
+      pegExpression(depth - 1);
+      sb.append(" | rule").append(random.nextInt(100)).append(" )").append("*+?".charAt(random.nextInt(3)));
+    }
+  }
+
+  private int depth() {
+    return 1 + random.nextInt(Math.min(MAX_DEPTH, Math.max(1, size / 100)));
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.examples.grammars.ExpressionGrammar;
+import org.sonar.sslr.examples.grammars.JsonGrammar;
+import org.sonar.sslr.examples.grammars.PegGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonLexer;
+import org.sonar.sslr.examples.grammars.typed.JsonNodeBuilder;
+import org.sonar.sslr.examples.grammars.typed.Tree;
+import org.sonar.sslr.examples.grammars.typed.TreeFactory;
+import org.sonar.sslr.parser.ParseRunner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parsing of generated {@link Corpus corpora} by the grammars of sslr-examples.
+ * Results of all combinations of parameters can be compared with a baseline by {@link CorpusRegressionCheck}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class CorpusBenchmark {
+
+  @Param({"json", "typedJson", "expression", "peg"})
+  public String grammar;
+
+  @Param({"FLAT", "DEEP"})
+  public String shape;
+
+  /**
+   * Minimal number of characters of input.
+   */
+  @Param({"100000"})
+  public int size;
+
+  private String input;
+  private char[] chars;
+  private ParseRunner parseRunner;
+  private ActionParser<Tree> actionParser;
+
+  @Setup
+  public void setup() {
+    Corpus.Shape corpusShape = Corpus.Shape.valueOf(shape);
+    switch (grammar) {
+      case "json":
+        input = Corpus.json(size, corpusShape);
+        parseRunner = new ParseRunner(JsonGrammar.create().rule(JsonGrammar.JSON));
+        break;
+      case "typedJson":
+        input = Corpus.json(size, corpusShape);
+        actionParser = new ActionParser<>(
+          StandardCharsets.UTF_8,
+          JsonLexer.createGrammarBuilder(),
+          org.sonar.sslr.examples.grammars.typed.JsonGrammar.class,
+          new TreeFactory(),
+          new JsonNodeBuilder(),
+          JsonLexer.JSON);
+        break;
+      case "expression":
+        input = Corpus.expression(size, corpusShape);
+        parseRunner = new ParseRunner(ExpressionGrammar.createGrammarBuilder().build().rule(ExpressionGrammar.EXPRESSION));
+        break;
+      case "peg":
+        input = Corpus.peg(size, corpusShape);
+        parseRunner = new ParseRunner(PegGrammar.create().rule(PegGrammar.GRAMMAR));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown grammar: " + grammar);
+    }
+    chars = input.toCharArray();
+    if (parseRunner != null && !parseRunner.parse(chars).isMatched()) {
+      throw new IllegalStateException("Generated input doesn't match grammar " + grammar);
+    }
+  }
+
+  @Benchmark
+  public Object parse() {
+    return actionParser != null ? actionParser.parse(input) : parseRunner.parse(chars).getParseTreeRoot();
+  }
+
+}
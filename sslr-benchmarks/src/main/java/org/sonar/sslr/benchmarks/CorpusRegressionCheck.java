@@ -0,0 +1,198 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.sslr.examples.grammars.JsonGrammar;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs {@link CorpusBenchmark}, writes its results in JMH JSON format and compares them with a baseline,
+ * so that regressions of performance of parsing can be caught locally before release:
+ * <pre>
+ * java -cp target/microbenchmarks.jar org.sonar.sslr.benchmarks.CorpusRegressionCheck baseline.json [save]
+ * </pre>
+ * Baseline is a copy of JSON results of previous run, which is made by the first run, or when {@code save} is given,
+ * and should be made on the same machine from the last release.
+ * Run fails if throughput of a benchmark is lower than in baseline by more than tolerance in percents,
+ * which is given by system property {@code tolerance} (10 by default), or if a benchmark of baseline is missing.
+ * Benchmarks, which are not in baseline, are reported, but can't be compared.
+ * JSON results are written to the file given by system property {@code result} ({@code target/corpus-benchmark.json} by default).
+ */
+public final class CorpusRegressionCheck {
+
+  private CorpusRegressionCheck() {
+  }
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    if (args.length == 0) {
+      System.err.println("Usage: CorpusRegressionCheck <baseline file> [save]");
+      System.exit(2);
+    }
+    Path baseline = Paths.get(args[0]);
+    boolean save = args.length > 1 && "save".equals(args[1]);
+    double tolerance = Integer.getInteger("tolerance", 10) / 100.0;
+
+    Path result = Paths.get(System.getProperty("result", "target/corpus-benchmark.json"));
+
+    Options options = new OptionsBuilder()
+      .include(CorpusBenchmark.class.getName())
+      .forks(1)
+      .warmupIterations(5)
+      .measurementIterations(5)
+      .resultFormat(ResultFormatType.JSON)
+      .result(result.toString())
+      .build();
+    new Runner(options).run();
+
+    if (save || !Files.exists(baseline)) {
+      Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+      System.out.println("Baseline written to " + baseline);
+      return;
+    }
+    Map<String, Double> baselineScores = read(baseline);
+    Map<String, Double> scores = read(result);
+    for (String benchmark : notInBaseline(baselineScores, scores)) {
+      System.out.println("Not in baseline: " + benchmark);
+    }
+    List<String> regressions = compare(baselineScores, scores, tolerance);
+    if (regressions.isEmpty()) {
+      System.out.println("No regressions in comparison with " + baseline);
+    } else {
+      for (String regression : regressions) {
+        System.out.println("Regression: " + regression);
+      }
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @param tolerance allowed decrease of throughput, e.g. 0.1 for 10%
+   * @return descriptions of benchmarks, whose throughput decreased by more than tolerance, or which are missing
+   */
+  static List<String> compare(Map<String, Double> baseline, Map<String, Double> scores, double tolerance) {
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+      Double score = scores.get(entry.getKey());
+      if (score == null) {
+        regressions.add(entry.getKey() + " is missing");
+      } else if (score < entry.getValue() * (1 - tolerance)) {
+        regressions.add(String.format("%s %.3f ops/s instead of %.3f ops/s (%+.1f%%)",
+          entry.getKey(), score, entry.getValue(), (score / entry.getValue() - 1) * 100));
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * @return benchmarks, which have scores, but are not in baseline, so can't be compared
+   */
+  static List<String> notInBaseline(Map<String, Double> baseline, Map<String, Double> scores) {
+    List<String> result = new ArrayList<>();
+    for (String key : scores.keySet()) {
+      if (!baseline.containsKey(key)) {
+        result.add(key);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads scores from results of JMH in JSON format, which are parsed with {@link JsonGrammar}.
+   * Escape sequences are not expected in names of benchmarks and values of parameters, so are not decoded.
+   *
+   * @return scores by benchmark and values of its parameters, e.g. {@code CorpusBenchmark.parse:grammar=json,shape=FLAT,size=100000}
+   */
+  static Map<String, Double> read(Path file) throws IOException {
+    char[] json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).toCharArray();
+    ParsingResult parsingResult = new ParseRunner(JsonGrammar.create().rule(JsonGrammar.JSON)).parse(json);
+    if (!parsingResult.isMatched()) {
+      throw new IllegalArgumentException("Not JMH results in JSON format: " + file + "\n"
+        + new ParseErrorFormatter().format(parsingResult.getParseError()));
+    }
+    AstNode array = AstCreator.create(parsingResult, new LocatedText(null, json)).getFirstChild(JsonGrammar.ARRAY);
+    if (array == null) {
+      throw new IllegalArgumentException("Not JMH results in JSON format: " + file);
+    }
+    Map<String, Double> scores = new TreeMap<>();
+    for (AstNode result : array.getChildren(JsonGrammar.VALUE)) {
+      Map<String, AstNode> members = members(result);
+      String benchmark = text(members.get("benchmark"));
+      // simple name of class followed by name of method
+      StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+      if (members.containsKey("params")) {
+        char separator = ':';
+        for (Map.Entry<String, AstNode> param : members(members.get("params")).entrySet()) {
+          key.append(separator).append(param.getKey()).append('=').append(text(param.getValue()));
+          separator = ',';
+        }
+      }
+      // JMH writes NaN and infinities as strings
+      scores.put(key.toString(), Double.valueOf(text(members(members.get("primaryMetric")).get("score"))));
+    }
+    return scores;
+  }
+
+  /**
+   * @return values of members of the given object by their names
+   */
+  private static Map<String, AstNode> members(AstNode value) {
+    Map<String, AstNode> members = new LinkedHashMap<>();
+    for (AstNode pair : value.getFirstChild(JsonGrammar.OBJECT).getChildren(JsonGrammar.PAIR)) {
+      members.put(content(pair.getFirstChild(JsonGrammar.STRING)), pair.getFirstChild(JsonGrammar.VALUE));
+    }
+    return members;
+  }
+
+  /**
+   * @return content of the given string or text of the given number
+   */
+  private static String text(AstNode value) {
+    AstNode string = value.getFirstChild(JsonGrammar.STRING);
+    return string != null ? content(string) : value.getTokenValue();
+  }
+
+  private static String content(AstNode string) {
+    // opening quote is followed by characters of string
+    return string.getChildren().get(1).getTokenValue();
+  }
+
+}
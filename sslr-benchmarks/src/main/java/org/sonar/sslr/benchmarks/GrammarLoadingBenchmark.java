@@ -0,0 +1,93 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.examples.grammars.PegGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonLexer;
+import org.sonar.sslr.examples.grammars.typed.JsonNodeBuilder;
+import org.sonar.sslr.examples.grammars.typed.Tree;
+import org.sonar.sslr.examples.grammars.typed.TreeFactory;
+import org.sonar.sslr.parser.ParseRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of parsers: construction and compilation of grammar from its definition versus loading of grammar,
+ * which was written in binary form by {@link ParseRunner#writeGrammar(java.io.OutputStream)} and {@link ActionParser#writeGrammar(java.io.OutputStream)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GrammarLoadingBenchmark {
+
+  private byte[] lexerlessGrammar;
+  private byte[] typedGrammar;
+
+  @Setup
+  public void setup() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    buildParseRunner().writeGrammar(out);
+    lexerlessGrammar = out.toByteArray();
+
+    out = new ByteArrayOutputStream();
+    buildActionParser().writeGrammar(out);
+    typedGrammar = out.toByteArray();
+  }
+
+  @Benchmark
+  public ParseRunner buildParseRunner() {
+    return new ParseRunner(PegGrammar.create().rule(PegGrammar.GRAMMAR));
+  }
+
+  @Benchmark
+  public ParseRunner loadParseRunner() throws IOException {
+    return new ParseRunner(new ByteArrayInputStream(lexerlessGrammar), GrammarLoadingBenchmark.class.getClassLoader());
+  }
+
+  @Benchmark
+  public ActionParser<Tree> buildActionParser() {
+    return new ActionParser<>(
+      StandardCharsets.UTF_8,
+      JsonLexer.createGrammarBuilder(),
+      JsonGrammar.class,
+      new TreeFactory(),
+      new JsonNodeBuilder(),
+      JsonLexer.JSON);
+  }
+
+  @Benchmark
+  public ActionParser<Tree> loadActionParser() throws IOException {
+    return new ActionParser<>(StandardCharsets.UTF_8, new ByteArrayInputStream(typedGrammar), new TreeFactory(), new JsonNodeBuilder());
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.ast.AstWalker;
+import com.sonar.sslr.test.minic.MiniCGrammar;
+import com.sonar.sslr.test.minic.MiniCLexer;
+import com.sonar.sslr.test.minic.MiniCParser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stages of lexerful analysis of a generated MiniC source: lexing by {@link Lexer} (channels, {@link com.sonar.sslr.impl.channel.ChannelDispatcher}
+ * and {@link org.sonar.sslr.channel.CodeReader}), lexing followed by parsing by {@link Parser}, and walking of the resulting tree.
+ * <p>
+ * Besides operations, each stage reports the number of processed characters per second as auxiliary counter {@code characters},
+ * so that throughput of stages can be compared in MB/s regardless of the size of source, which is given by system property {@code n}.
+ * Allocation rate of each stage is reported by the GC profiler:
+ * <pre>
+ * java -jar target/microbenchmarks.jar MiniCBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class MiniCBenchmark {
+
+  private String source;
+  private Lexer lexer;
+  private Parser<Grammar> parser;
+  private AstNode tree;
+  private AstWalker walker;
+  private NodeCounter counter;
+
+  @AuxCounters
+  @State(Scope.Thread)
+  public static class Characters {
+
+    public long characters;
+
+  }
+
+  @Setup
+  public void setup() {
+    source = generate(Integer.getInteger("n", 1000));
+    lexer = MiniCLexer.create();
+    parser = MiniCParser.create();
+    tree = parser.parse(source);
+    counter = new NodeCounter();
+    walker = new AstWalker(counter);
+  }
+
+  @Benchmark
+  public List<Token> lex(Characters characters) {
+    characters.characters += source.length();
+    return lexer.lex(source);
+  }
+
+  @Benchmark
+  public AstNode lexAndParse(Characters characters) {
+    characters.characters += source.length();
+    return parser.parse(source);
+  }
+
+  @Benchmark
+  public int walk(Characters characters) {
+    characters.characters += source.length();
+    walker.walkAndVisit(tree);
+    return counter.count;
+  }
+
+  /**
+   * @return source with the given number of functions, preceded by comments and interleaved with definitions of structures and variables
+   */
+  static String generate(int functions) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < functions; i++) {
+      if (i % 10 == 0) {
+        sb.append("/* Structure s").append(i).append(" and its counter */\n")
+          .append("struct s").append(i).append(" {\n")
+          .append("  int first;\n")
+          .append("  int second;\n")
+          .append("}\n")
+          .append("int count").append(i).append(" = ").append(i).append(";\n\n");
+      }
+      sb.append("/*\n * Function f").append(i).append(".\n */\n")
+        .append("int f").append(i).append("(int a, int b) {\n")
+        .append("  int x = a * 2 + b - ").append(i % 7).append(";\n")
+        .append("  int y;\n")
+        .append("  while (x > 0) {\n")
+        .append("    if (x == b) {\n")
+        .append("      break;\n")
+        .append("    } else {\n")
+        .append("      x--;\n")
+        .append("    }\n")
+        .append("    y = f").append(i).append("(x - 1, b) / 3;\n")
+        .append("  }\n")
+        .append("  return (x + y) * 100;\n")
+        .append("}\n\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Visits statements and tokens, as do checks of analyzers.
+   */
+  private static class NodeCounter implements AstAndTokenVisitor {
+
+    private int count;
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Arrays.<AstNodeType>asList(MiniCGrammar.STATEMENT, MiniCGrammar.FUNCTION_DEFINITION, MiniCGrammar.BIN_VARIABLE_REFERENCE);
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      count = 0;
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      count++;
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      count++;
+    }
+
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.xpath.api.AstNodeXPathQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.sonar.sslr.examples.grammars.JsonGrammar;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.parser.ParseRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Evaluation of XPath queries on many trees by the threads of a {@link ForkJoinPool},
+ * with queries shared between all threads or compiled for each tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class ParallelXPathBenchmark {
+
+  @Param({"//OBJECT[count(PAIR) = 2]", "//TRUE/preceding::NUMBER"})
+  public String xpath;
+
+  private List<AstNode> trees;
+  private AstNodeXPathQuery<AstNode> query;
+  private ForkJoinPool pool;
+
+  @Setup
+  public void setup() {
+    int n = Integer.getInteger("n", 100);
+    char[] input = ("[" + Strings.repeat("{ \"key\": [1, \"value\", true, null], \"other\": {} }, ", n) + "{} ]").toCharArray();
+    ParseRunner parseRunner = new ParseRunner(JsonGrammar.create().rule(JsonGrammar.JSON));
+    trees = new ArrayList<>();
+    for (int i = 0; i < Integer.getInteger("trees", 64); i++) {
+      trees.add(AstCreator.create(parseRunner.parse(input), new LocatedText(null, input)));
+    }
+    query = AstNodeXPathQuery.create(xpath);
+    pool = new ForkJoinPool(Integer.getInteger("threads", Runtime.getRuntime().availableProcessors()));
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public int sharedQuery() {
+    return pool.submit(() -> trees.parallelStream()
+      .mapToInt(tree -> query.selectNodes(tree).size())
+      .sum()).join();
+  }
+
+  @Benchmark
+  public int queryPerTree() {
+    return pool.submit(() -> trees.parallelStream()
+      .mapToInt(tree -> AstNodeXPathQuery.<AstNode>create(xpath).selectNodes(tree).size())
+      .sum()).join();
+  }
+
+}
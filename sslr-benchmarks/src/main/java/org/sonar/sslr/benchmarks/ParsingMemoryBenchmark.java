@@ -0,0 +1,122 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.typed.ActionParser;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.test.minic.MiniCParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.examples.grammars.JsonGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonLexer;
+import org.sonar.sslr.examples.grammars.typed.JsonNodeBuilder;
+import org.sonar.sslr.examples.grammars.typed.Tree;
+import org.sonar.sslr.examples.grammars.typed.TreeFactory;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Memory allocated by parsers per character of input: {@link ParseRunner} alone and followed by creation of {@link AstNode}s,
+ * lexerful {@link Parser} (lexer included) and {@link ActionParser}.
+ * <p>
+ * Processed characters are counted as in {@link MiniCBenchmark}, so that number of allocated bytes per character
+ * is the allocation rate reported by the GC profiler divided by the rate of characters:
+ * <pre>
+ * java -jar target/microbenchmarks.jar ParsingMemoryBenchmark -prof gc
+ * </pre>
+ * Memory retained by results of parsing is reported by {@link ParsingRetainedSize}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class ParsingMemoryBenchmark {
+
+  /**
+   * Approximate number of characters of inputs.
+   */
+  @Param({"100000"})
+  public int size;
+
+  private char[] json;
+  private String jsonString;
+  private String miniC;
+  private ParseRunner parseRunner;
+  private Parser<Grammar> lexerfulParser;
+  private ActionParser<Tree> actionParser;
+
+  @Setup
+  public void setup() {
+    jsonString = Corpus.json(size, Corpus.Shape.FLAT);
+    json = jsonString.toCharArray();
+    miniC = miniC(size);
+    parseRunner = new ParseRunner(JsonGrammar.create().rule(JsonGrammar.JSON));
+    lexerfulParser = MiniCParser.create();
+    actionParser = new ActionParser<>(
+      StandardCharsets.UTF_8,
+      JsonLexer.createGrammarBuilder(),
+      org.sonar.sslr.examples.grammars.typed.JsonGrammar.class,
+      new TreeFactory(),
+      new JsonNodeBuilder(),
+      JsonLexer.JSON);
+  }
+
+  /**
+   * @return MiniC source of about the given number of characters
+   */
+  static String miniC(int size) {
+    int tenFunctions = MiniCBenchmark.generate(10).length();
+    return MiniCBenchmark.generate(Math.max(1, size * 10 / tenFunctions));
+  }
+
+  @Benchmark
+  public ParsingResult lexerless(MiniCBenchmark.Characters characters) {
+    characters.characters += json.length;
+    return parseRunner.parse(json);
+  }
+
+  @Benchmark
+  public AstNode lexerlessAst(MiniCBenchmark.Characters characters) {
+    characters.characters += json.length;
+    return AstCreator.create(parseRunner.parse(json), new LocatedText(null, json));
+  }
+
+  @Benchmark
+  public AstNode lexerful(MiniCBenchmark.Characters characters) {
+    characters.characters += miniC.length();
+    return lexerfulParser.parse(miniC);
+  }
+
+  @Benchmark
+  public Tree typed(MiniCBenchmark.Characters characters) {
+    characters.characters += jsonString.length();
+    return actionParser.parse(jsonString);
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.typed.ActionParser;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.test.minic.MiniCParser;
+import org.openjdk.jol.info.GraphLayout;
+import org.sonar.sslr.examples.grammars.JsonGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonLexer;
+import org.sonar.sslr.examples.grammars.typed.JsonNodeBuilder;
+import org.sonar.sslr.examples.grammars.typed.Tree;
+import org.sonar.sslr.examples.grammars.typed.TreeFactory;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reports memory retained by results of parsing per character of input, see {@link ParsingMemoryBenchmark} for allocated memory:
+ * <pre>
+ * java -cp target/microbenchmarks.jar org.sonar.sslr.benchmarks.ParsingRetainedSize
+ * </pre>
+ * Objects shared with the result of parsing of a small input, such as rules of grammar, are not counted.
+ * Size of input is given by system property {@code n} (100000 by default).
+ * <p>
+ * Graph of results reaches classes of JDK, which are hidden classes on recent JDKs, so field offsets are computed by JOL
+ * with option {@code jol.magicFieldOffset}, unless the option is given explicitly.
+ */
+public final class ParsingRetainedSize {
+
+  private ParsingRetainedSize() {
+  }
+
+  public static void main(String[] args) {
+    if (System.getProperty("jol.magicFieldOffset") == null) {
+      System.setProperty("jol.magicFieldOffset", "true");
+    }
+    int size = Integer.getInteger("n", 100000);
+    lexerless(size);
+    lexerful(size);
+    typed(size);
+  }
+
+  private static void lexerless(int size) {
+    ParseRunner parseRunner = new ParseRunner(JsonGrammar.create().rule(JsonGrammar.JSON));
+    char[] input = Corpus.json(size, Corpus.Shape.FLAT).toCharArray();
+    char[] smallInput = "[]".toCharArray();
+    ParsingResult result = parseRunner.parse(input);
+    ParsingResult smallResult = parseRunner.parse(smallInput);
+
+    report("ParsingResult of ParseRunner", retainedSize(result, smallResult), input.length);
+    report("ParseNode tree of ParseRunner", retainedSize(result.getParseTreeRoot(), smallResult.getParseTreeRoot()), input.length);
+    report("AstNode tree of ParseRunner", retainedSize(
+      AstCreator.create(result, new LocatedText(null, input)),
+      AstCreator.create(smallResult, new LocatedText(null, smallInput))), input.length);
+  }
+
+  private static void lexerful(int size) {
+    Parser<Grammar> parser = MiniCParser.create();
+    String input = ParsingMemoryBenchmark.miniC(size);
+    AstNode tree = parser.parse(input);
+    AstNode smallTree = parser.parse("int a;");
+
+    report("AstNode tree of Parser", retainedSize(tree, smallTree), input.length());
+  }
+
+  private static void typed(int size) {
+    ActionParser<Tree> parser = new ActionParser<>(
+      StandardCharsets.UTF_8,
+      JsonLexer.createGrammarBuilder(),
+      org.sonar.sslr.examples.grammars.typed.JsonGrammar.class,
+      new TreeFactory(),
+      new JsonNodeBuilder(),
+      JsonLexer.JSON);
+    String input = Corpus.json(size, Corpus.Shape.FLAT);
+
+    report("Tree of ActionParser", retainedSize(parser.parse(input), parser.parse("[]")), input.length());
+  }
+
+  private static long retainedSize(Object root, Object rootOfSmallInput) {
+    return GraphLayout.parseInstance(root).subtract(GraphLayout.parseInstance(rootOfSmallInput)).totalSize();
+  }
+
+  private static void report(String name, long bytes, int characters) {
+    System.out.printf("%s: %d bytes, %.1f bytes per character%n", name, bytes, (double) bytes / characters);
+  }
+
+}
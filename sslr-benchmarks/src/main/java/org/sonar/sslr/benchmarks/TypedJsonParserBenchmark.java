@@ -0,0 +1,65 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.examples.grammars.typed.JsonGrammar;
+import org.sonar.sslr.examples.grammars.typed.JsonLexer;
+import org.sonar.sslr.examples.grammars.typed.JsonNodeBuilder;
+import org.sonar.sslr.examples.grammars.typed.Tree;
+import org.sonar.sslr.examples.grammars.typed.TreeFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parsing with {@link ActionParser}, where most of the time of creation of syntax tree is spent in invocation of actions of tree factory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class TypedJsonParserBenchmark {
+
+  private String input;
+  private ActionParser<Tree> parser;
+
+  @Setup
+  public void setup() {
+    int n = Integer.getInteger("n", 100);
+    input = "[" + Strings.repeat("{ \"key\": [1, \"value\", true, null], \"other\": {} }, ", n) + "{} ]";
+    parser = new ActionParser<>(
+      StandardCharsets.UTF_8,
+      JsonLexer.createGrammarBuilder(),
+      JsonGrammar.class,
+      new TreeFactory(),
+      new JsonNodeBuilder(),
+      JsonLexer.JSON);
+  }
+
+  @Benchmark
+  public Tree parse() {
+    return parser.parse(input);
+  }
+
+}
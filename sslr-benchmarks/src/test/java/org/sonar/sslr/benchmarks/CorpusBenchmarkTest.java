@@ -0,0 +1,50 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CorpusBenchmarkTest {
+
+  @Test
+  public void test() {
+    for (String grammar : new String[] {"json", "typedJson", "expression", "peg"}) {
+      for (Corpus.Shape shape : Corpus.Shape.values()) {
+        CorpusBenchmark benchmark = new CorpusBenchmark();
+        benchmark.grammar = grammar;
+        benchmark.shape = shape.name();
+        benchmark.size = 10000;
+        benchmark.setup();
+
+        assertThat(benchmark.parse()).as(grammar + " " + shape).isNotNull();
+      }
+    }
+  }
+
+  @Test
+  public void should_generate_inputs_of_given_size() {
+    assertThat(Corpus.json(10000, Corpus.Shape.FLAT).length()).isGreaterThan(10000);
+    assertThat(Corpus.expression(10000, Corpus.Shape.DEEP).length()).isGreaterThan(10000);
+    assertThat(Corpus.peg(10000, Corpus.Shape.DEEP)).isEqualTo(Corpus.peg(10000, Corpus.Shape.DEEP));
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CorpusRegressionCheckTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_report_regressions_beyond_tolerance() {
+    Map<String, Double> baseline = new TreeMap<>();
+    baseline.put("CorpusBenchmark.parse:grammar=json", 100.0);
+    baseline.put("CorpusBenchmark.parse:grammar=peg", 100.0);
+    baseline.put("CorpusBenchmark.parse:grammar=removed", 100.0);
+    Map<String, Double> scores = new TreeMap<>();
+    scores.put("CorpusBenchmark.parse:grammar=json", 91.0);
+    scores.put("CorpusBenchmark.parse:grammar=peg", 89.0);
+    scores.put("CorpusBenchmark.parse:grammar=added", 1.0);
+
+    assertThat(CorpusRegressionCheck.compare(baseline, scores, 0.1)).hasSize(2);
+    assertThat(CorpusRegressionCheck.compare(baseline, scores, 0.1).get(0)).startsWith("CorpusBenchmark.parse:grammar=peg 89");
+    assertThat(CorpusRegressionCheck.compare(baseline, scores, 0.1).get(1)).isEqualTo("CorpusBenchmark.parse:grammar=removed is missing");
+    assertThat(CorpusRegressionCheck.compare(scores, scores, 0)).isEmpty();
+  }
+
+  @Test
+  public void should_report_benchmarks_not_in_baseline() {
+    Map<String, Double> baseline = new TreeMap<>();
+    baseline.put("CorpusBenchmark.parse:grammar=json", 100.0);
+    Map<String, Double> scores = new TreeMap<>();
+    scores.put("CorpusBenchmark.parse:grammar=json", 100.0);
+    scores.put("CorpusBenchmark.parse:grammar=added", 1.0);
+
+    assertThat(CorpusRegressionCheck.notInBaseline(baseline, scores)).containsExactly("CorpusBenchmark.parse:grammar=added");
+    assertThat(CorpusRegressionCheck.notInBaseline(scores, scores)).isEmpty();
+  }
+
+  @Test
+  public void should_read_results_of_jmh() throws Exception {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), Arrays.asList(
+      "[",
+      "    {",
+      "        \"benchmark\" : \"org.sonar.sslr.benchmarks.CorpusBenchmark.parse\",",
+      "        \"mode\" : \"thrpt\",",
+      "        \"jvmArgs\" : [ \"-Dname=\\\"value\\\"\" ],",
+      "        \"params\" : {",
+      "            \"grammar\" : \"json\",",
+      "            \"shape\" : \"FLAT\",",
+      "            \"size\" : \"100000\"",
+      "        },",
+      "        \"primaryMetric\" : {",
+      "            \"score\" : 123.456,",
+      "            \"scoreError\" : \"NaN\",",
+      "            \"scoreConfidence\" : [ 120.0, 1.3E2 ],",
+      "            \"scoreUnit\" : \"ops/s\",",
+      "            \"rawData\" : [ [ 123.0, 123.912 ] ]",
+      "        },",
+      "        \"secondaryMetrics\" : {",
+      "        }",
+      "    },",
+      "    {",
+      "        \"benchmark\" : \"org.sonar.sslr.benchmarks.CorpusBenchmark.other\",",
+      "        \"primaryMetric\" : {",
+      "            \"score\" : \"NaN\"",
+      "        }",
+      "    }",
+      "]"), StandardCharsets.UTF_8);
+
+    Map<String, Double> scores = new TreeMap<>();
+    scores.put("CorpusBenchmark.parse:grammar=json,shape=FLAT,size=100000", 123.456);
+    scores.put("CorpusBenchmark.other", Double.NaN);
+    assertThat(CorpusRegressionCheck.read(file.toPath())).isEqualTo(scores);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_to_read_malformed_results() throws Exception {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), Arrays.asList("[ { \"benchmark\" : "), StandardCharsets.UTF_8);
+    CorpusRegressionCheck.read(file.toPath());
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.test.minic.MiniCGrammar;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MiniCBenchmarkTest {
+
+  @Test
+  public void test() {
+    MiniCBenchmark benchmark = new MiniCBenchmark();
+    benchmark.setup();
+    MiniCBenchmark.Characters characters = new MiniCBenchmark.Characters();
+
+    assertThat(benchmark.lex(characters).size()).isGreaterThan(1000);
+    assertThat(benchmark.lexAndParse(characters).getType()).isSameAs(MiniCGrammar.COMPILATION_UNIT);
+    assertThat(benchmark.walk(characters)).isGreaterThan(1000);
+    assertThat(characters.characters).isEqualTo(3L * MiniCBenchmark.generate(1000).length());
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParallelXPathBenchmarkTest {
+
+  @Test
+  public void test() {
+    ParallelXPathBenchmark benchmark = new ParallelXPathBenchmark();
+    benchmark.xpath = "//OBJECT[count(PAIR) = 2]";
+    benchmark.setup();
+
+    assertThat(benchmark.sharedQuery()).isEqualTo(64 * 100);
+    assertThat(benchmark.queryPerTree()).isEqualTo(64 * 100);
+    benchmark.tearDown();
+  }
+
+  @Test
+  public void test_evaluation_by_jaxen() {
+    ParallelXPathBenchmark benchmark = new ParallelXPathBenchmark();
+    benchmark.xpath = "//TRUE/preceding::NUMBER";
+    benchmark.setup();
+
+    assertThat(benchmark.sharedQuery()).isEqualTo(64 * 100);
+    assertThat(benchmark.queryPerTree()).isEqualTo(64 * 100);
+    benchmark.tearDown();
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.sonar.sslr.test.minic.MiniCGrammar;
+import org.junit.Test;
+import org.sonar.sslr.examples.grammars.typed.api.JsonTree;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParsingMemoryBenchmarkTest {
+
+  @Test
+  public void test() {
+    ParsingMemoryBenchmark benchmark = new ParsingMemoryBenchmark();
+    benchmark.size = 10000;
+    benchmark.setup();
+    MiniCBenchmark.Characters characters = new MiniCBenchmark.Characters();
+
+    assertThat(benchmark.lexerless(characters).isMatched()).isTrue();
+    assertThat(benchmark.lexerlessAst(characters).getType()).isSameAs(org.sonar.sslr.examples.grammars.JsonGrammar.JSON);
+    assertThat(benchmark.lexerful(characters).getType()).isSameAs(MiniCGrammar.COMPILATION_UNIT);
+    assertThat(benchmark.typed(characters)).isInstanceOf(JsonTree.class);
+    assertThat(characters.characters).isGreaterThan(4 * 10000);
+  }
+
+  @Test
+  public void should_generate_minic_source_of_about_given_size() {
+    assertThat(ParsingMemoryBenchmark.miniC(100000).length()).isGreaterThan(90000);
+    assertThat(ParsingMemoryBenchmark.miniC(100000).length()).isLessThan(110000);
+  }
+
+}
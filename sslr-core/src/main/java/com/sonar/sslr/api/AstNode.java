@@ -47,6 +47,10 @@ public class AstNode {
   private int fromIndex;
   private int toIndex;
 
+  AstNodeIndex index;
+  int preorderIndex;
+  int lastDescendantIndex;
+
   public AstNode(Token token) {
     this(token.getType(), token.getType().getName(), token);
   }
@@ -66,6 +70,9 @@ public class AstNode {
 
   public void addChild(AstNode child) {
     if (child != null) {
+      if (index != null) {
+        index.invalidate();
+      }
       if (children.isEmpty()) {
         children = new ArrayList<>();
       }
@@ -133,12 +140,21 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getNextAstNode() {
-    AstNode nextSibling = getNextSibling();
-    if (nextSibling != null) {
-      return nextSibling;
+    AstNode node = this;
+    if (isIndexed()) {
+      // next node after subtree in document order
+      AstNode next = index.nodeAt(lastDescendantIndex + 1);
+      if (next != null) {
+        return next;
+      }
+      node = index.getRoot();
     }
-    if (parent != null) {
-      return parent.getNextAstNode();
+    while (node != null) {
+      AstNode nextSibling = node.getNextSibling();
+      if (nextSibling != null) {
+        return nextSibling;
+      }
+      node = node.parent;
     }
     return null;
   }
@@ -157,12 +173,13 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getPreviousAstNode() {
-    AstNode previousSibling = getPreviousSibling();
-    if (previousSibling != null) {
-      return previousSibling;
-    }
-    if (parent != null) {
-      return parent.getPreviousAstNode();
+    AstNode node = this;
+    while (node != null) {
+      AstNode previousSibling = node.getPreviousSibling();
+      if (previousSibling != null) {
+        return previousSibling;
+      }
+      node = node.parent;
     }
     return null;
   }
@@ -373,6 +390,9 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getFirstDescendant(AstNodeType... nodeTypes) {
+    if (isIndexed()) {
+      return index.getFirstDescendant(this, nodeTypes);
+    }
     for (AstNode child : children) {
       if (child.is(nodeTypes)) {
         return child;
@@ -457,6 +477,9 @@ public class AstNode {
    * @since 1.17
    */
   public List<AstNode> getDescendants(AstNodeType... nodeTypes) {
+    if (isIndexed()) {
+      return index.getDescendants(this, nodeTypes);
+    }
     List<AstNode> result = new ArrayList<>();
     if (hasChildren()) {
       for (AstNode child : children) {
@@ -573,6 +596,61 @@ public class AstNode {
     return getFirstAncestor(nodeTypes) != null;
   }
 
+  /**
+   * Constant-time when both nodes belong to the same valid {@link AstNodeIndex}.
+   *
+   * @return true if this node is an ancestor of the specified node
+   * @since 1.24
+   */
+  public boolean isAncestorOf(AstNode node) {
+    if (isIndexed() && index == node.index) {
+      return preorderIndex < node.preorderIndex && node.preorderIndex <= lastDescendantIndex;
+    }
+    AstNode ancestor = node.parent;
+    while (ancestor != null) {
+      if (ancestor == this) {
+        return true;
+      }
+      ancestor = ancestor.parent;
+    }
+    return false;
+  }
+
+  /**
+   * Constant-time when both nodes belong to the same valid {@link AstNodeIndex}.
+   *
+   * @return true if this node precedes the specified node in document order, i.e. in a depth-first traversal where
+   * a node is visited before its children - so an ancestor precedes its descendants
+   * @since 1.24
+   */
+  public boolean isBefore(AstNode node) {
+    if (isIndexed() && index == node.index) {
+      return preorderIndex < node.preorderIndex;
+    }
+    List<AstNode> path = pathFromRoot();
+    List<AstNode> otherPath = node.pathFromRoot();
+    if (path.get(0) != otherPath.get(0)) {
+      return false;
+    }
+    int i = 1;
+    while (i < path.size() && i < otherPath.size() && path.get(i) == otherPath.get(i)) {
+      i++;
+    }
+    if (i == path.size() || i == otherPath.size()) {
+      return path.size() < otherPath.size();
+    }
+    return path.get(i).childIndex < otherPath.get(i).childIndex;
+  }
+
+  private List<AstNode> pathFromRoot() {
+    List<AstNode> path = new ArrayList<>();
+    for (AstNode node = this; node != null; node = node.parent) {
+      path.add(node);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
   /**
    * @deprecated in 1.17, use {@link #getFirstAncestor(AstNodeType)} instead
    */
@@ -618,6 +696,20 @@ public class AstNode {
     return type;
   }
 
+  /**
+   * @return index of the tree containing this node, or null if there is no index or if it is no more valid
+   * @see AstNodeIndex#build(AstNode)
+   * @since 1.24
+   */
+  @Nullable
+  public AstNodeIndex getIndex() {
+    return isIndexed() ? index : null;
+  }
+
+  private boolean isIndexed() {
+    return index != null && index.isValid();
+  }
+
   /**
    * Return all tokens contained in this tree node. Those tokens can be directly or indirectly attached to this node.
    */
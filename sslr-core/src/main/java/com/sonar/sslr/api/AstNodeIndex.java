@@ -0,0 +1,375 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Index of the nodes of a tree by their type, in document order.
+ * <p>
+ * Each node of the tree receives its position in a pre-order traversal, as well as the position of its last descendant,
+ * so that descendants of a node of a given type can be found with a binary search instead of a walk of the whole subtree.
+ * Once built, the index is used transparently by {@link AstNode#getDescendants(AstNodeType...)},
+ * {@link AstNode#getFirstDescendant(AstNodeType...)} and {@link AstNode#hasDescendant(AstNodeType...)},
+ * and makes {@link AstNode#isAncestorOf(AstNode)}, {@link AstNode#isBefore(AstNode)} and {@link AstNode#getNextAstNode()}
+ * constant-time.
+ * <p>
+ * Nodes can also be looked up by their name with {@link #getDescendantsByName(AstNode, String)}, which is used by XPath queries.
+ * <p>
+ * Types of nodes receive dense ids in order of their first appearance, so that dispatch on the type of a node,
+ * such as the one of {@link com.sonar.sslr.impl.ast.AstWalker}, can be done by {@link #getTypeId(AstNode)} with array lookups.
+ * <p>
+ * The index is invalidated as soon as a child is added to one of the indexed nodes.
+ * Invalidation is visible to all threads, but modification of the tree concurrently with lookups is not supported.
+ *
+ * @since 1.24
+ */
+public final class AstNodeIndex {
+
+  private static final AstNode[] EMPTY = new AstNode[0];
+  private static final int MAX_TYPES_TO_MERGE = 8;
+
+  private final AstNode root;
+  private final AstNode[] nodes;
+  // ids of types of nodes by their position in document order
+  private final int[] typeIds;
+  private final AstNodeType[] types;
+  private final Map<AstNodeType, AstNode[]> nodesByType;
+  // computed on first use, which is not synchronized, because result doesn't depend on the thread which computes it
+  private volatile Map<String, AstNode[]> nodesByName;
+  // volatile, so that invalidation is seen by lookups from other threads, e.g. the ones of ParallelAstWalker
+  private volatile boolean valid = true;
+
+  private AstNodeIndex(AstNode root, AstNode[] nodes, int[] typeIds, AstNodeType[] types, Map<AstNodeType, AstNode[]> nodesByType) {
+    this.root = root;
+    this.nodes = nodes;
+    this.typeIds = typeIds;
+    this.types = types;
+    this.nodesByType = nodesByType;
+  }
+
+  /**
+   * Builds the index of the given tree in a single pass, and attaches it to all the nodes of this tree.
+   */
+  public static AstNodeIndex build(AstNode root) {
+    List<AstNode> nodes = new ArrayList<>();
+    Map<AstNodeType, List<AstNode>> nodesByType = new IdentityHashMap<>();
+
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      node.preorderIndex = nodes.size();
+      nodes.add(node);
+      nodesByType.computeIfAbsent(node.getType(), k -> new ArrayList<>()).add(node);
+      List<AstNode> children = node.getChildren();
+      for (int i = children.size() - 1; i >= 0; i--) {
+        stack.push(children.get(i));
+      }
+    }
+
+    AstNode[] nodesArray = nodes.toArray(new AstNode[nodes.size()]);
+    // ids of types are given in order of their first appearance in document order
+    Map<AstNodeType, Integer> typeIdsByType = new IdentityHashMap<>(nodesByType.size());
+    AstNodeType[] types = new AstNodeType[nodesByType.size()];
+    int[] typeIds = new int[nodesArray.length];
+    for (int i = 0; i < nodesArray.length; i++) {
+      AstNodeType type = nodesArray[i].getType();
+      Integer typeId = typeIdsByType.get(type);
+      if (typeId == null) {
+        typeId = typeIdsByType.size();
+        typeIdsByType.put(type, typeId);
+        types[typeId] = type;
+      }
+      typeIds[i] = typeId;
+    }
+    // last descendant of a node is the one preceding the next sibling of this node or of one of its ancestors
+    for (int i = nodesArray.length - 1; i >= 0; i--) {
+      AstNode node = nodesArray[i];
+      node.lastDescendantIndex = node.hasChildren() ? node.getLastChild().lastDescendantIndex : i;
+    }
+
+    Map<AstNodeType, AstNode[]> nodesByTypeArray = new IdentityHashMap<>(nodesByType.size());
+    for (Map.Entry<AstNodeType, List<AstNode>> entry : nodesByType.entrySet()) {
+      nodesByTypeArray.put(entry.getKey(), entry.getValue().toArray(new AstNode[entry.getValue().size()]));
+    }
+
+    AstNodeIndex index = new AstNodeIndex(root, nodesArray, typeIds, types, nodesByTypeArray);
+    for (AstNode node : nodesArray) {
+      if (node.index != null) {
+        node.index.invalidate();
+      }
+      node.index = index;
+    }
+    return index;
+  }
+
+  public AstNode getRoot() {
+    return root;
+  }
+
+  /**
+   * @return number of indexed nodes
+   */
+  public int size() {
+    return nodes.length;
+  }
+
+  /**
+   * @return false if the indexed tree was modified after construction of this index
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  void invalidate() {
+    valid = false;
+  }
+
+  /**
+   * @return types of indexed nodes, where position of a type is its id
+   * @see #getTypeId(AstNode)
+   */
+  public List<AstNodeType> getTypes() {
+    return Collections.unmodifiableList(Arrays.asList(types));
+  }
+
+  /**
+   * @return id of the type of the given node, which is its position in {@link #getTypes()}
+   * @throws IllegalArgumentException if node is not part of this index
+   */
+  public int getTypeId(AstNode node) {
+    checkIndexed(node);
+    return typeIds[node.preorderIndex];
+  }
+
+  /**
+   * @return all indexed nodes of the given type in document order, never null
+   */
+  public List<AstNode> getNodes(AstNodeType type) {
+    AstNode[] result = nodesOfType(type);
+    return result.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(result));
+  }
+
+  /**
+   * @return descendants of the given node with the given name in document order, never null
+   * @since 1.24
+   */
+  public List<AstNode> getDescendantsByName(AstNode node, String name) {
+    checkIndexed(node);
+    AstNode[] candidates = nodesOfName(name);
+    int from = firstDescendant(candidates, node);
+    int to = firstDescendant(candidates, nodes[node.lastDescendantIndex]);
+    return from == to ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(candidates).subList(from, to));
+  }
+
+  /**
+   * @return indexed nodes which follow the given one in document order, excluding its descendants - i.e. nodes of the XPath
+   * "following" axis within this index
+   * @since 1.24
+   */
+  public List<AstNode> getFollowing(AstNode node) {
+    checkIndexed(node);
+    return Collections.unmodifiableList(Arrays.asList(nodes).subList(node.lastDescendantIndex + 1, nodes.length));
+  }
+
+  /**
+   * @return indexed nodes which precede the given one in reverse document order, excluding its ancestors - i.e. nodes of the
+   * XPath "preceding" axis within this index
+   * @since 1.24
+   */
+  public Iterator<AstNode> getPrecedingIterator(AstNode node) {
+    checkIndexed(node);
+    return new Iterator<AstNode>() {
+      private int i = previous(node.preorderIndex);
+
+      private int previous(int from) {
+        int result = from - 1;
+        while (result >= 0 && nodes[result].lastDescendantIndex >= node.preorderIndex) {
+          result--;
+        }
+        return result;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return i >= 0;
+      }
+
+      @Override
+      public AstNode next() {
+        if (i < 0) {
+          throw new NoSuchElementException();
+        }
+        AstNode result = nodes[i];
+        i = previous(i);
+        return result;
+      }
+    };
+  }
+
+  private void checkIndexed(AstNode node) {
+    if (node.index != this) {
+      throw new IllegalArgumentException("Node is not part of this index: " + node);
+    }
+  }
+
+  /**
+   * @return node at the given position in document order, or null if position is out of this index
+   */
+  @Nullable
+  AstNode nodeAt(int preorderIndex) {
+    return preorderIndex < nodes.length ? nodes[preorderIndex] : null;
+  }
+
+  List<AstNode> getDescendants(AstNode node, AstNodeType... types) {
+    if (types.length == 1) {
+      AstNode[] candidates = nodesOfType(types[0]);
+      int from = firstDescendant(candidates, node);
+      int to = from;
+      while (to < candidates.length && candidates[to].preorderIndex <= node.lastDescendantIndex) {
+        to++;
+      }
+      List<AstNode> result = new ArrayList<>(to - from);
+      for (int i = from; i < to; i++) {
+        result.add(candidates[i]);
+      }
+      return result;
+    }
+
+    if (types.length > MAX_TYPES_TO_MERGE) {
+      return getDescendantsByCounting(node, types);
+    }
+
+    // merge of ranges, node matching several types is added several times - see AstNode#getDescendants
+    AstNode[][] candidates = new AstNode[types.length][];
+    int[] cursors = new int[types.length];
+    for (int i = 0; i < types.length; i++) {
+      candidates[i] = nodesOfType(types[i]);
+      cursors[i] = firstDescendant(candidates[i], node);
+    }
+    List<AstNode> result = new ArrayList<>();
+    while (true) {
+      int min = -1;
+      for (int i = 0; i < types.length; i++) {
+        if (cursors[i] < candidates[i].length
+          && candidates[i][cursors[i]].preorderIndex <= node.lastDescendantIndex
+          && (min == -1 || candidates[i][cursors[i]].preorderIndex < candidates[min][cursors[min]].preorderIndex)) {
+          min = i;
+        }
+      }
+      if (min == -1) {
+        return result;
+      }
+      result.add(candidates[min][cursors[min]]);
+      cursors[min]++;
+    }
+  }
+
+  /**
+   * Cost is proportional to the size of subtree, but not to the number of types, so preferred over merge for many types.
+   */
+  private List<AstNode> getDescendantsByCounting(AstNode node, AstNodeType... types) {
+    int offset = node.preorderIndex + 1;
+    int[] counts = new int[node.lastDescendantIndex - node.preorderIndex];
+    int total = 0;
+    for (AstNodeType type : types) {
+      AstNode[] candidates = nodesOfType(type);
+      for (int i = firstDescendant(candidates, node); i < candidates.length && candidates[i].preorderIndex <= node.lastDescendantIndex; i++) {
+        counts[candidates[i].preorderIndex - offset]++;
+        total++;
+      }
+    }
+    List<AstNode> result = new ArrayList<>(total);
+    for (int i = 0; i < counts.length && result.size() < total; i++) {
+      for (int j = 0; j < counts[i]; j++) {
+        result.add(nodes[offset + i]);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  AstNode getFirstDescendant(AstNode node, AstNodeType... types) {
+    AstNode result = null;
+    for (AstNodeType type : types) {
+      AstNode[] candidates = nodesOfType(type);
+      int i = firstDescendant(candidates, node);
+      if (i < candidates.length) {
+        AstNode candidate = candidates[i];
+        if (candidate.preorderIndex <= node.lastDescendantIndex && (result == null || candidate.preorderIndex < result.preorderIndex)) {
+          result = candidate;
+        }
+      }
+    }
+    return result;
+  }
+
+  private AstNode[] nodesOfName(String name) {
+    Map<String, AstNode[]> result = nodesByName;
+    if (result == null) {
+      Map<String, List<AstNode>> lists = new HashMap<>();
+      for (AstNode node : nodes) {
+        lists.computeIfAbsent(node.getName(), k -> new ArrayList<>()).add(node);
+      }
+      result = new HashMap<>(lists.size());
+      for (Map.Entry<String, List<AstNode>> entry : lists.entrySet()) {
+        result.put(entry.getKey(), entry.getValue().toArray(new AstNode[entry.getValue().size()]));
+      }
+      nodesByName = result;
+    }
+    AstNode[] nodesOfName = result.get(name);
+    return nodesOfName == null ? EMPTY : nodesOfName;
+  }
+
+  private AstNode[] nodesOfType(AstNodeType type) {
+    AstNode[] result = nodesByType.get(type);
+    return result == null ? EMPTY : result;
+  }
+
+  /**
+   * @return position in candidates of the first node following the given one in document order
+   */
+  private static int firstDescendant(AstNode[] candidates, AstNode node) {
+    int low = 0;
+    int high = candidates.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (candidates[mid].preorderIndex <= node.preorderIndex) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+}
@@ -28,17 +28,29 @@ import com.sonar.sslr.impl.typed.SyntaxTreeCreator;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.matchers.InputBuffer;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 import org.sonar.sslr.parser.ParseError;
 import org.sonar.sslr.parser.ParseErrorFormatter;
-import org.sonar.sslr.parser.ParseRunner;
 import org.sonar.sslr.parser.ParsingResult;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * @since 1.21
@@ -47,14 +59,15 @@ public class ActionParser<N> {
 
   private final Charset charset;
 
+  private final GrammarBuilderInterceptor grammarBuilderInterceptor;
   private final SyntaxTreeCreator<N> syntaxTreeCreator;
   private final GrammarRuleKey rootRule;
-  private final ParseRunner parseRunner;
+  private final CompiledGrammar compiledGrammar;
 
   public ActionParser(Charset charset, LexerlessGrammarBuilder b, Class grammarClass, Object treeFactory, NodeBuilder nodeBuilder, GrammarRuleKey rootRule) {
     this.charset = charset;
 
-    GrammarBuilderInterceptor grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
+    this.grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
     Object treeFactoryInterceptor = Interceptor.create(
       treeFactory.getClass(),
       new Class[]{},
@@ -80,24 +93,89 @@ public class ActionParser<N> {
 
     b.setRootRule(rootRule);
     this.rootRule = rootRule;
-    this.parseRunner = new ParseRunner(b.build().getRootRule());
+    this.compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().getRootRule());
+  }
+
+  /**
+   * Creates parser from the grammar written by {@link #writeGrammar(OutputStream)},
+   * which is about three times faster than construction of the grammar from its definition,
+   * because it avoids interception of calls of grammar methods.
+   * Given tree factory must be an instance of the same class as the one used to create grammar.
+   *
+   * @since 1.24
+   */
+  public ActionParser(Charset charset, InputStream grammar, Object treeFactory, NodeBuilder nodeBuilder) throws IOException {
+    this.charset = charset;
+    this.grammarBuilderInterceptor = new GrammarBuilderInterceptor();
+    this.compiledGrammar = grammarBuilderInterceptor.readGrammar(
+      new DataInputStream(new BufferedInputStream(grammar)),
+      treeFactory.getClass().getClassLoader());
+    this.rootRule = compiledGrammar.getRootRuleKey();
+    this.syntaxTreeCreator = new SyntaxTreeCreator<>(treeFactory, grammarBuilderInterceptor, nodeBuilder);
+  }
+
+  /**
+   * Writes grammar of this parser in a binary form, which can be loaded by {@link #ActionParser(Charset, InputStream, Object, NodeBuilder)}.
+   * Rule keys of the grammar must be constants of enums.
+   *
+   * @since 1.24
+   */
+  public void writeGrammar(OutputStream out) throws IOException {
+    DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(out));
+    grammarBuilderInterceptor.writeGrammar(compiledGrammar, dataOutput);
+    dataOutput.flush();
   }
 
   public N parse(File file) {
+    return parse(file, null);
+  }
+
+  public N parse(String source) {
+    return parse(new Input(source.toCharArray()), null);
+  }
+
+  /**
+   * Parses with recovery from errors by skipping of text as defined by
+   * {@link org.sonar.sslr.grammar.LexerlessGrammarBuilder#recover(Object, Object)} expressions of grammar.
+   *
+   * @param recoveredErrors receives errors, from which parsing recovered
+   * @return tree, which doesn't contain skipped text
+   * @throws RecognitionException if unable to parse despite recovery
+   * @since 1.24
+   */
+  public N parseWithRecovery(File file, List<ParseError> recoveredErrors) {
+    return parse(file, Objects.requireNonNull(recoveredErrors, "recoveredErrors"));
+  }
+
+  /**
+   * Parses with recovery from errors by skipping of text as defined by
+   * {@link org.sonar.sslr.grammar.LexerlessGrammarBuilder#recover(Object, Object)} expressions of grammar.
+   *
+   * @param recoveredErrors receives errors, from which parsing recovered
+   * @return tree, which doesn't contain skipped text
+   * @throws RecognitionException if unable to parse despite recovery
+   * @since 1.24
+   */
+  public N parseWithRecovery(String source, List<ParseError> recoveredErrors) {
+    return parse(new Input(source.toCharArray()), Objects.requireNonNull(recoveredErrors, "recoveredErrors"));
+  }
+
+  private N parse(File file, @Nullable List<ParseError> recoveredErrors) {
     try {
       char[] chars = new String(Files.readAllBytes(Paths.get(file.getPath())), charset).toCharArray();
-      return parse(new Input(chars, file.toURI()));
+      return parse(new Input(chars, file.toURI()), recoveredErrors);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  public N parse(String source) {
-    return parse(new Input(source.toCharArray()));
-  }
-
-  private N parse(Input input) {
-    ParsingResult result = parseRunner.parse(input.input());
+  /**
+   * @param recoveredErrors null if parsing should be done without recovery
+   */
+  private N parse(Input input, @Nullable List<ParseError> recoveredErrors) {
+    ParsingResult result = recoveredErrors == null
+      ? Machine.parse(input.input(), compiledGrammar)
+      : Machine.parseWithRecovery(input.input(), compiledGrammar);
 
     if (!result.isMatched()) {
       ParseError parseError = result.getParseError();
@@ -107,6 +185,9 @@ public class ActionParser<N> {
       throw new RecognitionException(line, message);
     }
 
+    if (recoveredErrors != null) {
+      recoveredErrors.addAll(result.getRecoveredErrors());
+    }
     return syntaxTreeCreator.create(result.getParseTreeRoot(), input);
   }
 
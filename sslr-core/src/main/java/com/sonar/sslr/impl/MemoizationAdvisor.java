@@ -0,0 +1,394 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MachineHandler;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Recommends which rules of a lexerful grammar should be memoized, based on parsing of a sample corpus.
+ * <p>
+ * Corpus is parsed without memoization to find, for each rule, invocations at a position where this rule has already matched
+ * during the same parsing - only such invocations can be avoided by memoization, because only matches are memoized.
+ * Invocations of rules within an invocation, which can be avoided, are attributed to the outermost one.
+ * Memoization of a rule is recommended, when number of rule invocations which it would save exceeds number of its matches,
+ * each of which costs a write into memo and can evict from memo the result of another rule matched at the same position.
+ * <p>
+ * Expected speedup is estimated as the ratio between numbers of rule invocations during parsing of corpus
+ * with memoization as currently configured in grammar and with recommended memoization.
+ * Recommendation is not applied to grammar unless {@link Advice#apply()} is called.
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 1.24
+ */
+public final class MemoizationAdvisor {
+
+  private final Parser<?> parser;
+  private final List<List<Token>> corpus = new ArrayList<>();
+
+  /**
+   * @param parser lexerful parser, whose lexer is used for sources added to corpus and whose root rule is used for parsing
+   */
+  public MemoizationAdvisor(Parser<?> parser) {
+    this.parser = parser;
+  }
+
+  public MemoizationAdvisor addSource(String source) {
+    corpus.add(parser.lex(source));
+    return this;
+  }
+
+  public MemoizationAdvisor addSource(File file) {
+    corpus.add(parser.lex(file));
+    return this;
+  }
+
+  public MemoizationAdvisor addTokens(List<Token> tokens) {
+    corpus.add(tokens);
+    return this;
+  }
+
+  /**
+   * Parses corpus three times: with current memoization, without memoization and with recommended memoization.
+   * Memoization of rules is restored before return.
+   *
+   * @throws com.sonar.sslr.api.RecognitionException if parsing of one of the sources of corpus fails
+   */
+  public Advice advise() {
+    CompiledGrammar grammar = MutableGrammarCompiler.compile(parser.getRootRule());
+    Map<RuleDefinition, RuleStatistics> statistics = new LinkedHashMap<>();
+
+    long invocations = parseCorpus(grammar, statistics);
+    Map<RuleDefinition, Boolean> configured = new IdentityHashMap<>();
+    for (RuleDefinition rule : statistics.keySet()) {
+      configured.put(rule, rule.shouldMemoize());
+    }
+
+    try {
+      for (RuleStatistics ruleStatistics : statistics.values()) {
+        ruleStatistics.reset();
+        ruleStatistics.rule.disableMemoization();
+      }
+      parseCorpus(grammar, statistics);
+
+      for (RuleStatistics ruleStatistics : statistics.values()) {
+        ruleStatistics.recommended = ruleStatistics.savedInvocations > ruleStatistics.matches;
+        ruleStatistics.apply();
+      }
+      long recommendedInvocations = parseCorpus(grammar, new LinkedHashMap<>());
+
+      return new Advice(new ArrayList<>(statistics.values()), invocations, recommendedInvocations);
+    } finally {
+      for (Map.Entry<RuleDefinition, Boolean> entry : configured.entrySet()) {
+        if (entry.getValue()) {
+          entry.getKey().enableMemoization();
+        } else {
+          entry.getKey().disableMemoization();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return total number of rule invocations, excluding the ones whose result was taken from memo
+   */
+  private long parseCorpus(CompiledGrammar grammar, Map<RuleDefinition, RuleStatistics> statistics) {
+    long invocations = 0;
+    for (List<Token> tokens : corpus) {
+      Handler handler = new Handler(statistics);
+      Machine.parse(tokens, grammar, handler);
+      invocations += handler.invocations;
+    }
+    return invocations;
+  }
+
+  /**
+   * Recommended memoization together with statistics of rules on which it is based.
+   */
+  public static final class Advice {
+
+    private final List<RuleStatistics> statistics;
+    private final long invocations;
+    private final long recommendedInvocations;
+
+    private Advice(List<RuleStatistics> statistics, long invocations, long recommendedInvocations) {
+      this.statistics = Collections.unmodifiableList(statistics);
+      this.invocations = invocations;
+      this.recommendedInvocations = recommendedInvocations;
+    }
+
+    /**
+     * @return statistics of all rules invoked during parsing of corpus in order of their first invocation
+     */
+    public List<RuleStatistics> getStatistics() {
+      return statistics;
+    }
+
+    public List<RuleDefinition> getRecommendedRules() {
+      List<RuleDefinition> result = new ArrayList<>();
+      for (RuleStatistics rule : statistics) {
+        if (rule.recommended) {
+          result.add(rule.rule);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * @return number of rule invocations during parsing of corpus with memoization as it was configured in grammar
+     */
+    public long getInvocations() {
+      return invocations;
+    }
+
+    /**
+     * @return number of rule invocations during parsing of corpus with recommended memoization
+     */
+    public long getRecommendedInvocations() {
+      return recommendedInvocations;
+    }
+
+    public double getExpectedSpeedup() {
+      return recommendedInvocations == 0 ? 1 : (double) invocations / recommendedInvocations;
+    }
+
+    /**
+     * Enables memoization of recommended rules and disables memoization of all other rules invoked during parsing of corpus.
+     */
+    public void apply() {
+      for (RuleStatistics rule : statistics) {
+        rule.apply();
+      }
+    }
+
+    /**
+     * Writes expected speedup followed by names of recommended rules, one per line.
+     */
+    public void writeReport(Appendable out) throws IOException {
+      out.append(String.format(Locale.ENGLISH, "Expected speedup: %.2f (%d rule invocations instead of %d)%n",
+        getExpectedSpeedup(), recommendedInvocations, invocations));
+      out.append("Recommended memoization:\n");
+      for (RuleDefinition rule : getRecommendedRules()) {
+        out.append("  ").append(rule.getName()).append('\n');
+      }
+    }
+
+    /**
+     * Writes statistics of rules with a header line, one line per rule.
+     */
+    public void writeCsv(Appendable out) throws IOException {
+      out.append("rule,invocations,matches,rescans,savedInvocations,memoize\n");
+      for (RuleStatistics rule : statistics) {
+        out.append(csvEscape(rule.getName())).append(',')
+          .append(Long.toString(rule.invocations)).append(',')
+          .append(Long.toString(rule.matches)).append(',')
+          .append(Long.toString(rule.rescans)).append(',')
+          .append(Long.toString(rule.savedInvocations)).append(',')
+          .append(Boolean.toString(rule.recommended)).append('\n');
+      }
+    }
+
+    private static String csvEscape(String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+  }
+
+  /**
+   * Statistics of a rule collected during parsing of corpus without memoization.
+   */
+  public static final class RuleStatistics {
+
+    private final RuleDefinition rule;
+    private long invocations;
+    private long matches;
+    private long rescans;
+    private long savedInvocations;
+    private boolean recommended;
+
+    private RuleStatistics(RuleDefinition rule) {
+      this.rule = rule;
+    }
+
+    private void reset() {
+      invocations = 0;
+      matches = 0;
+      rescans = 0;
+      savedInvocations = 0;
+    }
+
+    private void apply() {
+      if (recommended) {
+        rule.enableMemoization();
+      } else {
+        rule.disableMemoization();
+      }
+    }
+
+    public RuleDefinition getRule() {
+      return rule;
+    }
+
+    public String getName() {
+      return rule.getName();
+    }
+
+    public long getInvocations() {
+      return invocations;
+    }
+
+    public long getMatches() {
+      return matches;
+    }
+
+    /**
+     * @return number of invocations at a position, where rule was already invoked during the same parsing
+     */
+    public long getRescans() {
+      return rescans;
+    }
+
+    /**
+     * @return number of invocations of rules, including this one, done by {@link #getRescans() re-scans}
+     * at a position where rule already matched, i.e. which would be avoided by memoization of this rule,
+     * excluding re-scans within re-scans of other rules, which are attributed to the outermost ones
+     */
+    public long getSavedInvocations() {
+      return savedInvocations;
+    }
+
+    public boolean isRecommended() {
+      return recommended;
+    }
+
+  }
+
+  private static final class Invocation {
+
+    private final RuleStatistics statistics;
+    private final int startIndex;
+    private final boolean memoizable;
+    private final boolean avoidable;
+    private final long invocationsBefore;
+
+    Invocation(RuleStatistics statistics, int startIndex, boolean memoizable, boolean avoidable, long invocationsBefore) {
+      this.statistics = statistics;
+      this.startIndex = startIndex;
+      this.memoizable = memoizable;
+      this.avoidable = avoidable;
+      this.invocationsBefore = invocationsBefore;
+    }
+
+  }
+
+  /**
+   * Handler for a single parsing.
+   */
+  private static final class Handler implements MachineHandler {
+
+    private final Map<RuleDefinition, RuleStatistics> statistics;
+    private final Deque<Invocation> stack = new ArrayDeque<>();
+    private final Map<RuleStatistics, BitSet> invokedAt = new IdentityHashMap<>();
+    private final Map<RuleStatistics, BitSet> matchedAt = new IdentityHashMap<>();
+    private long invocations;
+
+    Handler(Map<RuleDefinition, RuleStatistics> statistics) {
+      this.statistics = statistics;
+    }
+
+    @Override
+    public void onCall(Machine machine) {
+      RuleDefinition rule = rule(machine.peek().matcher());
+      if (rule == null) {
+        return;
+      }
+      RuleStatistics ruleStatistics = statistics.computeIfAbsent(rule, RuleStatistics::new);
+      ruleStatistics.invocations++;
+      int startIndex = machine.getIndex();
+      BitSet invoked = invokedAt.computeIfAbsent(ruleStatistics, k -> new BitSet());
+      boolean memoizable = false;
+      if (invoked.get(startIndex)) {
+        ruleStatistics.rescans++;
+        BitSet matched = matchedAt.get(ruleStatistics);
+        // invocation within an invocation which would be avoided itself is attributed only to the outermost one
+        memoizable = matched != null && matched.get(startIndex) && (stack.isEmpty() || !stack.peek().avoidable);
+      } else {
+        invoked.set(startIndex);
+      }
+      boolean avoidable = memoizable || (!stack.isEmpty() && stack.peek().avoidable);
+      stack.push(new Invocation(ruleStatistics, startIndex, memoizable, avoidable, invocations));
+      invocations++;
+    }
+
+    @Override
+    public void onReturn(Machine machine) {
+      if (rule(machine.peek().matcher()) != null) {
+        Invocation invocation = finish();
+        invocation.statistics.matches++;
+        matchedAt.computeIfAbsent(invocation.statistics, k -> new BitSet()).set(invocation.startIndex);
+      }
+    }
+
+    @Override
+    public void onBacktrack(Machine machine) {
+      if (rule(machine.peek().matcher()) != null) {
+        finish();
+      }
+    }
+
+    private Invocation finish() {
+      Invocation invocation = stack.pop();
+      if (invocation.memoizable) {
+        invocation.statistics.savedInvocations += invocations - invocation.invocationsBefore;
+      }
+      return invocation;
+    }
+
+  }
+
+  @Nullable
+  private static RuleDefinition rule(@Nullable Matcher matcher) {
+    return matcher instanceof RuleDefinition ? (RuleDefinition) matcher : null;
+  }
+
+}
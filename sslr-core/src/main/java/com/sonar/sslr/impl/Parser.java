@@ -26,12 +26,14 @@ import com.sonar.sslr.api.Rule;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
 import org.sonar.sslr.internal.matchers.LexerfulAstCreator;
+import org.sonar.sslr.internal.vm.AdaptiveMemoization;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
 import org.sonar.sslr.internal.vm.CompiledGrammar;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 import org.sonar.sslr.parser.ParserAdapter;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 
@@ -45,6 +47,9 @@ public class Parser<G extends Grammar> {
   private RuleDefinition rootRule;
   private final Lexer lexer;
   private final G grammar;
+  // compiled only once when adaptive memoization is enabled, so that its decisions are kept between parsings
+  @Nullable
+  private CompiledGrammar compiledGrammar;
 
   /**
    * @since 1.16
@@ -61,26 +66,34 @@ public class Parser<G extends Grammar> {
   }
 
   public AstNode parse(File file) {
+    return parse(lex(file));
+  }
+
+  public AstNode parse(String source) {
+    return parse(lex(source));
+  }
+
+  List<Token> lex(File file) {
     try {
       lexer.lex(file);
     } catch (LexerException e) {
       throw new RecognitionException(e);
     }
-    return parse(lexer.getTokens());
+    return lexer.getTokens();
   }
 
-  public AstNode parse(String source) {
+  List<Token> lex(String source) {
     try {
       lexer.lex(source);
     } catch (LexerException e) {
       throw new RecognitionException(e);
     }
-    return parse(lexer.getTokens());
+    return lexer.getTokens();
   }
 
   public AstNode parse(List<Token> tokens) {
     // TODO can be compiled only once
-    CompiledGrammar g = MutableGrammarCompiler.compile((CompilableGrammarRule) rootRule);
+    CompiledGrammar g = compiledGrammar != null ? compiledGrammar : MutableGrammarCompiler.compile((CompilableGrammarRule) rootRule);
     return LexerfulAstCreator.create(Machine.parse(tokens, g), tokens);
   }
 
@@ -94,6 +107,22 @@ public class Parser<G extends Grammar> {
 
   public void setRootRule(Rule rootRule) {
     this.rootRule = (RuleDefinition) rootRule;
+    this.compiledGrammar = null;
+  }
+
+  /**
+   * Enables memoization of rules, which adapts to the parsed tokens, for all subsequent parsings of the current root rule,
+   * so that rules are memoized when this avoids their re-parsing regardless of {@link RuleDefinition#enableMemoization()}.
+   * Grammar is compiled only once from now on, so that later changes of rules are not taken into account.
+   *
+   * @return policy of memoization, which provides statistics and decisions taken for rules
+   * @since 1.24
+   */
+  public AdaptiveMemoization enableAdaptiveMemoization() {
+    if (compiledGrammar == null) {
+      compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) rootRule);
+    }
+    return compiledGrammar.enableAdaptiveMemoization();
   }
 
   public static <G extends Grammar> Builder<G> builder(G grammar) {
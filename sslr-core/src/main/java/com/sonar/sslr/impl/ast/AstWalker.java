@@ -21,23 +21,43 @@ package com.sonar.sslr.impl.ast;
 
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeIndex;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.AstVisitor;
 import com.sonar.sslr.api.Token;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Walks a tree and notifies all registered visitors in a single traversal.
+ * <p>
+ * When the tree is indexed (see {@link AstNodeIndex}), visitors of a node are found by the {@link AstNodeIndex#getTypeId(AstNode) id of its type}
+ * with array lookups, otherwise with a lookup of its type in a map.
+ * When the tree is indexed and no {@link AstAndTokenVisitor} is registered,
+ * only nodes of the types to visit are traversed, and subtrees which do not contain such nodes are skipped.
+ * Visitors of tokens require a traversal of the whole tree.
+ */
 public final class AstWalker {
 
-  private final Map<AstNodeType, AstVisitor[]> visitorsByNodeType = new IdentityHashMap<>();
+  private static final AstVisitor[] NO_VISITORS = new AstVisitor[0];
+
+  private final Map<AstNodeType, Integer> typeIds = new IdentityHashMap<>();
+  private final List<AstNodeType> types = new ArrayList<>();
+  private AstVisitor[][] visitorsByTypeId = new AstVisitor[0][];
   private final List<AstVisitor> visitors = new ArrayList<>();
   private AstAndTokenVisitor[] astAndTokenVisitors = new AstAndTokenVisitor[0];
   private Token lastVisitedToken = null;
 
+  // index of the walked tree and visitors by ids of types of this index, if tree is indexed
+  @Nullable
+  private AstNodeIndex index;
+  private AstVisitor[][] visitorsByIndexTypeId;
+
   public AstWalker(AstVisitor... visitors) {
     this(Arrays.asList(visitors));
   }
@@ -51,9 +71,11 @@ public final class AstWalker {
   public void addVisitor(AstVisitor visitor) {
     visitors.add(visitor);
     for (AstNodeType type : visitor.getAstNodeTypesToVisit()) {
-      List<AstVisitor> visitorsByType = getAstVisitors(type);
-      visitorsByType.add(visitor);
-      putAstVisitors(type, visitorsByType);
+      int typeId = getTypeId(type);
+      AstVisitor[] visitorsByType = visitorsByTypeId[typeId];
+      visitorsByType = Arrays.copyOf(visitorsByType, visitorsByType.length + 1);
+      visitorsByType[visitorsByType.length - 1] = visitor;
+      visitorsByTypeId[typeId] = visitorsByType;
     }
     if (visitor instanceof AstAndTokenVisitor) {
       List<AstAndTokenVisitor> tokenVisitorsList = new ArrayList<>(Arrays.asList(astAndTokenVisitors));
@@ -62,11 +84,36 @@ public final class AstWalker {
     }
   }
 
+  private int getTypeId(AstNodeType type) {
+    Integer typeId = typeIds.get(type);
+    if (typeId == null) {
+      typeId = types.size();
+      typeIds.put(type, typeId);
+      types.add(type);
+      visitorsByTypeId = Arrays.copyOf(visitorsByTypeId, types.size());
+      visitorsByTypeId[typeId] = NO_VISITORS;
+    }
+    return typeId;
+  }
+
   public void walkAndVisit(AstNode ast) {
     for (AstVisitor visitor : visitors) {
       visitor.visitFile(ast);
     }
-    visit(ast);
+    index = ast.getIndex();
+    if (index != null) {
+      visitorsByIndexTypeId = visitorsByTypeIdOf(index);
+    }
+    try {
+      if (index != null && astAndTokenVisitors.length == 0) {
+        visitIndexed(ast);
+      } else {
+        visit(ast);
+      }
+    } finally {
+      index = null;
+      visitorsByIndexTypeId = null;
+    }
     for (int i = visitors.size() - 1; i >= 0; i--) {
       visitors.get(i).leaveFile(ast);
     }
@@ -81,22 +128,72 @@ public final class AstWalker {
   }
 
   private void visit(AstNode ast) {
+    AstNode[] nodes = new AstNode[16];
+    int[] nextChild = new int[16];
+    AstVisitor[][] nodeVisitors = new AstVisitor[16][];
+    int top = 0;
+    nodes[0] = ast;
+    nodeVisitors[0] = enter(ast);
+    while (top >= 0) {
+      AstNode node = nodes[top];
+      List<AstNode> children = node.getChildren();
+      if (nextChild[top] < children.size()) {
+        AstNode child = children.get(nextChild[top]);
+        nextChild[top]++;
+        top++;
+        if (top == nodes.length) {
+          nodes = Arrays.copyOf(nodes, top * 2);
+          nextChild = Arrays.copyOf(nextChild, top * 2);
+          nodeVisitors = Arrays.copyOf(nodeVisitors, top * 2);
+        }
+        nodes[top] = child;
+        nextChild[top] = 0;
+        nodeVisitors[top] = enter(child);
+      } else {
+        leaveNode(node, nodeVisitors[top]);
+        nodes[top] = null;
+        nodeVisitors[top] = null;
+        top--;
+      }
+    }
+  }
+
+  private AstVisitor[] enter(AstNode ast) {
     AstVisitor[] nodeVisitors = getNodeVisitors(ast);
     visitNode(ast, nodeVisitors);
     visitToken(ast);
-    visitChildren(ast);
-    leaveNode(ast, nodeVisitors);
+    return nodeVisitors;
   }
 
-  private static void leaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
-    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
-      nodeVisitors[i].leaveNode(ast);
+  /**
+   * Visits only nodes of registered types, which are retrieved from the index of the tree.
+   * Order of calls is the same as for a full traversal, because index gives nodes in document order.
+   */
+  private void visitIndexed(AstNode ast) {
+    List<AstNode> open = new ArrayList<>();
+    AstVisitor[] rootVisitors = getNodeVisitors(ast);
+    if (rootVisitors.length > 0) {
+      visitNode(ast, rootVisitors);
+      open.add(ast);
+    }
+    if (!types.isEmpty()) {
+      for (AstNode node : ast.getDescendants(types.toArray(new AstNodeType[types.size()]))) {
+        while (!open.isEmpty() && !open.get(open.size() - 1).isAncestorOf(node)) {
+          AstNode closed = open.remove(open.size() - 1);
+          leaveNode(closed, getNodeVisitors(closed));
+        }
+        visitNode(node, getNodeVisitors(node));
+        open.add(node);
+      }
+    }
+    for (int i = open.size() - 1; i >= 0; i--) {
+      leaveNode(open.get(i), getNodeVisitors(open.get(i)));
     }
   }
 
-  private void visitChildren(AstNode ast) {
-    for (AstNode child : ast.getChildren()) {
-      visit(child);
+  private static void leaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
+    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
+      nodeVisitors[i].leaveNode(ast);
     }
   }
 
@@ -115,20 +212,23 @@ public final class AstWalker {
     }
   }
 
-  private AstVisitor[] getNodeVisitors(AstNode ast) {
-    AstVisitor[] nodeVisitors = visitorsByNodeType.get(ast.getType());
-    if (nodeVisitors == null) {
-      nodeVisitors = new AstVisitor[0];
+  private AstVisitor[][] visitorsByTypeIdOf(AstNodeIndex index) {
+    List<AstNodeType> indexTypes = index.getTypes();
+    AstVisitor[][] result = new AstVisitor[indexTypes.size()][];
+    for (int i = 0; i < result.length; i++) {
+      Integer typeId = typeIds.get(indexTypes.get(i));
+      result[i] = typeId == null ? NO_VISITORS : visitorsByTypeId[typeId];
     }
-    return nodeVisitors;
+    return result;
   }
 
-  private void putAstVisitors(AstNodeType type, List<AstVisitor> visitors) {
-    visitorsByNodeType.put(type, visitors.toArray(new AstVisitor[visitors.size()]));
+  private AstVisitor[] getNodeVisitors(AstNode ast) {
+    // nodes added by visitors are not part of the index
+    if (index != null && ast.getIndex() == index) {
+      return visitorsByIndexTypeId[index.getTypeId(ast)];
+    }
+    Integer typeId = typeIds.get(ast.getType());
+    return typeId == null ? NO_VISITORS : visitorsByTypeId[typeId];
   }
 
-  private List<AstVisitor> getAstVisitors(AstNodeType type) {
-    AstVisitor[] visitorsByType = visitorsByNodeType.get(type);
-    return visitorsByType == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(visitorsByType));
-  }
 }
@@ -0,0 +1,92 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.ast;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Walks a tree with several groups of visitors concurrently, each group being handled by its own {@link AstWalker}.
+ * <p>
+ * Visitors of a group are notified in the same order as by {@link AstWalker}, including calls of
+ * {@link AstVisitor#visitFile(AstNode)} and {@link AstVisitor#leaveFile(AstNode)}, but no ordering is guaranteed between groups.
+ * So visitors which share state must be in the same group, whereas independent visitors can be put in separate groups.
+ * The tree must not be modified while it is walked.
+ *
+ * @since 1.24
+ */
+public final class ParallelAstWalker {
+
+  private final ForkJoinPool pool;
+  private final List<AstWalker> walkers = new ArrayList<>();
+
+  public ParallelAstWalker(ForkJoinPool pool, List<? extends List<? extends AstVisitor>> groups) {
+    this.pool = pool;
+    for (List<? extends AstVisitor> group : groups) {
+      walkers.add(new AstWalker(group));
+    }
+  }
+
+  /**
+   * Creates a walker with one group per visitor, so can be used only for visitors which are independent from each other.
+   */
+  public static ParallelAstWalker ofIndependentVisitors(ForkJoinPool pool, List<? extends AstVisitor> visitors) {
+    List<List<AstVisitor>> groups = new ArrayList<>();
+    for (AstVisitor visitor : visitors) {
+      groups.add(Collections.singletonList(visitor));
+    }
+    return new ParallelAstWalker(pool, groups);
+  }
+
+  /**
+   * Returns once all groups have walked the tree.
+   * If a visitor fails, then its exception is rethrown after completion of other groups.
+   */
+  public void walkAndVisit(AstNode ast) {
+    if (walkers.size() == 1) {
+      walkers.get(0).walkAndVisit(ast);
+      return;
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(walkers.size());
+    for (AstWalker walker : walkers) {
+      tasks.add(pool.submit(() -> walker.walkAndVisit(ast)));
+    }
+    RuntimeException failure = null;
+    for (ForkJoinTask<?> task : tasks) {
+      try {
+        task.join();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+}
@@ -151,4 +151,11 @@ public class RuleDefinition implements Rule, AstNodeSkippingPolicy, GrammarRuleK
     memoize = true;
   }
 
+  /**
+   * @since 1.24
+   */
+  public void disableMemoization() {
+    memoize = false;
+  }
+
 }
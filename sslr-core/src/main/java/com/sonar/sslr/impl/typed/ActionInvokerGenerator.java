@@ -0,0 +1,193 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates an {@link ActionInvoker}, which calls actions of a tree factory directly instead of using reflection.
+ * <p>
+ * Generated class contains a single method with a switch on index of action, and each branch casts arguments to the types
+ * of parameters of the action and calls it, so that neither array of arguments, nor {@link Method#invoke(Object, Object...)} is involved.
+ * Falls back to reflection when some classes are not accessible from generated code.
+ * Invokers are stateless, so they are created once per tree factory class and list of actions, and shared.
+ */
+public final class ActionInvokerGenerator {
+
+  private static final String CLASS_NAME = "GeneratedBySSLR$ActionInvoker";
+  private static final String LIST = Type.getInternalName(List.class);
+
+  /**
+   * Invokers by lists of actions for each tree factory class - held by the class itself,
+   * so that they don't prevent unloading of it.
+   */
+  private static final ClassValue<Map<List<Method>, ActionInvoker>> INVOKERS = new ClassValue<Map<List<Method>, ActionInvoker>>() {
+    @Override
+    protected Map<List<Method>, ActionInvoker> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  private ActionInvokerGenerator() {
+  }
+
+  public static ActionInvoker create(Class<?> treeFactoryClass, List<Method> actions) {
+    return INVOKERS.get(treeFactoryClass).computeIfAbsent(new ArrayList<>(actions), key -> doCreate(treeFactoryClass, key));
+  }
+
+  private static ActionInvoker doCreate(Class<?> treeFactoryClass, List<Method> actions) {
+    if (actions.isEmpty()) {
+      return new ReflectiveActionInvoker(actions);
+    }
+    for (Method action : actions) {
+      if (!canBeInvokedDirectly(action)) {
+        return new ReflectiveActionInvoker(actions);
+      }
+    }
+    return generate(treeFactoryClass, actions);
+  }
+
+  private static boolean canBeInvokedDirectly(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || !isAccessible(method.getDeclaringClass()) || method.getReturnType().isPrimitive()) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (parameterType.isPrimitive() || !isAccessible(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAccessible(Class<?> cls) {
+    Class<?> c = cls;
+    while (c.isArray()) {
+      c = c.getComponentType();
+    }
+    while (c != null) {
+      if (!c.isPrimitive() && !Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+      c = c.getEnclosingClass();
+    }
+    return true;
+  }
+
+  private static ActionInvoker generate(Class<?> treeFactoryClass, List<Method> actions) {
+    ClassWriter cv = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+    cv.visit(
+      Opcodes.V1_8,
+      Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+      CLASS_NAME,
+      null,
+      Type.getInternalName(Object.class),
+      new String[] {Type.getInternalName(ActionInvoker.class)});
+
+    MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    mv = cv.visitMethod(
+      Opcodes.ACC_PUBLIC,
+      "invoke",
+      Type.getMethodDescriptor(Type.getType(Object.class), Type.INT_TYPE, Type.getType(Object.class), Type.getType(List.class)),
+      null,
+      null);
+    Label defaultLabel = new Label();
+    Label[] labels = new Label[actions.size()];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = new Label();
+    }
+    mv.visitVarInsn(Opcodes.ILOAD, 1);
+    mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+    for (int i = 0; i < labels.length; i++) {
+      Method action = actions.get(i);
+      Class<?> owner = action.getDeclaringClass();
+      mv.visitLabel(labels[i]);
+      mv.visitVarInsn(Opcodes.ALOAD, 2);
+      mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(owner));
+      Class<?>[] parameterTypes = action.getParameterTypes();
+      for (int j = 0; j < parameterTypes.length; j++) {
+        mv.visitVarInsn(Opcodes.ALOAD, 3);
+        mv.visitLdcInsn(j);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LIST, "get", "(I)Ljava/lang/Object;", true);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterTypes[j]));
+      }
+      mv.visitMethodInsn(
+        owner.isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+        Type.getInternalName(owner),
+        action.getName(),
+        Type.getMethodDescriptor(action),
+        owner.isInterface());
+      mv.visitInsn(Opcodes.ARETURN);
+    }
+    mv.visitLabel(defaultLabel);
+    String exception = Type.getInternalName(IllegalArgumentException.class);
+    mv.visitTypeInsn(Opcodes.NEW, exception);
+    mv.visitInsn(Opcodes.DUP);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, exception, "<init>", "()V", false);
+    mv.visitInsn(Opcodes.ATHROW);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    byte[] classBytes = cv.toByteArray();
+
+    try {
+      Class<?> cls = new ClassLoader(treeFactoryClass.getClassLoader()) {
+        public Class<?> defineClass() {
+          return defineClass(CLASS_NAME, classBytes, 0, classBytes.length);
+        }
+      }.defineClass();
+      return (ActionInvoker) cls.getConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalStateException("Unable to generate invoker of actions of " + treeFactoryClass.getName(), e);
+    }
+  }
+
+  private static class ReflectiveActionInvoker implements ActionInvoker {
+
+    private final Method[] actions;
+
+    ReflectiveActionInvoker(List<Method> actions) {
+      this.actions = actions.toArray(new Method[actions.size()]);
+    }
+
+    @Override
+    public Object invoke(int action, Object treeFactory, List<Object> arguments) {
+      return ReflectionUtils.invokeMethod(actions[action], treeFactory, arguments.toArray(new Object[0]));
+    }
+
+  }
+
+}
@@ -29,29 +29,48 @@ import java.util.Map;
 
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.CompiledGrammarSerializer;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
+import org.sonar.sslr.internal.vm.OneOrMoreExpression;
+import org.sonar.sslr.internal.vm.OptionalExpression;
 import org.sonar.sslr.internal.vm.ParsingExpression;
 import org.sonar.sslr.internal.vm.SequenceExpression;
+import org.sonar.sslr.internal.vm.ZeroOrMoreExpression;
 
 import javax.annotation.Nullable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Set;
 
 public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarBuilder<T>, NonterminalBuilder {
 
+  private static final byte RULE_KEY = 0;
+  private static final byte SYNTHETIC_RULE = 1;
+
+  private static final Map<String, Class> PRIMITIVE_TYPES = new HashMap<>();
+
+  static {
+    for (Class type : new Class[]{boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class}) {
+      PRIMITIVE_TYPES.put(type.getName(), type);
+    }
+  }
+
   private final LexerlessGrammarBuilder b;
 
   private final Set<GrammarRuleKey> mappedRuleKeys = new HashSet<>();
   private final Map<Method, GrammarRuleKey> methodToRuleKey = new HashMap<>();
 
-  private final Map<GrammarRuleKey, Method> actions = new HashMap<>();
-  private final Set<GrammarRuleKey> optionals = new HashSet<>();
-  private final Set<GrammarRuleKey> oneOrMores = new HashSet<>();
-  private final Set<GrammarRuleKey> zeroOrMores = new HashSet<>();
+  private final List<Method> actions = new ArrayList<>();
+  private final Map<GrammarRuleKey, Integer> actionIds = new HashMap<>();
 
   private Method buildingMethod = null;
   private GrammarRuleKey ruleKey = null;
@@ -61,6 +80,15 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     this.b = b;
   }
 
+  /**
+   * Creates interceptor, whose state should be restored by {@link #readGrammar(DataInput, ClassLoader)}.
+   *
+   * @since 1.24
+   */
+  public GrammarBuilderInterceptor() {
+    this.b = null;
+  }
+
   @Override
   public boolean intercept(Method method) {
     if (buildingMethod != null) {
@@ -91,6 +119,12 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     }
 
     ParsingExpression expression = pop();
+    if (expression instanceof SyntheticRuleExpression && ((SyntheticRuleExpression) expression).getKind() == SyntheticRuleExpression.Kind.ACTION) {
+      // action is performed for the node of this rule, so that there is no intermediate node
+      SyntheticRuleExpression action = (SyntheticRuleExpression) expression;
+      actionIds.put(ruleKey, action.getAction());
+      expression = action.getSubExpression();
+    }
     b.rule(ruleKey).is(expression);
 
     this.buildingMethod = null;
@@ -109,30 +143,21 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
   @Override
   public <U> Optional<U> optional(U method) {
     ParsingExpression expression = pop();
-    GrammarRuleKey grammarRuleKey = new DummyGrammarRuleKey("optional", expression);
-    optionals.add(grammarRuleKey);
-    b.rule(grammarRuleKey).is(b.optional(expression));
-    invokeRule(grammarRuleKey);
+    push(new SyntheticRuleExpression(SyntheticRuleExpression.Kind.OPTIONAL, -1, new OptionalExpression(expression), "optional(" + expression + ")"));
     return null;
   }
 
   @Override
   public <U> List<U> oneOrMore(U method) {
     ParsingExpression expression = pop();
-    GrammarRuleKey grammarRuleKey = new DummyGrammarRuleKey("oneOrMore", expression);
-    oneOrMores.add(grammarRuleKey);
-    b.rule(grammarRuleKey).is(b.oneOrMore(expression));
-    invokeRule(grammarRuleKey);
+    push(new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ONE_OR_MORE, -1, new OneOrMoreExpression(expression), "oneOrMore(" + expression + ")"));
     return null;
   }
 
   @Override
   public <U> Optional<List<U>> zeroOrMore(U method) {
     ParsingExpression expression = pop();
-    GrammarRuleKey grammarRuleKey = new DummyGrammarRuleKey("zeroOrMore", expression);
-    zeroOrMores.add(grammarRuleKey);
-    b.rule(grammarRuleKey).is(b.zeroOrMore(expression));
-    invokeRule(grammarRuleKey);
+    push(new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ZERO_OR_MORE, -1, new ZeroOrMoreExpression(expression), "zeroOrMore(" + expression + ")"));
     return null;
   }
 
@@ -154,11 +179,10 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
 
   public void addAction(Method method, int stackElements) {
     method.setAccessible(true);
-    GrammarRuleKey grammarRuleKey = new DummyGrammarRuleKey(method);
-    actions.put(grammarRuleKey, method);
+    int action = actions.size();
+    actions.add(method);
     ParsingExpression expression = stackElements == 1 ? pop() : new SequenceExpression(pop(stackElements));
-    b.rule(grammarRuleKey).is(expression);
-    invokeRule(grammarRuleKey);
+    push(new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ACTION, action, expression, describe(method)));
   }
 
   private ParsingExpression[] pop(int n) {
@@ -177,9 +201,31 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     expressionStack.push(expression);
   }
 
+  /**
+   * @param ruleKey {@link SyntheticRuleExpression} of an action, which is the matcher of nodes of this action in parse tree
+   * @return the action, or null if the given object is not an action;
+   * since 1.24 an action, which is the whole expression of a rule, is performed for nodes of this rule instead
+   * and is returned by {@link #actionIdForRuleKey(Object)}
+   */
   @Nullable
   public Method actionForRuleKey(Object ruleKey) {
-    return actions.get(ruleKey);
+    return isSyntheticRule(ruleKey, SyntheticRuleExpression.Kind.ACTION) ? actions.get(((SyntheticRuleExpression) ruleKey).getAction()) : null;
+  }
+
+  /**
+   * @return index of action in {@link #actions()}, or -1 if there is no action for the given rule key
+   * @since 1.24
+   */
+  public int actionIdForRuleKey(Object ruleKey) {
+    Integer actionId = actionIds.get(ruleKey);
+    return actionId == null ? -1 : actionId;
+  }
+
+  /**
+   * @since 1.24
+   */
+  public List<Method> actions() {
+    return Collections.unmodifiableList(actions);
   }
 
   @Nullable
@@ -191,59 +237,222 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     return mappedRuleKeys.contains(ruleKey);
   }
 
+  /**
+   * @param ruleKey since 1.24 {@link SyntheticRuleExpression}, which is the matcher of nodes of optional in parse tree
+   */
   public boolean isOptionalRule(Object ruleKey) {
-    return optionals.contains(ruleKey);
+    return isSyntheticRule(ruleKey, SyntheticRuleExpression.Kind.OPTIONAL);
   }
 
+  /**
+   * @param ruleKey since 1.24 {@link SyntheticRuleExpression}, which is the matcher of nodes of oneOrMore in parse tree
+   */
   public boolean isOneOrMoreRule(Object ruleKey) {
-    return oneOrMores.contains(ruleKey);
+    return isSyntheticRule(ruleKey, SyntheticRuleExpression.Kind.ONE_OR_MORE);
   }
 
+  /**
+   * @param ruleKey since 1.24 {@link SyntheticRuleExpression}, which is the matcher of nodes of zeroOrMore in parse tree
+   */
   public boolean isZeroOrMoreRule(Object ruleKey) {
-    return zeroOrMores.contains(ruleKey);
+    return isSyntheticRule(ruleKey, SyntheticRuleExpression.Kind.ZERO_OR_MORE);
   }
 
-  private static class DummyGrammarRuleKey implements GrammarRuleKey {
+  private static boolean isSyntheticRule(Object ruleKey, SyntheticRuleExpression.Kind kind) {
+    return ruleKey instanceof SyntheticRuleExpression && ((SyntheticRuleExpression) ruleKey).getKind() == kind;
+  }
+
+  /**
+   * Writes the given grammar, which was built by this interceptor, along with the mapping of its rules
+   * to the methods of the grammar and of the tree factory.
+   *
+   * @throws IllegalArgumentException if grammar uses rule keys, which are neither constants of enums nor created by this interceptor
+   * @since 1.24
+   */
+  public void writeGrammar(CompiledGrammar grammar, DataOutput out) throws IOException {
+    out.writeInt(actions.size());
+    for (Method action : actions) {
+      out.writeUTF(action.getDeclaringClass().getName());
+      out.writeUTF(action.getName());
+      Class[] parameterTypes = action.getParameterTypes();
+      out.writeInt(parameterTypes.length);
+      for (Class parameterType : parameterTypes) {
+        out.writeUTF(parameterType.getName());
+      }
+    }
 
-    private final Method method;
-    private final String operator;
-    private final ParsingExpression expression;
+    CompiledGrammarSerializer.write(grammar, out, new RuleKeyCodec());
 
-    public DummyGrammarRuleKey(Method method) {
-      this.method = method;
-      this.operator = null;
-      this.expression = null;
+    Set<GrammarRuleKey> enumRuleKeys = new HashSet<>();
+    for (GrammarRuleKey key : mappedRuleKeys) {
+      addEnumRuleKey(enumRuleKeys, key);
+    }
+    for (GrammarRuleKey key : actionIds.keySet()) {
+      addEnumRuleKey(enumRuleKeys, key);
+    }
+    out.writeInt(enumRuleKeys.size());
+    for (GrammarRuleKey key : enumRuleKeys) {
+      out.writeUTF(((Enum) key).getDeclaringClass().getName());
+      out.writeUTF(((Enum) key).name());
+      out.writeBoolean(mappedRuleKeys.contains(key));
+      out.writeInt(actionIdForRuleKey(key));
     }
+  }
 
-    public DummyGrammarRuleKey(String operator, ParsingExpression expression) {
-      this.method = null;
-      this.operator = operator;
-      this.expression = expression;
+  private static void addEnumRuleKey(Set<GrammarRuleKey> enumRuleKeys, GrammarRuleKey key) {
+    if (key instanceof Enum) {
+      enumRuleKeys.add(key);
+    } else if (!(key instanceof DummyGrammarRuleKey)) {
+      throw new IllegalArgumentException("Unable to serialize rule key " + key);
     }
+  }
 
-    @Override
-    public String toString() {
-      if (operator != null) {
-        return operator + "(" + expression + ")";
+  /**
+   * Restores state of this interceptor from data written by {@link #writeGrammar(CompiledGrammar, DataOutput)}.
+   *
+   * @param classLoader used to resolve classes of the tree factory and of the rule keys
+   * @return restored grammar
+   * @since 1.24
+   */
+  public CompiledGrammar readGrammar(DataInput in, ClassLoader classLoader) throws IOException {
+    int actionsCount = in.readInt();
+    for (int i = 0; i < actionsCount; i++) {
+      Class declaringClass = resolveClass(in.readUTF(), classLoader);
+      String name = in.readUTF();
+      Class[] parameterTypes = new Class[in.readInt()];
+      for (int j = 0; j < parameterTypes.length; j++) {
+        parameterTypes[j] = resolveClass(in.readUTF(), classLoader);
       }
+      Method action;
+      try {
+        action = declaringClass.getDeclaredMethod(name, parameterTypes);
+      } catch (NoSuchMethodException e) {
+        throw new IOException("Unable to resolve action " + declaringClass.getName() + "." + name, e);
+      }
+      action.setAccessible(true);
+      actions.add(action);
+    }
+
+    CompiledGrammar grammar = CompiledGrammarSerializer.read(in, classLoader, new RuleKeyCodec());
+
+    int enumRuleKeysCount = in.readInt();
+    for (int i = 0; i < enumRuleKeysCount; i++) {
+      Class enumClass = resolveClass(in.readUTF(), classLoader);
+      String name = in.readUTF();
+      GrammarRuleKey key;
+      try {
+        key = (GrammarRuleKey) Enum.valueOf(enumClass, name);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Unable to resolve " + enumClass.getName() + "." + name, e);
+      }
+      restoreRuleKey(key, in.readBoolean(), in.readInt());
+    }
+    return grammar;
+  }
+
+  private void restoreRuleKey(GrammarRuleKey key, boolean mapped, int action) {
+    if (mapped) {
+      mappedRuleKeys.add(key);
+    }
+    if (action != -1) {
+      actionIds.put(key, action);
+    }
+  }
+
+  private static Class resolveClass(String name, ClassLoader classLoader) throws IOException {
+    Class primitiveType = PRIMITIVE_TYPES.get(name);
+    if (primitiveType != null) {
+      return primitiveType;
+    }
+    try {
+      return Class.forName(name, false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to resolve class " + name, e);
+    }
+  }
 
-      StringBuilder sb = new StringBuilder();
-      sb.append("f.");
-      sb.append(method.getName());
-      sb.append('(');
+  private class RuleKeyCodec implements CompiledGrammarSerializer.ObjectCodec {
+
+    @Override
+    public boolean canWrite(Object object) {
+      return object instanceof DummyGrammarRuleKey || object instanceof SyntheticRuleExpression;
+    }
 
-      Class[] parameterTypes = method.getParameterTypes();
-      for (int i = 0; i < parameterTypes.length - 1; i++) {
-        sb.append(parameterTypes[i].getSimpleName());
-        sb.append(", ");
+    @Override
+    public void write(DataOutput out, Object object) throws IOException {
+      if (object instanceof SyntheticRuleExpression) {
+        SyntheticRuleExpression expression = (SyntheticRuleExpression) object;
+        out.writeByte(SYNTHETIC_RULE);
+        out.writeByte(expression.getKind().ordinal());
+        out.writeInt(expression.getAction());
+      } else {
+        out.writeByte(RULE_KEY);
+        out.writeBoolean(mappedRuleKeys.contains(object));
+        out.writeInt(actionIdForRuleKey(object));
       }
-      if (parameterTypes.length > 0) {
-        sb.append(parameterTypes[parameterTypes.length - 1].getSimpleName());
+      out.writeUTF(object.toString());
+    }
+
+    @Override
+    public Object read(DataInput in) throws IOException {
+      byte tag = in.readByte();
+      if (tag == SYNTHETIC_RULE) {
+        int kind = in.readByte();
+        if (kind < 0 || kind >= SyntheticRuleExpression.Kind.values().length) {
+          throw new IOException("Unknown kind of synthetic rule: " + kind);
+        }
+        int action = in.readInt();
+        return new SyntheticRuleExpression(SyntheticRuleExpression.Kind.values()[kind], action, null, in.readUTF());
+      } else if (tag == RULE_KEY) {
+        boolean mapped = in.readBoolean();
+        int action = in.readInt();
+        DummyGrammarRuleKey ruleKey = new DummyGrammarRuleKey(in.readUTF());
+        restoreRuleKey(ruleKey, mapped, action);
+        return ruleKey;
       }
+      throw new IOException("Unknown tag: " + tag);
+    }
+
+  }
 
-      sb.append(')');
+  private static String describe(Method method) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("f.");
+    sb.append(method.getName());
+    sb.append('(');
 
-      return sb.toString();
+    Class[] parameterTypes = method.getParameterTypes();
+    for (int i = 0; i < parameterTypes.length - 1; i++) {
+      sb.append(parameterTypes[i].getSimpleName());
+      sb.append(", ");
+    }
+    if (parameterTypes.length > 0) {
+      sb.append(parameterTypes[parameterTypes.length - 1].getSimpleName());
+    }
+
+    sb.append(')');
+
+    return sb.toString();
+  }
+
+  private static class DummyGrammarRuleKey implements GrammarRuleKey {
+
+    private final String description;
+
+    public DummyGrammarRuleKey(Method method) {
+      this.description = describe(method);
+    }
+
+    /**
+     * Rule key restored by {@link #readGrammar(DataInput, ClassLoader)}.
+     */
+    public DummyGrammarRuleKey(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public String toString() {
+      return description;
     }
 
   }
@@ -33,7 +33,6 @@ import org.sonar.sslr.internal.matchers.ParseNode;
 import org.sonar.sslr.internal.vm.TokenExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,6 +42,7 @@ public class SyntaxTreeCreator<T> {
   private final Object treeFactory;
   private final GrammarBuilderInterceptor mapping;
   private final NodeBuilder nodeBuilder;
+  private final ActionInvoker actionInvoker;
 
   private final Token.Builder tokenBuilder = Token.builder();
   private final List<Trivia> trivias = new ArrayList<>();
@@ -53,6 +53,7 @@ public class SyntaxTreeCreator<T> {
     this.treeFactory = treeFactory;
     this.mapping = mapping;
     this.nodeBuilder = nodeBuilder;
+    this.actionInvoker = ActionInvokerGenerator.create(treeFactory.getClass(), mapping.actions());
   }
 
   public T create(ParseNode node, Input input) {
@@ -72,45 +73,68 @@ public class SyntaxTreeCreator<T> {
   private Object visitNonTerminal(ParseNode node) {
     MutableParsingRule rule = (MutableParsingRule) node.getMatcher();
     GrammarRuleKey ruleKey = rule.getRuleKey();
-    Method method = mapping.actionForRuleKey(ruleKey);
+    int action = mapping.actionIdForRuleKey(ruleKey);
 
-    Object result;
-
-    if (mapping.hasMethodForRuleKey(ruleKey)) {
-
-      // TODO Drop useless intermediate nodes
-      if (node.getChildren().size() != 1) {
+    if (action != -1) {
+      return actionInvoker.invoke(action, treeFactory, visitChildren(node));
+    } else if (mapping.hasMethodForRuleKey(ruleKey)) {
+      List<Object> convertedChildren = visitChildren(node);
+      if (convertedChildren.size() != 1) {
         throw new IllegalStateException();
       }
-      result = visit(node.getChildren().get(0));
+      return convertedChildren.get(0);
+    } else {
+      return nodeBuilder.createNonTerminal(ruleKey, rule, visitChildren(node), node.getStartIndex(), node.getEndIndex());
+    }
+  }
 
-    } else if (mapping.isOptionalRule(ruleKey)) {
+  private Object visitSyntheticRule(SyntheticRuleExpression expression, List<Object> convertedChildren) {
+    switch (expression.getKind()) {
+      case OPTIONAL:
+        if (convertedChildren.size() > 1) {
+          throw new IllegalStateException();
+        }
+        return convertedChildren.isEmpty() ? Optional.absent() : Optional.of(convertedChildren.get(0));
+      case ONE_OR_MORE:
+        return convertedChildren;
+      case ZERO_OR_MORE:
+        return convertedChildren.isEmpty() ? Optional.absent() : Optional.of(convertedChildren);
+      case ACTION:
+        return actionInvoker.invoke(expression.getAction(), treeFactory, convertedChildren);
+      default:
+        throw new IllegalStateException("Unexpected kind: " + expression.getKind());
+    }
+  }
 
-      if (node.getChildren().size() > 1) {
-        throw new IllegalStateException();
-      }
-      if (node.getChildren().isEmpty()) {
-        result = Optional.absent();
-      } else {
-        result = Optional.of(visit(node.getChildren().get(0)));
-      }
+  private List<Object> visitChildren(ParseNode node) {
+    List<ParseNode> children = node.getChildren();
+    List<Object> convertedChildren = new ArrayList<>(children.size());
+    int i = 0;
+    while (i < children.size()) {
+      i = visitChild(children, i, convertedChildren);
+    }
+    return convertedChildren;
+  }
 
-    } else {
-      List<Object> convertedChildren = new ArrayList<>();
-      for (ParseNode child : node.getChildren()) {
-        convertedChildren.add(visit(child));
-      }
-      if (mapping.isOneOrMoreRule(ruleKey)) {
-        result = convertedChildren;
-      } else if (mapping.isZeroOrMoreRule(ruleKey)) {
-        result = convertedChildren.isEmpty() ? Optional.absent() : Optional.of(convertedChildren);
-      } else if (method == null) {
-        result = nodeBuilder.createNonTerminal(ruleKey, rule, convertedChildren, node.getStartIndex(), node.getEndIndex());
-      } else {
-        result = ReflectionUtils.invokeMethod(method, treeFactory, convertedChildren.toArray(new Object[0]));
-      }
+  /**
+   * Converts the node with the given index, or the nodes of a {@link SyntheticRuleExpression} if this node is its first mark.
+   *
+   * @return index of the next node to convert
+   */
+  private int visitChild(List<ParseNode> children, int index, List<Object> convertedChildren) {
+    ParseNode child = children.get(index);
+    if (!(child.getMatcher() instanceof SyntheticRuleExpression)) {
+      convertedChildren.add(visit(child));
+      return index + 1;
     }
-    return result;
+    SyntheticRuleExpression expression = (SyntheticRuleExpression) child.getMatcher();
+    List<Object> convertedNodes = new ArrayList<>();
+    int i = index + 1;
+    while (children.get(i).getMatcher() != expression) {
+      i = visitChild(children, i, convertedNodes);
+    }
+    convertedChildren.add(visitSyntheticRule(expression, convertedNodes));
+    return i + 1;
   }
 
   private Object visitTerminal(ParseNode node) {
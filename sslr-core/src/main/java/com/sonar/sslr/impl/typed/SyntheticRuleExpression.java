@@ -0,0 +1,100 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.ParsingExpression;
+
+import javax.annotation.Nullable;
+
+/**
+ * Expression created by {@link GrammarBuilderInterceptor} for an invocation of an action or of
+ * {@link com.sonar.sslr.api.typed.GrammarBuilder#optional(Object) optional},
+ * {@link com.sonar.sslr.api.typed.GrammarBuilder#oneOrMore(Object) oneOrMore},
+ * {@link com.sonar.sslr.api.typed.GrammarBuilder#zeroOrMore(Object) zeroOrMore}.
+ * <p>
+ * Unlike a rule, it is compiled inline at the place of invocation without a call frame and is never memoized.
+ * Instead of a node with children, it produces two empty nodes around the nodes of its sub-expression
+ * among the sub-nodes of the enclosing rule, which allow {@link SyntaxTreeCreator} to find them.
+ *
+ * @since 1.24
+ */
+public class SyntheticRuleExpression implements Matcher, ParsingExpression {
+
+  public enum Kind {
+    ACTION, OPTIONAL, ONE_OR_MORE, ZERO_OR_MORE
+  }
+
+  private final Kind kind;
+  private final int action;
+  @Nullable
+  private final ParsingExpression subExpression;
+  private final String description;
+
+  /**
+   * @param action index of action, or -1 if kind is not {@link Kind#ACTION}
+   * @param subExpression null for an expression restored by {@link GrammarBuilderInterceptor#readGrammar}, which can't be compiled
+   */
+  public SyntheticRuleExpression(Kind kind, int action, @Nullable ParsingExpression subExpression, String description) {
+    this.kind = kind;
+    this.action = action;
+    this.subExpression = subExpression;
+    this.description = description;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public int getAction() {
+    return action;
+  }
+
+  @Nullable
+  public ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
+  /**
+   * Compiles this expression into a sequence of instructions:
+   * <pre>
+   * Mark this
+   * subExpression
+   * Mark this
+   * </pre>
+   */
+  @Override
+  public Instruction[] compile(CompilationHandler compiler) {
+    Instruction[] instr = compiler.compile(subExpression);
+    Instruction[] result = new Instruction[instr.length + 2];
+    result[0] = Instruction.mark(this);
+    System.arraycopy(instr, 0, result, 1, instr.length);
+    result[instr.length + 1] = Instruction.mark(this);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return description;
+  }
+
+}
@@ -23,9 +23,11 @@ import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.api.Trivia.TriviaKind;
 import org.sonar.sslr.internal.grammar.MutableGrammar;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.vm.CharacterExpression;
 import org.sonar.sslr.internal.vm.EndOfInputExpression;
 import org.sonar.sslr.internal.vm.ParsingExpression;
 import org.sonar.sslr.internal.vm.PatternExpression;
+import org.sonar.sslr.internal.vm.RecoverExpression;
 import org.sonar.sslr.internal.vm.StringExpression;
 import org.sonar.sslr.internal.vm.TokenExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
@@ -104,7 +106,7 @@ public class LexerlessGrammarBuilder extends GrammarBuilder {
    * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
    */
   public Object regexp(String regexp) {
-    return new PatternExpression(regexp);
+    return PatternExpression.of(regexp);
   }
 
   /**
@@ -145,6 +147,22 @@ public class LexerlessGrammarBuilder extends GrammarBuilder {
     return new TriviaExpression(TriviaKind.SKIPPED_TEXT, convertToExpression(e));
   }
 
+  /**
+   * Creates parsing expression - "recover".
+   * This expression behaves like {@code e}, unless parsing is done with recovery by
+   * {@link org.sonar.sslr.parser.ParseRunner#parseWithRecovery(char[])}, in which case on failure of {@code e} it records
+   * an error and matches "skipped trivia" up to and including the next match of {@code syncExpression} or up to the end of input.
+   * It fails when there is nothing to skip, e.g. when {@code syncExpression} is a predicate, which succeeds at the point of failure.
+   *
+   * @param e  sub-expression
+   * @param syncExpression  expression, which marks the end of text to skip
+   * @throws IllegalArgumentException if any of given arguments is not a parsing expression
+   * @since 1.24
+   */
+  public Object recover(Object e, Object syncExpression) {
+    return new RecoverExpression(convertToExpression(e), convertToExpression(syncExpression));
+  }
+
   @Override
   protected ParsingExpression convertToExpression(Object e) {
     Objects.requireNonNull(e, "Parsing expression can't be null");
@@ -156,9 +174,9 @@ public class LexerlessGrammarBuilder extends GrammarBuilder {
       rule(ruleKey);
       result = definitions.get(ruleKey);
     } else if (e instanceof String) {
-      result = new StringExpression((String) e);
+      result = StringExpression.of((String) e);
     } else if (e instanceof Character) {
-      result = new StringExpression(((Character) e).toString());
+      result = new CharacterExpression((Character) e);
     } else {
       throw new IllegalArgumentException("Incorrect type of parsing expression: " + e.getClass().toString());
     }
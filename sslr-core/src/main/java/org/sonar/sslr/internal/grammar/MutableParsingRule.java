@@ -116,6 +116,20 @@ public class MutableParsingRule implements CompilableGrammarRule, Matcher, Rule,
     astNodeSkippingPolicy = SkipFromAstIfOnlyOneChild.INSTANCE;
   }
 
+  /**
+   * For internal use only.
+   */
+  public AstNodeSkippingPolicy getAstNodeSkippingPolicy() {
+    return astNodeSkippingPolicy;
+  }
+
+  /**
+   * For internal use only.
+   */
+  public void setAstNodeSkippingPolicy(AstNodeSkippingPolicy astNodeSkippingPolicy) {
+    this.astNodeSkippingPolicy = astNodeSkippingPolicy;
+  }
+
   @Override
   public boolean hasToBeSkippedFromAst(AstNode node) {
     return astNodeSkippingPolicy.hasToBeSkippedFromAst(node);
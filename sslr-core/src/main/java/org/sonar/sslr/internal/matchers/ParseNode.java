@@ -32,22 +32,43 @@ public class ParseNode {
   private final int endIndex;
   private final List<ParseNode> children;
   private final Matcher matcher;
+  private final int examinedIndex;
 
   public ParseNode(int startIndex, int endIndex, List<ParseNode> children, Matcher matcher) {
+    this(startIndex, endIndex, children, matcher, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param examinedIndex see {@link #getExaminedIndex()}
+   * @since 1.24
+   */
+  public ParseNode(int startIndex, int endIndex, List<ParseNode> children, Matcher matcher, int examinedIndex) {
     this.startIndex = startIndex;
     this.endIndex = endIndex;
     this.children = new ArrayList<>(children);
     this.matcher = matcher;
+    this.examinedIndex = examinedIndex;
   }
 
   /**
    * Leaf node.
    */
   public ParseNode(int startIndex, int endIndex, Matcher matcher) {
+    this(startIndex, endIndex, matcher, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Leaf node.
+   *
+   * @param examinedIndex see {@link #getExaminedIndex()}
+   * @since 1.24
+   */
+  public ParseNode(int startIndex, int endIndex, Matcher matcher, int examinedIndex) {
     this.startIndex = startIndex;
     this.endIndex = endIndex;
     this.matcher = matcher;
     this.children = Collections.emptyList();
+    this.examinedIndex = examinedIndex;
   }
 
   public int getStartIndex() {
@@ -61,6 +82,17 @@ public class ParseNode {
     return endIndex;
   }
 
+  /**
+   * Upper bound of indexes of elements of input examined in order to create this node, including the ones examined by lookahead.
+   * Element with this index is not included, and length of input plus one means that end of input was examined.
+   * {@link Integer#MAX_VALUE} means that this bound is unknown.
+   *
+   * @since 1.24
+   */
+  public int getExaminedIndex() {
+    return examinedIndex;
+  }
+
   public List<ParseNode> getChildren() {
     return children;
   }
@@ -0,0 +1,231 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Policy of memoization of rules, which adapts to the parsed input and is shared by all parsings done with the same {@link CompiledGrammar}
+ * (see {@link CompiledGrammar#enableAdaptiveMemoization()}).
+ * <p>
+ * For each rule which can be memoized, i.e. {@link MemoParsingExpression}, machine counts matches and re-entries - invocations
+ * at the position where this rule most recently matched, including the ones whose result was taken from memo.
+ * Memoization of a rule is enabled when it is re-entered at least once per {@link #MATCHES_PER_REENTRY} matches,
+ * so that re-parsings which it avoids pay for the writes into memo on every match, and disabled otherwise.
+ * Decision is revised during parsing every {@link #WINDOW} matches of a rule, and counts of each parsing are accumulated at its end,
+ * so that next parsings start with the decisions taken so far.
+ * Until then rules are memoized as defined by {@link MemoParsingExpression#shouldMemoize()}.
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @since 1.24
+ */
+public final class AdaptiveMemoization {
+
+  static final int WINDOW = 32;
+  static final int MATCHES_PER_REENTRY = 4;
+
+  // indexed by address of the first instruction of rule, null for addresses which are not such
+  private final MemoParsingExpression[] rules;
+  private final long[] matches;
+  private final long[] reentries;
+  private boolean[] decisions;
+  private long parsings;
+
+  AdaptiveMemoization(Instruction[] instructions, Matcher rootMatcher, int rootRuleOffset) {
+    rules = new MemoParsingExpression[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] instanceof Instruction.CallInstruction) {
+        Instruction.CallInstruction call = (Instruction.CallInstruction) instructions[i];
+        register(i + call.getOffset(), call.getMatcher());
+      }
+    }
+    register(rootRuleOffset, rootMatcher);
+    matches = new long[instructions.length];
+    reentries = new long[instructions.length];
+    boolean[] initialDecisions = new boolean[instructions.length];
+    for (int i = 0; i < rules.length; i++) {
+      initialDecisions[i] = rules[i] != null && rules[i].shouldMemoize();
+    }
+    decisions = initialDecisions;
+  }
+
+  private void register(int address, Matcher matcher) {
+    if (matcher instanceof MemoParsingExpression) {
+      rules[address] = (MemoParsingExpression) matcher;
+    }
+  }
+
+  synchronized Session newSession() {
+    return new Session(this, decisions.clone(), matches.clone(), reentries.clone());
+  }
+
+  private synchronized void accumulate(int[] sessionMatches, int[] sessionReentries) {
+    parsings++;
+    boolean[] newDecisions = decisions.clone();
+    for (int i = 0; i < rules.length; i++) {
+      if (sessionMatches[i] > 0 || sessionReentries[i] > 0) {
+        matches[i] += sessionMatches[i];
+        reentries[i] += sessionReentries[i];
+        if (matches[i] >= WINDOW) {
+          newDecisions[i] = shouldMemoize(matches[i], reentries[i]);
+        }
+      }
+    }
+    decisions = newDecisions;
+  }
+
+  private static boolean shouldMemoize(long matches, long reentries) {
+    return reentries * MATCHES_PER_REENTRY >= matches;
+  }
+
+  /**
+   * @return number of parsings, whose counts were accumulated
+   */
+  public synchronized long getParsings() {
+    return parsings;
+  }
+
+  /**
+   * @return current decisions for all rules which can be memoized, in order of their addresses in grammar
+   */
+  public synchronized List<RuleStatistics> getStatistics() {
+    List<RuleStatistics> result = new ArrayList<>();
+    for (int i = 0; i < rules.length; i++) {
+      if (rules[i] != null) {
+        result.add(new RuleStatistics(rules[i], matches[i], reentries[i], decisions[i]));
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Statistics of a rule accumulated over all parsings together with the decision taken for it.
+   */
+  public static final class RuleStatistics {
+
+    private final MemoParsingExpression rule;
+    private final long matches;
+    private final long reentries;
+    private final boolean memoized;
+
+    private RuleStatistics(MemoParsingExpression rule, long matches, long reentries, boolean memoized) {
+      this.rule = rule;
+      this.matches = matches;
+      this.reentries = reentries;
+      this.memoized = memoized;
+    }
+
+    public MemoParsingExpression getRule() {
+      return rule;
+    }
+
+    public long getMatches() {
+      return matches;
+    }
+
+    public long getReentries() {
+      return reentries;
+    }
+
+    public boolean isMemoized() {
+      return memoized;
+    }
+
+    /**
+     * @return true if decision differs from {@link MemoParsingExpression#shouldMemoize()}
+     */
+    public boolean isOverridden() {
+      return memoized != rule.shouldMemoize();
+    }
+
+    @Override
+    public String toString() {
+      return rule + (memoized ? " memoized" : " not memoized") + " (" + reentries + " re-entries / " + matches + " matches)";
+    }
+
+  }
+
+  /**
+   * State of policy for a single parsing.
+   */
+  static final class Session {
+
+    private final AdaptiveMemoization policy;
+    private final boolean[] memoize;
+    // counts accumulated by policy before this parsing
+    private final long[] previousMatches;
+    private final long[] previousReentries;
+    private final int[] matches;
+    private final int[] reentries;
+    private final int[] lastMatchIndex;
+
+    private Session(AdaptiveMemoization policy, boolean[] memoize, long[] previousMatches, long[] previousReentries) {
+      this.policy = policy;
+      this.memoize = memoize;
+      this.previousMatches = previousMatches;
+      this.previousReentries = previousReentries;
+      this.matches = new int[memoize.length];
+      this.reentries = new int[memoize.length];
+      this.lastMatchIndex = new int[memoize.length];
+      Arrays.fill(lastMatchIndex, -1);
+    }
+
+    void onCall(int address, int index) {
+      if (lastMatchIndex[address] == index) {
+        reentries[address]++;
+      }
+    }
+
+    void onMemoHit(int address) {
+      reentries[address]++;
+    }
+
+    boolean isMemoized(int address) {
+      return memoize[address];
+    }
+
+    /**
+     * @return true if match should be memoized
+     */
+    boolean onMatch(int address, int startIndex) {
+      if (policy.rules[address] == null) {
+        return false;
+      }
+      lastMatchIndex[address] = startIndex;
+      int count = ++matches[address];
+      if (count % WINDOW == 0) {
+        memoize[address] = shouldMemoize(previousMatches[address] + count, previousReentries[address] + reentries[address]);
+      }
+      return memoize[address];
+    }
+
+    void finish() {
+      policy.accumulate(matches, reentries);
+    }
+
+  }
+
+}
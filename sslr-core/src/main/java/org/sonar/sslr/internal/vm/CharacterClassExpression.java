@@ -0,0 +1,242 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Specialization of {@link PatternExpression} for regular expressions, which consist of a single character or a class of characters
+ * without negation, optionally followed by a greedy or possessive quantifier {@code *} or {@code +},
+ * for example {@code "[ \\t]*+"} or {@code "[a-z]"}.
+ * Characters of class are stored as a bitmap, which is checked against input of machine directly.
+ *
+ * @since 1.24
+ */
+public final class CharacterClassExpression extends PatternExpression {
+
+  // bit with number c is set when character c belongs to class
+  private final long[] bitmap;
+  private final boolean repeated;
+  private final boolean emptyAllowed;
+
+  private CharacterClassExpression(String regexp, long[] bitmap, boolean repeated, boolean emptyAllowed) {
+    super(regexp);
+    this.bitmap = bitmap;
+    this.repeated = repeated;
+    this.emptyAllowed = emptyAllowed;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    char[] input = machine.getInput();
+    int start = machine.getIndex();
+    int end = start;
+    int limit = repeated ? input.length : Math.min(input.length, start + 1);
+    while (end < limit && contains(input[end])) {
+      end++;
+    }
+    int length = end - start;
+    // character after the last matched one was examined, unless at most one character was expected
+    machine.markExamined(repeated ? length : 0);
+    if (length == 0 && !emptyAllowed) {
+      machine.backtrack();
+      return;
+    }
+    machine.createLeafNode(this, length);
+    machine.jump(1);
+  }
+
+  private boolean contains(char c) {
+    int i = c >>> 6;
+    return i < bitmap.length && (bitmap[i] & (1L << c)) != 0;
+  }
+
+  /**
+   * @return expression for the given regular expression, or null if it is not of the supported form
+   */
+  @Nullable
+  public static CharacterClassExpression parse(String regexp) {
+    return new Parser(regexp).parse();
+  }
+
+  private static final class Parser {
+
+    private static final String WHITESPACES = " \t\n\u000B\f\r";
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final String regexp;
+    private int position;
+    private long[] bitmap = new long[2];
+
+    private Parser(String regexp) {
+      this.regexp = regexp;
+    }
+
+    @Nullable
+    private CharacterClassExpression parse() {
+      if (atEnd() || !atom()) {
+        return null;
+      }
+      boolean repeated = false;
+      boolean emptyAllowed = false;
+      if (!atEnd() && (current() == '*' || current() == '+')) {
+        repeated = true;
+        emptyAllowed = current() == '*';
+        position++;
+        if (!atEnd() && current() == '+') {
+          // possessive quantifier is equivalent to greedy one for a single class
+          position++;
+        }
+      }
+      return atEnd() ? new CharacterClassExpression(regexp, bitmap, repeated, emptyAllowed) : null;
+    }
+
+    private boolean atom() {
+      char c = current();
+      position++;
+      if (c == '[') {
+        return characterClass();
+      } else if (c == '\\') {
+        return escape();
+      } else if (META_CHARACTERS.indexOf(c) == -1) {
+        return add(c, c);
+      }
+      return false;
+    }
+
+    private boolean characterClass() {
+      if (atEnd() || current() == '^' || current() == ']') {
+        return false;
+      }
+      while (!atEnd() && current() != ']') {
+        if (!classItem()) {
+          return false;
+        }
+      }
+      if (atEnd()) {
+        return false;
+      }
+      position++;
+      return true;
+    }
+
+    private boolean classItem() {
+      char c = current();
+      position++;
+      if (c == '[' || c == '&') {
+        // nested classes, unions and intersections
+        return false;
+      } else if (c == '\\') {
+        if (atEnd()) {
+          return false;
+        }
+        int escaped = escapedCharacter(current());
+        if (escaped == -1) {
+          return escape();
+        }
+        position++;
+        return range((char) escaped);
+      }
+      return range(c);
+    }
+
+    private boolean range(char from) {
+      if (position + 1 < regexp.length() && current() == '-' && regexp.charAt(position + 1) != ']') {
+        position++;
+        char to = current();
+        position++;
+        if (to == '\\') {
+          if (atEnd() || escapedCharacter(current()) == -1) {
+            return false;
+          }
+          to = (char) escapedCharacter(current());
+          position++;
+        } else if (to == '[' || to == '&') {
+          return false;
+        }
+        return from <= to && add(from, to);
+      }
+      return add(from, from);
+    }
+
+    private boolean escape() {
+      if (atEnd()) {
+        return false;
+      }
+      char c = current();
+      position++;
+      if (c == 's') {
+        for (int i = 0; i < WHITESPACES.length(); i++) {
+          add(WHITESPACES.charAt(i), WHITESPACES.charAt(i));
+        }
+        return true;
+      } else if (c == 'd') {
+        return add('0', '9');
+      }
+      int escaped = escapedCharacter(c);
+      return escaped != -1 && add((char) escaped, (char) escaped);
+    }
+
+    /**
+     * @return character denoted by escape sequence with the given character, or -1 if it is not a single character
+     */
+    private static int escapedCharacter(char c) {
+      switch (c) {
+        case 't':
+          return '\t';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 'f':
+          return '\f';
+        default:
+          // escaped non-alphabetic characters denote themselves
+          return c < 128 && !Character.isLetterOrDigit(c) ? c : -1;
+      }
+    }
+
+    private boolean add(char from, char to) {
+      if (from <= Character.MAX_SURROGATE && to >= Character.MIN_SURROGATE) {
+        // regular expressions match surrogate pairs as a whole
+        return false;
+      }
+      int size = (to >>> 6) + 1;
+      if (size > bitmap.length) {
+        bitmap = Arrays.copyOf(bitmap, size);
+      }
+      for (int c = from; c <= to; c++) {
+        bitmap[c >>> 6] |= 1L << c;
+      }
+      return true;
+    }
+
+    private char current() {
+      return regexp.charAt(position);
+    }
+
+    private boolean atEnd() {
+      return position >= regexp.length();
+    }
+
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+/**
+ * Specialization of {@link StringExpression} for a string of a single character, which reads input of machine directly.
+ *
+ * @since 1.24
+ */
+public final class CharacterExpression extends StringExpression {
+
+  private final char character;
+
+  public CharacterExpression(char character) {
+    super(String.valueOf(character));
+    this.character = character;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    char[] input = machine.getInput();
+    int index = machine.getIndex();
+    machine.markExamined(0);
+    if (index < input.length && input[index] == character) {
+      machine.createLeafNode(this, 1);
+      machine.jump(1);
+    } else {
+      machine.backtrack();
+    }
+  }
+
+}
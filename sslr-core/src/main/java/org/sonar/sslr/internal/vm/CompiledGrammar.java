@@ -22,6 +22,7 @@ package org.sonar.sslr.internal.vm;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.internal.matchers.Matcher;
 
+import javax.annotation.Nullable;
 import java.util.Map;
 
 public class CompiledGrammar {
@@ -30,6 +31,7 @@ public class CompiledGrammar {
   private final Instruction[] instructions;
   private final GrammarRuleKey rootRuleKey;
   private final int rootRuleOffset;
+  private volatile AdaptiveMemoization adaptiveMemoization;
 
   public CompiledGrammar(Instruction[] instructions, Map<GrammarRuleKey, CompilableGrammarRule> rules, GrammarRuleKey rootRuleKey, int rootRuleOffset) {
     this.instructions = instructions;
@@ -54,4 +56,26 @@ public class CompiledGrammar {
     return rootRuleOffset;
   }
 
+  /**
+   * Enables adaptive memoization for all subsequent parsings with this grammar, unless already enabled.
+   *
+   * @return policy of memoization, which provides decisions taken for rules
+   * @since 1.24
+   */
+  public synchronized AdaptiveMemoization enableAdaptiveMemoization() {
+    if (adaptiveMemoization == null) {
+      adaptiveMemoization = new AdaptiveMemoization(instructions, getMatcher(rootRuleKey), rootRuleOffset);
+    }
+    return adaptiveMemoization;
+  }
+
+  /**
+   * @return null if adaptive memoization is not enabled
+   * @since 1.24
+   */
+  @Nullable
+  public AdaptiveMemoization getAdaptiveMemoization() {
+    return adaptiveMemoization;
+  }
+
 }
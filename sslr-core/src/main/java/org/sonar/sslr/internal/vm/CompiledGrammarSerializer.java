@@ -0,0 +1,427 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.AstNodeSkippingPolicy;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia.TriviaKind;
+import com.sonar.sslr.impl.ast.AlwaysSkipFromAst;
+import com.sonar.sslr.impl.ast.NeverSkipFromAst;
+import com.sonar.sslr.impl.ast.SkipFromAstIfOnlyOneChild;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of {@link CompiledGrammar}, which allows to skip construction and compilation of grammar.
+ * <p>
+ * Format consists of a header, followed by the list of instructions, each one being represented by an opcode and operands,
+ * and finally by the root rule and its offset.
+ * Objects referenced by instructions (matchers, rule keys, token types and their classes) are written on first occurrence and then
+ * referenced by their position, so that identity of matchers is preserved, which is required for memoization.
+ * Rule keys and token types must be constants of enums, unless an {@link ObjectCodec} is provided for them.
+ */
+public final class CompiledGrammarSerializer {
+
+  private static final int MAGIC = 0x53534C52;
+  private static final int VERSION = 3;
+
+  private static final byte JUMP = 1;
+  private static final byte CALL = 2;
+  private static final byte CHOICE = 3;
+  private static final byte PREDICATE_CHOICE = 4;
+  private static final byte COMMIT = 5;
+  private static final byte COMMIT_VERIFY = 6;
+  private static final byte BACK_COMMIT = 7;
+  private static final byte RET = 8;
+  private static final byte BACKTRACK = 9;
+  private static final byte END = 10;
+  private static final byte FAIL_TWICE = 11;
+  private static final byte IGNORE_ERRORS = 12;
+  private static final byte STRING = 13;
+  private static final byte PATTERN = 14;
+  private static final byte END_OF_INPUT = 15;
+  private static final byte NOTHING = 16;
+  private static final byte RECOVER_BEGIN = 17;
+  private static final byte RECOVER = 18;
+  private static final byte RECOVER_END = 19;
+  private static final byte NON_EMPTY = 20;
+  private static final byte MARK = 21;
+
+  private static final byte NULL = 0;
+  private static final byte BACK_REFERENCE = 1;
+  private static final byte ENUM = 2;
+  private static final byte RULE = 3;
+  private static final byte SELF_KEYED_RULE = 4;
+  private static final byte TOKEN = 5;
+  private static final byte TRIVIA = 6;
+  private static final byte CUSTOM = 7;
+  private static final byte CLASS = 8;
+
+  private static final AstNodeSkippingPolicy[] SKIPPING_POLICIES = {
+    NeverSkipFromAst.INSTANCE,
+    AlwaysSkipFromAst.INSTANCE,
+    SkipFromAstIfOnlyOneChild.INSTANCE};
+
+  /**
+   * Allows to serialize objects, which are not supported out of the box - for example rule keys, which are not constants of enums.
+   */
+  public interface ObjectCodec {
+
+    boolean canWrite(Object object);
+
+    void write(DataOutput out, Object object) throws IOException;
+
+    Object read(DataInput in) throws IOException;
+
+  }
+
+  @Nullable
+  private final ObjectCodec codec;
+  private final Map<Object, Integer> writtenObjects = new IdentityHashMap<>();
+  private final List<Object> readObjects = new ArrayList<>();
+  private final ClassLoader classLoader;
+
+  private CompiledGrammarSerializer(@Nullable ObjectCodec codec, @Nullable ClassLoader classLoader) {
+    this.codec = codec;
+    this.classLoader = classLoader;
+  }
+
+  public static void write(CompiledGrammar grammar, DataOutput out) throws IOException {
+    new CompiledGrammarSerializer(null, null).doWrite(grammar, out);
+  }
+
+  /**
+   * @throws IllegalArgumentException if grammar contains instructions or objects, which can not be serialized
+   */
+  public static void write(CompiledGrammar grammar, DataOutput out, ObjectCodec codec) throws IOException {
+    new CompiledGrammarSerializer(codec, null).doWrite(grammar, out);
+  }
+
+  public static CompiledGrammar read(DataInput in, ClassLoader classLoader) throws IOException {
+    return new CompiledGrammarSerializer(null, classLoader).doRead(in);
+  }
+
+  /**
+   * @param classLoader used to resolve classes of enums
+   * @throws IOException if data is not in expected format
+   */
+  public static CompiledGrammar read(DataInput in, ClassLoader classLoader, ObjectCodec codec) throws IOException {
+    return new CompiledGrammarSerializer(codec, classLoader).doRead(in);
+  }
+
+  private void doWrite(CompiledGrammar grammar, DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    Instruction[] instructions = grammar.getInstructions();
+    out.writeInt(instructions.length);
+    for (Instruction instruction : instructions) {
+      writeInstruction(instruction, out);
+    }
+    writeObject(grammar.getMatcher(grammar.getRootRuleKey()), out);
+    out.writeInt(grammar.getRootRuleOffset());
+  }
+
+  private void writeInstruction(Instruction instruction, DataOutput out) throws IOException {
+    if (instruction instanceof Instruction.JumpInstruction) {
+      writeOffset(JUMP, ((Instruction.JumpInstruction) instruction).getOffset(), out);
+    } else if (instruction instanceof Instruction.CallInstruction) {
+      Instruction.CallInstruction call = (Instruction.CallInstruction) instruction;
+      writeOffset(CALL, call.getOffset(), out);
+      writeObject(call.getMatcher(), out);
+    } else if (instruction instanceof Instruction.MarkInstruction) {
+      out.writeByte(MARK);
+      writeObject(((Instruction.MarkInstruction) instruction).getMatcher(), out);
+    } else if (instruction instanceof Instruction.ChoiceInstruction) {
+      writeOffset(CHOICE, ((Instruction.ChoiceInstruction) instruction).getOffset(), out);
+    } else if (instruction instanceof Instruction.PredicateChoiceInstruction) {
+      writeOffset(PREDICATE_CHOICE, ((Instruction.PredicateChoiceInstruction) instruction).getOffset(), out);
+    } else if (instruction instanceof Instruction.CommitInstruction) {
+      writeOffset(COMMIT, ((Instruction.CommitInstruction) instruction).getOffset(), out);
+    } else if (instruction instanceof Instruction.CommitVerifyInstruction) {
+      writeOffset(COMMIT_VERIFY, ((Instruction.CommitVerifyInstruction) instruction).getOffset(), out);
+    } else if (instruction instanceof Instruction.BackCommitInstruction) {
+      writeOffset(BACK_COMMIT, ((Instruction.BackCommitInstruction) instruction).getOffset(), out);
+    } else if (instruction == Instruction.ret()) {
+      out.writeByte(RET);
+    } else if (instruction == Instruction.backtrack()) {
+      out.writeByte(BACKTRACK);
+    } else if (instruction == Instruction.end()) {
+      out.writeByte(END);
+    } else if (instruction == Instruction.failTwice()) {
+      out.writeByte(FAIL_TWICE);
+    } else if (instruction == Instruction.ignoreErrors()) {
+      out.writeByte(IGNORE_ERRORS);
+    } else if (instruction instanceof StringExpression) {
+      out.writeByte(STRING);
+      out.writeUTF(((StringExpression) instruction).getString());
+    } else if (instruction instanceof PatternExpression) {
+      out.writeByte(PATTERN);
+      out.writeUTF(((PatternExpression) instruction).getMatcher().pattern().pattern());
+    } else if (instruction == EndOfInputExpression.INSTANCE) {
+      out.writeByte(END_OF_INPUT);
+    } else if (instruction == NothingExpression.INSTANCE) {
+      out.writeByte(NOTHING);
+    } else if (instruction == RecoverExpression.RecoverBeginInstruction.INSTANCE) {
+      out.writeByte(RECOVER_BEGIN);
+    } else if (instruction instanceof RecoverExpression.RecoverInstruction) {
+      out.writeByte(RECOVER);
+      writeObject(((RecoverExpression.RecoverInstruction) instruction).getSkippedText(), out);
+    } else if (instruction == RecoverExpression.RecoverEndInstruction.INSTANCE) {
+      out.writeByte(RECOVER_END);
+    } else if (instruction == RecoverExpression.NonEmptyExpression.INSTANCE) {
+      out.writeByte(NON_EMPTY);
+    } else {
+      throw new IllegalArgumentException("Unsupported instruction: " + instruction);
+    }
+  }
+
+  private static void writeOffset(byte opcode, int offset, DataOutput out) throws IOException {
+    out.writeByte(opcode);
+    out.writeInt(offset);
+  }
+
+  private void writeObject(Object object, DataOutput out) throws IOException {
+    if (object == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Integer id = writtenObjects.get(object);
+    if (id != null) {
+      out.writeByte(BACK_REFERENCE);
+      out.writeInt(id);
+      return;
+    }
+    if (object instanceof Enum) {
+      out.writeByte(ENUM);
+      writeObject(((Enum) object).getDeclaringClass(), out);
+      out.writeUTF(((Enum) object).name());
+    } else if (object instanceof Class) {
+      out.writeByte(CLASS);
+      out.writeUTF(((Class) object).getName());
+    } else if (object instanceof MutableParsingRule) {
+      MutableParsingRule rule = (MutableParsingRule) object;
+      if (rule.getRuleKey() == rule) {
+        out.writeByte(SELF_KEYED_RULE);
+        out.writeUTF(rule.getName());
+      } else {
+        out.writeByte(RULE);
+        writeObject(rule.getRuleKey(), out);
+      }
+      out.writeByte(skippingPolicy(rule));
+    } else if (object instanceof TokenExpression) {
+      TokenExpression token = (TokenExpression) object;
+      out.writeByte(TOKEN);
+      writeObject(token.getTokenType(), out);
+      out.writeUTF(token.getSubExpression().toString());
+    } else if (object instanceof TriviaExpression) {
+      TriviaExpression trivia = (TriviaExpression) object;
+      out.writeByte(TRIVIA);
+      writeObject(trivia.getTriviaKind(), out);
+      out.writeUTF(trivia.getSubExpression().toString());
+    } else if (codec != null && codec.canWrite(object)) {
+      out.writeByte(CUSTOM);
+      codec.write(out, object);
+    } else {
+      throw new IllegalArgumentException("Unable to serialize " + object.getClass().getName() + ": " + object);
+    }
+    writtenObjects.put(object, writtenObjects.size());
+  }
+
+  private static int skippingPolicy(MutableParsingRule rule) {
+    for (int i = 0; i < SKIPPING_POLICIES.length; i++) {
+      if (SKIPPING_POLICIES[i] == rule.getAstNodeSkippingPolicy()) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported skipping policy of rule " + rule);
+  }
+
+  private CompiledGrammar doRead(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a compiled grammar");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported version of compiled grammar: " + version);
+    }
+    Instruction[] instructions = new Instruction[in.readInt()];
+    for (int i = 0; i < instructions.length; i++) {
+      instructions[i] = readInstruction(in);
+    }
+    MutableParsingRule root = (MutableParsingRule) readObject(in);
+    int rootOffset = in.readInt();
+
+    Map<GrammarRuleKey, CompilableGrammarRule> rules = new HashMap<>();
+    for (Object object : readObjects) {
+      if (object instanceof MutableParsingRule) {
+        MutableParsingRule rule = (MutableParsingRule) object;
+        rules.put(rule.getRuleKey(), rule);
+      }
+    }
+    return new CompiledGrammar(instructions, rules, root.getRuleKey(), rootOffset);
+  }
+
+  private Instruction readInstruction(DataInput in) throws IOException {
+    byte opcode = in.readByte();
+    switch (opcode) {
+      case JUMP:
+        return Instruction.jump(in.readInt());
+      case CALL:
+        int offset = in.readInt();
+        return Instruction.call(offset, (Matcher) readObject(in));
+      case MARK:
+        return Instruction.mark((Matcher) readObject(in));
+      case CHOICE:
+        return Instruction.choice(in.readInt());
+      case PREDICATE_CHOICE:
+        return Instruction.predicateChoice(in.readInt());
+      case COMMIT:
+        return Instruction.commit(in.readInt());
+      case COMMIT_VERIFY:
+        return Instruction.commitVerify(in.readInt());
+      case BACK_COMMIT:
+        return Instruction.backCommit(in.readInt());
+      case RET:
+        return Instruction.ret();
+      case BACKTRACK:
+        return Instruction.backtrack();
+      case END:
+        return Instruction.end();
+      case FAIL_TWICE:
+        return Instruction.failTwice();
+      case IGNORE_ERRORS:
+        return Instruction.ignoreErrors();
+      case STRING:
+        return StringExpression.of(in.readUTF());
+      case PATTERN:
+        return PatternExpression.of(in.readUTF());
+      case END_OF_INPUT:
+        return EndOfInputExpression.INSTANCE;
+      case NOTHING:
+        return NothingExpression.INSTANCE;
+      case RECOVER_BEGIN:
+        return RecoverExpression.RecoverBeginInstruction.INSTANCE;
+      case RECOVER:
+        return new RecoverExpression.RecoverInstruction((TriviaExpression) readObject(in));
+      case RECOVER_END:
+        return RecoverExpression.RecoverEndInstruction.INSTANCE;
+      case NON_EMPTY:
+        return RecoverExpression.NonEmptyExpression.INSTANCE;
+      default:
+        throw new IOException("Unknown opcode: " + opcode);
+    }
+  }
+
+  private Object readObject(DataInput in) throws IOException {
+    byte tag = in.readByte();
+    Object result;
+    switch (tag) {
+      case NULL:
+        return null;
+      case BACK_REFERENCE:
+        return readObjects.get(in.readInt());
+      case ENUM:
+        result = readEnum((Class) readObject(in), in.readUTF());
+        break;
+      case CLASS:
+        result = readClass(in.readUTF());
+        break;
+      case RULE:
+        MutableParsingRule rule = new MutableParsingRule((GrammarRuleKey) readObject(in));
+        rule.setAstNodeSkippingPolicy(SKIPPING_POLICIES[in.readByte()]);
+        result = rule;
+        break;
+      case SELF_KEYED_RULE:
+        MutableParsingRule selfKeyedRule = new MutableParsingRule(in.readUTF());
+        selfKeyedRule.setAstNodeSkippingPolicy(SKIPPING_POLICIES[in.readByte()]);
+        result = selfKeyedRule;
+        break;
+      case TOKEN:
+        result = new TokenExpression((TokenType) readObject(in), new CompiledExpression(in.readUTF()));
+        break;
+      case TRIVIA:
+        result = new TriviaExpression((TriviaKind) readObject(in), new CompiledExpression(in.readUTF()));
+        break;
+      case CUSTOM:
+        if (codec == null) {
+          throw new IOException("Unable to read object serialized by " + ObjectCodec.class.getSimpleName() + " without it");
+        }
+        result = codec.read(in);
+        break;
+      default:
+        throw new IOException("Unknown tag: " + tag);
+    }
+    readObjects.add(result);
+    return result;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object readEnum(Class enumClass, String name) throws IOException {
+    try {
+      return Enum.valueOf(enumClass, name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unable to resolve " + enumClass.getName() + "." + name, e);
+    }
+  }
+
+  private Class readClass(String className) throws IOException {
+    try {
+      return Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to resolve " + className, e);
+    }
+  }
+
+  /**
+   * Sub-expression of a token or a trivia, whose instructions have already been read.
+   * Only its description is kept, because it is not used after compilation.
+   */
+  private static class CompiledExpression implements ParsingExpression {
+
+    private final String description;
+
+    CompiledExpression(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public Instruction[] compile(CompilationHandler compiler) {
+      throw new IllegalStateException("Sub-expression of deserialized grammar can not be compiled again: " + description);
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+
+  }
+
+}
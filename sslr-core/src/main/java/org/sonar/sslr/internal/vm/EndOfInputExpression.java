@@ -19,7 +19,9 @@
  */
 package org.sonar.sslr.internal.vm;
 
-public class EndOfInputExpression extends NativeExpression {
+import org.sonar.sslr.internal.matchers.Matcher;
+
+public class EndOfInputExpression extends NativeExpression implements Matcher {
 
   public static final EndOfInputExpression INSTANCE = new EndOfInputExpression();
 
@@ -28,6 +30,7 @@ public class EndOfInputExpression extends NativeExpression {
 
   @Override
   public void execute(Machine machine) {
+    machine.markExamined(0);
     if (machine.length() == 0) {
       machine.jump(1);
     } else {
@@ -19,13 +19,17 @@
  */
 package org.sonar.sslr.internal.vm;
 
+/**
+ * Locates furthest index at which a rule failed outside of predicates.
+ * Parsing uses it only after failure or when recovering from errors, so that successful parsing doesn't pay for this.
+ */
 public class ErrorLocatingHandler implements MachineHandler {
 
   private int errorIndex = -1;
 
   @Override
   public void onBacktrack(Machine machine) {
-    if (errorIndex < machine.getIndex()) {
+    if (!machine.peek().isIgnoreErrors() && errorIndex < machine.getIndex()) {
       errorIndex = machine.getIndex();
     }
   }
@@ -34,4 +38,8 @@ public class ErrorLocatingHandler implements MachineHandler {
     return errorIndex;
   }
 
+  void setErrorIndex(int errorIndex) {
+    this.errorIndex = errorIndex;
+  }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.MatcherPathElement;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects paths of rules to tokens, which were expected at the given index of error:
+ * to native expressions, which didn't match at this index, and to {@link TokenExpression}s, which started at this index,
+ * because errors inside of tokens are ignored.
+ *
+ * @since 1.24
+ */
+public class ErrorReportingHandler implements MachineHandler {
+
+  private final Instruction[] instructions;
+  private final int errorIndex;
+  private final List<List<MatcherPathElement>> paths = new ArrayList<>();
+
+  public ErrorReportingHandler(Instruction[] instructions, int errorIndex) {
+    this.instructions = instructions;
+    this.errorIndex = errorIndex;
+  }
+
+  @Override
+  public void onFailure(Machine machine) {
+    if (machine.getIndex() == errorIndex) {
+      Instruction instruction = instructions[machine.getAddress()];
+      if (instruction instanceof Matcher) {
+        List<MatcherPathElement> path = getPath(machine);
+        path.add(new MatcherPathElement((Matcher) instruction, errorIndex, errorIndex));
+        paths.add(path);
+      }
+    }
+  }
+
+  @Override
+  public void onBacktrack(Machine machine) {
+    MachineStack stack = machine.peek();
+    if (!stack.isIgnoreErrors() && machine.getIndex() == errorIndex && stack.index() == errorIndex && stack.matcher() instanceof TokenExpression) {
+      paths.add(getPath(machine));
+    }
+  }
+
+  private List<MatcherPathElement> getPath(Machine machine) {
+    List<MatcherPathElement> path = new ArrayList<>();
+    for (MachineStack stack = machine.peek(); !stack.isEmpty(); stack = stack.parent()) {
+      if (stack.matcher() != null) {
+        path.add(new MatcherPathElement(stack.matcher(), stack.index(), errorIndex));
+      }
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * @return paths merged into a tree, whose root is the root rule, or null if there are no paths
+   */
+  @Nullable
+  public ErrorTreeNode getFailedPaths() {
+    return paths.isEmpty() ? null : ErrorTreeNode.buildTree(paths);
+  }
+
+  /**
+   * @return human-readable description of the given element of path
+   */
+  public static String describe(Matcher matcher) {
+    if (matcher instanceof MutableParsingRule) {
+      return ((MutableParsingRule) matcher).getName();
+    } else if (matcher instanceof StringExpression) {
+      return "\"" + ((StringExpression) matcher).getString() + "\"";
+    } else if (matcher instanceof TokenExpression) {
+      return ((TokenExpression) matcher).getTokenType().getName();
+    } else if (matcher instanceof EndOfInputExpression) {
+      return "end of input";
+    }
+    return matcher.toString();
+  }
+
+}
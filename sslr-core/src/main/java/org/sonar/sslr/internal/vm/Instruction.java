@@ -87,6 +87,13 @@ public abstract class Instruction {
     return IGNORE_ERRORS;
   }
 
+  /**
+   * @since 1.24
+   */
+  public static Instruction mark(Matcher matcher) {
+    return new MarkInstruction(matcher);
+  }
+
   /**
    * Executes this instruction.
    */
@@ -99,6 +106,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.jump(offset);
@@ -129,6 +140,14 @@ public abstract class Instruction {
       this.matcher = matcher;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
+    Matcher getMatcher() {
+      return matcher;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushReturn(1, matcher, offset);
@@ -155,6 +174,45 @@ public abstract class Instruction {
     }
   }
 
+  /**
+   * Adds empty node of the given matcher to the sub-nodes of the current rule,
+   * so that a group of sub-nodes can be delimited without a call frame.
+   *
+   * @since 1.24
+   */
+  public static final class MarkInstruction extends Instruction {
+    private final Matcher matcher;
+
+    public MarkInstruction(Matcher matcher) {
+      this.matcher = matcher;
+    }
+
+    Matcher getMatcher() {
+      return matcher;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      machine.createLeafNode(matcher, 0);
+      machine.jump(1);
+    }
+
+    @Override
+    public String toString() {
+      return "Mark";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return (obj instanceof MarkInstruction) && Objects.equals(this.matcher, ((MarkInstruction) obj).matcher);
+    }
+
+    @Override
+    public int hashCode() {
+      return matcher.hashCode();
+    }
+  }
+
   public static final class ChoiceInstruction extends Instruction {
     private final int offset;
 
@@ -162,6 +220,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushBacktrack(offset);
@@ -208,6 +270,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushBacktrack(offset);
@@ -238,6 +304,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       // add all nodes to parent
@@ -270,6 +340,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       if (machine.getIndex() == machine.peek().index()) {
@@ -364,6 +438,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       MachineStack stack = machine.peek();
@@ -30,8 +30,17 @@ import org.sonar.sslr.internal.vm.lexerful.LexerfulParseErrorFormatter;
 import org.sonar.sslr.parser.ParseError;
 import org.sonar.sslr.parser.ParsingResult;
 
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class Machine implements CharSequence {
 
@@ -44,21 +53,48 @@ public class Machine implements CharSequence {
   private int address;
   private boolean matched = true;
 
-  private final ParseNode[] memos;
+  final ParseNode[] memos;
+  // upper bound (exclusive) of indexes of characters examined so far, where inputLength + 1 means that end of input was examined,
+  // and Integer.MAX_VALUE means that examined characters are not tracked, see ReusingMachine
+  int examined = Integer.MAX_VALUE;
 
   // Number of instructions in grammar for Java is about 2000.
   private final int[] calls;
 
+  @Nullable
   private final MachineHandler handler;
 
+  // null when memoization is defined only by rules, see CompiledGrammar#enableAdaptiveMemoization()
+  @Nullable
+  private AdaptiveMemoization.Session memoization;
+
   private boolean ignoreErrors = false;
 
+  // number of calls of TokenExpression and TriviaExpression on stack, inside of which only span of matched text is recorded
+  private int tokenCalls;
+
+  // not null only when parsing is done with recovery, see RecoverExpression
+  @Nullable
+  private ErrorLocatingHandler recovery;
+  private int[] recoveryMarks;
+  private int recoveryDepth;
+  // start index of skipped text to index of error for each skipped text expression
+  private Map<Matcher, Map<Integer, Integer>> recoveredErrors;
+
   public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar) {
+    return parse(tokens, grammar, null);
+  }
+
+  /**
+   * Parses tokens notifying the given handler about events of machine.
+   *
+   * @since 1.24
+   */
+  public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar, @Nullable MachineHandler handler) {
     Token[] inputTokens = tokens.toArray(new Token[tokens.size()]);
 
-    ErrorLocatingHandler errorLocatingHandler = new ErrorLocatingHandler();
-    Machine machine = new Machine(null, inputTokens, grammar.getInstructions(), errorLocatingHandler);
-    machine.execute(grammar.getMatcher(grammar.getRootRuleKey()), grammar.getRootRuleOffset(), grammar.getInstructions());
+    Machine machine = new Machine(null, inputTokens, grammar.getInstructions(), handler);
+    machine.execute(grammar, grammar.getInstructions());
 
     if (machine.matched) {
       return machine.stack.subNodes().get(0);
@@ -67,7 +103,7 @@ public class Machine implements CharSequence {
         // Godin: weird situation - I expect that list of tokens contains at least EOF, but this is not the case in C Parser
         throw new RecognitionException(1, "No tokens");
       } else {
-        int errorIndex = errorLocatingHandler.getErrorIndex();
+        int errorIndex = locateError(null, inputTokens, grammar);
         String errorMsg = new LexerfulParseErrorFormatter().format(tokens, errorIndex);
         int errorLine = errorIndex < tokens.size() ? tokens.get(errorIndex).getLine() : tokens.get(tokens.size() - 1).getLine();
         throw new RecognitionException(errorLine, errorMsg);
@@ -76,23 +112,152 @@ public class Machine implements CharSequence {
   }
 
   public static ParsingResult parse(char[] input, CompiledGrammar grammar) {
-    Instruction[] instructions = grammar.getInstructions();
+    return parse(input, grammar, false, null);
+  }
+
+  /**
+   * Parses text notifying the given handler about events of machine.
+   *
+   * @since 1.24
+   */
+  public static ParsingResult parse(char[] input, CompiledGrammar grammar, MachineHandler handler) {
+    return parse(input, grammar, false, Objects.requireNonNull(handler, "handler"));
+  }
+
+  /**
+   * Parses text, recovering from errors by means of {@link RecoverExpression}s of grammar.
+   * Result of parsing contains errors from which parser recovered.
+   *
+   * @since 1.24
+   */
+  public static ParsingResult parseWithRecovery(char[] input, CompiledGrammar grammar) {
+    return parse(input, grammar, true, null);
+  }
+
+  /**
+   * Parses text like {@link #parse(char[], CompiledGrammar)}, but additionally tracks characters examined by each node,
+   * and keeps memoized nodes, so that they can be reused by {@link #reparse(char[], CompiledGrammar, MemoTable, int, int, int)}.
+   *
+   * @return memoized nodes, which provide {@link MemoTable#getResult() result of parsing}
+   * @since 1.24
+   */
+  public static MemoTable parseForReuse(char[] input, CompiledGrammar grammar) {
+    return parseForReuse(input, grammar, null);
+  }
+
+  /**
+   * Parses text obtained by replacement of characters from offset to offset + removedLength of previously parsed text by
+   * insertedLength characters, reusing memoized nodes of previous parsing, which are not affected by this replacement.
+   * Parsing is done from scratch if text doesn't match, so that reported error is the same as without reuse of nodes.
+   *
+   * @since 1.24
+   */
+  public static MemoTable reparse(char[] input, CompiledGrammar grammar, MemoTable previous, int offset, int removedLength, int insertedLength) {
+    Machine machine = new ReusingMachine(input, grammar.getInstructions(), previous.reusableAfterEdit(input, offset, removedLength, insertedLength));
+    machine.execute(grammar, grammar.getInstructions());
+    // error is located only by parsing from scratch
+    return machine.matched ? new MemoTable(input, machine.memos, machine.result(grammar)) : parseForReuse(input, grammar, null);
+  }
+
+  private static MemoTable parseForReuse(char[] input, CompiledGrammar grammar, @Nullable MemoTable reusableMemos) {
+    Machine machine = new ReusingMachine(input, grammar.getInstructions(), reusableMemos);
+    return new MemoTable(input, machine.memos, machine.parse(grammar));
+  }
+
+  private static ParsingResult parse(char[] input, CompiledGrammar grammar, boolean recover, @Nullable MachineHandler handler) {
+    Machine machine;
+    if (recover) {
+      ErrorLocatingHandler errorLocatingHandler = new ErrorLocatingHandler();
+      machine = new Machine(input, null, grammar.getInstructions(), errorLocatingHandler);
+      machine.recovery = errorLocatingHandler;
+      machine.recoveryMarks = new int[16];
+      machine.recoveredErrors = new IdentityHashMap<>();
+    } else {
+      machine = new Machine(input, null, grammar.getInstructions(), handler);
+    }
+    return machine.parse(grammar);
+  }
+
+  private ParsingResult parse(CompiledGrammar grammar) {
+    execute(grammar, grammar.getInstructions());
+    return result(grammar);
+  }
+
+  private ParsingResult result(CompiledGrammar grammar) {
+    InputBuffer inputBuffer = new ImmutableInputBuffer(input);
+    if (matched) {
+      // TODO what if there is no nodes, or more than one?
+      ParseNode root = stack.subNodes().get(0);
+      List<ParseError> errors = recovery != null ? collectRecoveredErrors(inputBuffer, root) : Collections.<ParseError>emptyList();
+      return new ParsingResult(inputBuffer, true, root, null, errors);
+    } else {
+      int errorIndex = recovery != null ? recovery.getErrorIndex() : locateError(input, null, grammar);
+      ParseError parseError = new ParseError(inputBuffer, errorIndex);
+      return new ParsingResult(inputBuffer, false, null, parseError);
+    }
+  }
 
+  /**
+   * Parses input again in order to find furthest index at which a rule failed outside of predicates,
+   * so that neither successful parsing nor {@link #backtrack()} pay for this.
+   */
+  private static int locateError(@Nullable char[] input, @Nullable Token[] tokens, CompiledGrammar grammar) {
+    Instruction[] instructions = grammar.getInstructions();
     ErrorLocatingHandler errorLocatingHandler = new ErrorLocatingHandler();
-    Machine machine = new Machine(input, null, instructions, errorLocatingHandler);
+    Machine machine = new Machine(input, tokens, instructions, errorLocatingHandler);
     machine.execute(grammar.getMatcher(grammar.getRootRuleKey()), grammar.getRootRuleOffset(), instructions);
+    return errorLocatingHandler.getErrorIndex();
+  }
 
-    if (machine.matched) {
-      return new ParsingResult(
-          new ImmutableInputBuffer(machine.input),
-          machine.matched,
-          // TODO what if there is no nodes, or more than one?
-          machine.stack.subNodes().get(0),
-          null);
-    } else {
-      InputBuffer inputBuffer = new ImmutableInputBuffer(machine.input);
-      ParseError parseError = new ParseError(inputBuffer, errorLocatingHandler.getErrorIndex());
-      return new ParsingResult(inputBuffer, machine.matched, null, parseError);
+  /**
+   * Errors are collected from the resulting tree, because skipped text might have been discarded by backtracking.
+   */
+  private List<ParseError> collectRecoveredErrors(InputBuffer inputBuffer, ParseNode root) {
+    if (recoveredErrors.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<ParseError> result = new ArrayList<>();
+    Deque<ParseNode> nodes = new ArrayDeque<>();
+    nodes.push(root);
+    while (!nodes.isEmpty()) {
+      ParseNode node = nodes.pop();
+      Map<Integer, Integer> errors = recoveredErrors.get(node.getMatcher());
+      if (errors != null) {
+        result.add(new ParseError(inputBuffer, errors.get(node.getStartIndex())));
+      } else {
+        List<ParseNode> children = node.getChildren();
+        for (int i = children.size() - 1; i >= 0; i--) {
+          nodes.push(children.get(i));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Parses text again in order to find out what was expected at the given index of error,
+   * so that successful parsing doesn't pay for this.
+   *
+   * @return paths of rules to the expected tokens, or null if nothing was expected at the given index
+   * @since 1.24
+   */
+  @Nullable
+  public static ErrorTreeNode analyzeError(char[] input, CompiledGrammar grammar, int errorIndex) {
+    Instruction[] instructions = grammar.getInstructions();
+    ErrorReportingHandler errorReportingHandler = new ErrorReportingHandler(instructions, errorIndex);
+    Machine machine = new Machine(input, null, instructions, errorReportingHandler);
+    machine.execute(grammar.getMatcher(grammar.getRootRuleKey()), grammar.getRootRuleOffset(), instructions);
+    return errorReportingHandler.getFailedPaths();
+  }
+
+  private void execute(CompiledGrammar grammar, Instruction[] instructions) {
+    AdaptiveMemoization adaptiveMemoization = grammar.getAdaptiveMemoization();
+    if (adaptiveMemoization != null) {
+      memoization = adaptiveMemoization.newSession();
+    }
+    execute(grammar.getMatcher(grammar.getRootRuleKey()), grammar.getRootRuleOffset(), instructions);
+    if (memoization != null) {
+      memoization.finish();
     }
   }
 
@@ -100,6 +265,11 @@ public class Machine implements CharSequence {
     // Place first rule on top of stack
     push(-1);
     stack.setMatcher(matcher);
+    stack.setCalledAddress(offset);
+    stack.setLeftRecursion(-1);
+    if (handler != null) {
+      handler.onCall(this);
+    }
     jump(offset);
 
     execute(instructions);
@@ -116,7 +286,7 @@ public class Machine implements CharSequence {
 
   // @VisibleForTesting
   public static boolean execute(Instruction[] instructions, Token... input) {
-    Machine machine = new Machine(null, input, instructions, NOP_HANDLER);
+    Machine machine = new Machine(null, input, instructions, null);
     while (machine.address != -1 && machine.address < instructions.length) {
       instructions[machine.address].execute(machine);
     }
@@ -127,7 +297,7 @@ public class Machine implements CharSequence {
     this(input.toCharArray(), null, instructions, handler);
   }
 
-  private Machine(char[] input, Token[] tokens, Instruction[] instructions, MachineHandler handler) {
+  Machine(@Nullable char[] input, @Nullable Token[] tokens, Instruction[] instructions, @Nullable MachineHandler handler) {
     this.input = input;
     this.tokens = tokens;
     if (input != null) {
@@ -145,16 +315,9 @@ public class Machine implements CharSequence {
     Arrays.fill(calls, -1);
   }
 
-  private static final MachineHandler NOP_HANDLER = new MachineHandler() {
-    @Override
-    public void onBacktrack(Machine machine) {
-      // nop
-    }
-  };
-
   // @VisibleForTesting
   public Machine(String input, Instruction[] instructions) {
-    this(input, instructions, NOP_HANDLER);
+    this(input.toCharArray(), null, instructions, null);
   }
 
   private void execute(Instruction[] instructions) {
@@ -185,13 +348,24 @@ public class Machine implements CharSequence {
 
   public void popReturn() {
     calls[stack.calledAddress()] = stack.leftRecursion();
+    if (isToken(stack.matcher())) {
+      tokenCalls--;
+    }
     stack = stack.parent();
   }
 
   public void pushReturn(int returnOffset, Matcher matcher, int callOffset) {
     ParseNode memo = memos[index];
     if (memo != null && memo.getMatcher() == matcher) {
-      stack.subNodes().add(memo);
+      if (memoization != null) {
+        memoization.onMemoHit(address + callOffset);
+      }
+      if (handler != null) {
+        handler.onMemoHit(this, memo);
+      }
+      if (tokenCalls == 0) {
+        stack.subNodes().add(memo);
+      }
       index = memo.getEndIndex();
       address += returnOffset;
     } else {
@@ -206,6 +380,19 @@ public class Machine implements CharSequence {
       stack.setCalledAddress(address);
       stack.setLeftRecursion(calls[address]);
       calls[address] = index;
+      if (isToken(matcher)) {
+        tokenCalls++;
+      }
+
+      if (memoization != null) {
+        memoization.onCall(address, index);
+      }
+      if (handler != null) {
+        if (memoization != null ? memoization.isMemoized(address) : shouldMemoize(matcher)) {
+          handler.onMemoMiss(this);
+        }
+        handler.onCall(this);
+      }
     }
   }
 
@@ -227,12 +414,16 @@ public class Machine implements CharSequence {
   }
 
   public void backtrack() {
+    if (handler != null && !ignoreErrors) {
+      handler.onFailure(this);
+    }
+
     // pop any return addresses from the top of the stack
     while (stack.isReturn()) {
 
       // TODO we must have this inside of loop, otherwise report won't be generated in case of input "foo" and rule "nextNot(foo)"
       ignoreErrors = stack.isIgnoreErrors();
-      if (!ignoreErrors) {
+      if (handler != null) {
         handler.onBacktrack(this);
       }
 
@@ -252,17 +443,75 @@ public class Machine implements CharSequence {
     }
   }
 
+  void beginRecoverable() {
+    if (recovery != null) {
+      if (recoveryDepth == recoveryMarks.length) {
+        recoveryMarks = Arrays.copyOf(recoveryMarks, recoveryDepth * 2);
+      }
+      recoveryMarks[recoveryDepth++] = recovery.getErrorIndex();
+      recovery.setErrorIndex(-1);
+    }
+  }
+
+  void endRecoverable() {
+    if (recovery != null) {
+      recoveryDepth--;
+      if (recovery.getErrorIndex() < recoveryMarks[recoveryDepth]) {
+        recovery.setErrorIndex(recoveryMarks[recoveryDepth]);
+      }
+    }
+  }
+
+  /**
+   * @return false if parsing is done without recovery, otherwise records an error of sub-expression, which didn't match
+   * at current index, and which will be skipped by the given expression
+   */
+  boolean recover(Matcher skippedText) {
+    if (recovery == null) {
+      return false;
+    }
+    int recoveredErrorIndex = Math.max(index, recovery.getErrorIndex());
+    endRecoverable();
+    recoveredErrors.computeIfAbsent(skippedText, k -> new HashMap<>()).putIfAbsent(index, recoveredErrorIndex);
+    return true;
+  }
+
+  /**
+   * Adds node of called rule, whose call frame is on top of stack, to sub-nodes of parent frame.
+   * Inside of a {@link TokenExpression} or a {@link TriviaExpression} nodes are not created, see {@link #createLeafNode(Matcher, int)}.
+   */
   public void createNode() {
-    ParseNode node = new ParseNode(stack.index(), index, stack.subNodes(), stack.matcher());
+    if (handler != null) {
+      handler.onReturn(this);
+    }
+    boolean memoize = memoization != null ? memoization.onMatch(stack.calledAddress(), stack.index()) : shouldMemoize(stack.matcher());
+    if (tokenCalls > (isToken(stack.matcher()) ? 1 : 0)) {
+      return;
+    }
+    ParseNode node = new ParseNode(stack.index(), index, stack.subNodes(), stack.matcher(), examined);
     stack.parent().subNodes().add(node);
-    if (stack.matcher() instanceof MemoParsingExpression && ((MemoParsingExpression) stack.matcher()).shouldMemoize()) {
+    if (memoize) {
       memos[stack.index()] = node;
     }
   }
 
+  private static boolean isToken(@Nullable Matcher matcher) {
+    return matcher instanceof TokenExpression || matcher instanceof TriviaExpression;
+  }
+
+  private static boolean shouldMemoize(Matcher matcher) {
+    return matcher instanceof MemoParsingExpression && ((MemoParsingExpression) matcher).shouldMemoize();
+  }
+
+  /**
+   * Creates node for the given number of characters or tokens matched by native expression and advances index.
+   * Inside of a {@link TokenExpression} or a {@link TriviaExpression} only index is advanced,
+   * because only start and end of their nodes are used to create tokens, see {@link org.sonar.sslr.internal.matchers.AstCreator}.
+   */
   public void createLeafNode(Matcher matcher, int offset) {
-    ParseNode node = new ParseNode(index, index + offset, matcher);
-    stack.subNodes().add(node);
+    if (tokenCalls == 0) {
+      stack.subNodes().add(new ParseNode(index, index + offset, matcher, examined));
+    }
     index += offset;
   }
 
@@ -270,6 +519,14 @@ public class Machine implements CharSequence {
     return index;
   }
 
+  /**
+   * Gives to native expressions direct access to the input text, in which case they must {@link #markExamined(int) mark}
+   * examined characters themselves.
+   */
+  char[] getInput() {
+    return input;
+  }
+
   public void setIndex(int index) {
     this.index = index;
   }
@@ -288,6 +545,17 @@ public class Machine implements CharSequence {
     return input[index + offset];
   }
 
+  /**
+   * Records that presence of a character at the given offset was checked without reading it,
+   * which for an offset out of the input means that end of input was examined.
+   * Does nothing unless examined characters are tracked, see {@link #parseForReuse(char[], CompiledGrammar)}.
+   *
+   * @since 1.24
+   */
+  public void markExamined(int offset) {
+    // nop
+  }
+
   /**
    * Not supported.
    *
@@ -19,8 +19,67 @@
  */
 package org.sonar.sslr.internal.vm;
 
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+/**
+ * Receives events of {@link Machine} about rules - i.e. about grammar rules, tokens and trivias,
+ * whose frame is on top of {@link Machine#peek() stack} at the time of event.
+ * Machine has no handler by default, in which case no events are produced.
+ */
 public interface MachineHandler {
 
-  void onBacktrack(Machine machine);
+  /**
+   * Invoked when rule is called, and its result is not memoized.
+   *
+   * @since 1.24
+   */
+  default void onCall(Machine machine) {
+    // nop
+  }
+
+  /**
+   * Invoked when rule matches, before return from it.
+   *
+   * @since 1.24
+   */
+  default void onReturn(Machine machine) {
+    // nop
+  }
+
+  /**
+   * Invoked for each rule, which doesn't match, when machine backtracks, before return from it.
+   * Note that rules invoked inside of predicates have {@link MachineStack#isIgnoreErrors()}.
+   */
+  default void onBacktrack(Machine machine) {
+    // nop
+  }
+
+  /**
+   * Invoked instead of {@link #onCall(Machine)} when result of rule is taken from memo.
+   *
+   * @param memo node of rule, which will be reused
+   * @since 1.24
+   */
+  default void onMemoHit(Machine machine, ParseNode memo) {
+    // nop
+  }
+
+  /**
+   * Invoked right before {@link #onCall(Machine)} when rule should be memoized, but its result is not in memo.
+   *
+   * @since 1.24
+   */
+  default void onMemoMiss(Machine machine) {
+    // nop
+  }
+
+  /**
+   * Invoked when instruction at current address of machine doesn't match outside of predicates, before machine backtracks.
+   *
+   * @since 1.24
+   */
+  default void onFailure(Machine machine) {
+    // nop
+  }
 
 }
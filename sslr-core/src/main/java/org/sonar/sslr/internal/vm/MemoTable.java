@@ -0,0 +1,168 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.parser.ParsingResult;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Memoized nodes of a parsing of a text, which can be reused by the parsing of an edited version of this text.
+ * <p>
+ * Node can be reused if it precedes the edit and doesn't depend on the edited characters according to {@link ParseNode#getExaminedIndex()},
+ * or if it follows the edit, in which case its indexes are shifted.
+ *
+ * <p>This class is not intended to be used by clients.</p>
+ *
+ * @since 1.24
+ */
+public final class MemoTable {
+
+  private final char[] input;
+  private final ParseNode[] nodes;
+  @Nullable
+  private final ParsingResult result;
+
+  /**
+   * @param nodes memoized nodes by their start index
+   * @param result result of parsing, which produced the given nodes, or null for a table of reusable nodes
+   */
+  MemoTable(char[] input, ParseNode[] nodes, @Nullable ParsingResult result) {
+    this.input = input;
+    this.nodes = nodes;
+    this.result = result;
+  }
+
+  public char[] getInput() {
+    return input;
+  }
+
+  /**
+   * @return result of parsing, which produced this table
+   */
+  public ParsingResult getResult() {
+    return Objects.requireNonNull(result);
+  }
+
+  /**
+   * Table of nodes of this one, which are not affected by the given edit, by their start index in the edited text.
+   * Nodes, which follow the edit, are shifted lazily by {@link #get(int, Matcher)}.
+   *
+   * @param offset index of the first removed character, or of the insertion point
+   * @param removedLength number of removed characters
+   * @param insertedLength number of inserted characters
+   */
+  MemoTable reusableAfterEdit(char[] newInput, int offset, int removedLength, int insertedLength) {
+    Edit edit = new Edit(offset, removedLength, insertedLength, new ParseNode[newInput.length + 1]);
+    // nodes of parse tree take precedence, because they are more likely to be requested again
+    ParseNode root = result != null ? result.getParseTreeRoot() : null;
+    if (root != null) {
+      edit.collect(root);
+    }
+    for (ParseNode node : nodes) {
+      if (node != null) {
+        edit.put(node);
+      }
+    }
+    return new MemoTable(newInput, edit.reusable, null);
+  }
+
+  /**
+   * @return node created by the given matcher at the given index, or null
+   */
+  @Nullable
+  ParseNode get(int index, Matcher matcher) {
+    ParseNode node = nodes[index];
+    // descendants, which start at the same index, are reusable when their ancestor is
+    while (node != null && node.getMatcher() != matcher) {
+      node = node.getChildren().isEmpty() ? null : node.getChildren().get(0);
+    }
+    if (node == null) {
+      return null;
+    }
+    int delta = index - node.getStartIndex();
+    return delta == 0 ? node : shift(node, delta);
+  }
+
+  private static ParseNode shift(ParseNode node, int delta) {
+    int examinedIndex = node.getExaminedIndex() == Integer.MAX_VALUE ? Integer.MAX_VALUE : (node.getExaminedIndex() + delta);
+    List<ParseNode> children = node.getChildren();
+    if (children.isEmpty()) {
+      return new ParseNode(node.getStartIndex() + delta, node.getEndIndex() + delta, node.getMatcher(), examinedIndex);
+    }
+    List<ParseNode> shiftedChildren = new ArrayList<>(children.size());
+    for (ParseNode child : children) {
+      shiftedChildren.add(shift(child, delta));
+    }
+    return new ParseNode(node.getStartIndex() + delta, node.getEndIndex() + delta, shiftedChildren, node.getMatcher(), examinedIndex);
+  }
+
+  private static final class Edit {
+
+    private final int offset;
+    private final int removedEnd;
+    private final int delta;
+    private final ParseNode[] reusable;
+
+    Edit(int offset, int removedLength, int insertedLength, ParseNode[] reusable) {
+      this.offset = offset;
+      this.removedEnd = offset + removedLength;
+      this.delta = insertedLength - removedLength;
+      this.reusable = reusable;
+    }
+
+    /**
+     * Collects outermost reusable nodes of the given tree.
+     */
+    void collect(ParseNode node) {
+      if (!put(node)) {
+        for (ParseNode child : node.getChildren()) {
+          collect(child);
+        }
+      }
+    }
+
+    /**
+     * @return true if node was reusable
+     */
+    boolean put(ParseNode node) {
+      int index;
+      if (node.getExaminedIndex() <= offset) {
+        index = node.getStartIndex();
+      } else if (node.getStartIndex() >= removedEnd) {
+        index = node.getStartIndex() + delta;
+      } else {
+        return false;
+      }
+      // empty nodes are cheap to recreate, and would hide non-empty nodes with the same start index
+      if (node.getStartIndex() != node.getEndIndex() && reusable[index] == null) {
+        reusable[index] = node;
+      }
+      return true;
+    }
+
+  }
+
+}
@@ -35,6 +35,16 @@ public class PatternExpression extends NativeExpression implements org.sonar.ssl
     matcher = Pattern.compile(regex).matcher("");
   }
 
+  /**
+   * @return specialized expression for a single class of characters, otherwise {@link PatternExpression}
+   * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+   * @since 1.24
+   */
+  public static PatternExpression of(String regex) {
+    CharacterClassExpression characterClass = CharacterClassExpression.parse(regex);
+    return characterClass != null ? characterClass : new PatternExpression(regex);
+  }
+
   /**
    * @throws GrammarException if execution of regular expression has led to StackOverflowError
    */
@@ -44,6 +54,9 @@ public class PatternExpression extends NativeExpression implements org.sonar.ssl
     boolean result;
     try {
       result = matcher.lookingAt();
+      if (matcher.hitEnd()) {
+        machine.markExamined(machine.length());
+      }
     } catch (StackOverflowError e) {
       throw new GrammarException(e, "The regular expression '" + matcher.pattern().pattern() + "' has led to a stack overflow error."
           + " This error is certainly due to an inefficient use of alternations. See http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5050507");
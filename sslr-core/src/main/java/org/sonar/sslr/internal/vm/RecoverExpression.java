@@ -0,0 +1,186 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.Trivia.TriviaKind;
+
+/**
+ * Expression, which matches sub-expression, and when sub-expression doesn't match and parsing is done with recovery
+ * (see {@link Machine#parseWithRecovery(char[], CompiledGrammar)}), records an error and skips input up to and including
+ * the next match of sync expression, or up to the end of input, as {@link TriviaKind#SKIPPED_TEXT skipped text}.
+ * Doesn't match if there is nothing to skip. Without recovery this expression is equivalent to its sub-expression.
+ *
+ * @since 1.24
+ */
+public class RecoverExpression implements ParsingExpression {
+
+  private final ParsingExpression subExpression;
+  private final ParsingExpression syncExpression;
+  private final TriviaExpression skippedText;
+
+  public RecoverExpression(ParsingExpression subExpression, ParsingExpression syncExpression) {
+    this.subExpression = subExpression;
+    this.syncExpression = syncExpression;
+    this.skippedText = new TriviaExpression(TriviaKind.SKIPPED_TEXT, new SequenceExpression(
+      new ZeroOrMoreExpression(new SequenceExpression(new NextNotExpression(syncExpression), new PatternExpression("(?s)."))),
+      new FirstOfExpression(syncExpression, EndOfInputExpression.INSTANCE),
+      NonEmptyExpression.INSTANCE));
+  }
+
+  /**
+   * Compiles this expression into a sequence of instructions:
+   * <pre>
+   * RecoverBegin
+   * Choice L1
+   * subExpression
+   * Commit L2
+   * L1: Recover
+   * skippedText
+   * Jump E
+   * L2: RecoverEnd
+   * E: ...
+   * </pre>
+   */
+  @Override
+  public Instruction[] compile(CompilationHandler compiler) {
+    Instruction[] sub = compiler.compile(subExpression);
+    Instruction[] skipped = compiler.compile(skippedText);
+    Instruction[] result = new Instruction[sub.length + skipped.length + 6];
+    result[0] = RecoverBeginInstruction.INSTANCE;
+    result[1] = Instruction.choice(sub.length + 2);
+    System.arraycopy(sub, 0, result, 2, sub.length);
+    result[sub.length + 2] = Instruction.commit(skipped.length + 3);
+    result[sub.length + 3] = new RecoverInstruction(skippedText);
+    System.arraycopy(skipped, 0, result, sub.length + 4, skipped.length);
+    result[result.length - 2] = Instruction.jump(2);
+    result[result.length - 1] = RecoverEndInstruction.INSTANCE;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "Recover[" + subExpression + ", " + syncExpression + "]";
+  }
+
+  /**
+   * Starts tracking of errors of sub-expression.
+   */
+  public static final class RecoverBeginInstruction extends Instruction {
+
+    public static final RecoverBeginInstruction INSTANCE = new RecoverBeginInstruction();
+
+    private RecoverBeginInstruction() {
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      machine.beginRecoverable();
+      machine.jump(1);
+    }
+
+    @Override
+    public String toString() {
+      return "RecoverBegin";
+    }
+
+  }
+
+  /**
+   * Stops tracking of errors of sub-expression, which matched.
+   */
+  public static final class RecoverEndInstruction extends Instruction {
+
+    public static final RecoverEndInstruction INSTANCE = new RecoverEndInstruction();
+
+    private RecoverEndInstruction() {
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      machine.endRecoverable();
+      machine.jump(1);
+    }
+
+    @Override
+    public String toString() {
+      return "RecoverEnd";
+    }
+
+  }
+
+  /**
+   * Stops tracking of errors of sub-expression, which didn't match, and either records an error
+   * before skipping of input or backtracks when parsing is done without recovery.
+   */
+  public static final class RecoverInstruction extends Instruction {
+
+    private final TriviaExpression skippedText;
+
+    RecoverInstruction(TriviaExpression skippedText) {
+      this.skippedText = skippedText;
+    }
+
+    TriviaExpression getSkippedText() {
+      return skippedText;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      if (machine.recover(skippedText)) {
+        machine.jump(1);
+      } else {
+        machine.backtrack();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Recover";
+    }
+
+  }
+
+  /**
+   * Backtracks if nothing was matched since the call of enclosing rule.
+   */
+  public static final class NonEmptyExpression extends NativeExpression {
+
+    public static final NonEmptyExpression INSTANCE = new NonEmptyExpression();
+
+    private NonEmptyExpression() {
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      if (machine.getIndex() == machine.peek().index()) {
+        machine.backtrack();
+      } else {
+        machine.jump(1);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "NonEmpty";
+    }
+
+  }
+
+}
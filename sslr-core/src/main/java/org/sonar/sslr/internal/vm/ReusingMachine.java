@@ -0,0 +1,82 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import javax.annotation.Nullable;
+
+/**
+ * Machine for {@link Machine#parseForReuse(char[], CompiledGrammar)}, which tracks characters examined by each node,
+ * and takes nodes of rules from memoized nodes of previous parsing when they are not in memo.
+ * Plain parsing is done by {@link Machine} itself, so that it doesn't pay for this.
+ */
+final class ReusingMachine extends Machine {
+
+  @Nullable
+  private final MemoTable reusableMemos;
+
+  ReusingMachine(char[] input, Instruction[] instructions, @Nullable MemoTable reusableMemos) {
+    super(input, null, instructions, null);
+    this.reusableMemos = reusableMemos;
+    this.examined = 0;
+  }
+
+  // @VisibleForTesting
+  ReusingMachine(String input, Instruction[] instructions) {
+    this(input.toCharArray(), instructions, null);
+  }
+
+  @Override
+  public void pushReturn(int returnOffset, Matcher matcher, int callOffset) {
+    int index = getIndex();
+    ParseNode memo = memos[index];
+    if ((memo == null || memo.getMatcher() != matcher) && reusableMemos != null) {
+      ParseNode reused = reusableMemos.get(index, matcher);
+      if (reused != null) {
+        memo = reused;
+        memos[index] = reused;
+      }
+    }
+    if (memo != null && memo.getMatcher() == matcher && memo.getExaminedIndex() > examined) {
+      examined = memo.getExaminedIndex();
+    }
+    super.pushReturn(returnOffset, matcher, callOffset);
+  }
+
+  @Override
+  public char charAt(int offset) {
+    int i = getIndex() + offset;
+    if (i >= examined) {
+      examined = i + 1;
+    }
+    return super.charAt(offset);
+  }
+
+  @Override
+  public void markExamined(int offset) {
+    int i = getIndex() + offset;
+    if (i >= examined) {
+      examined = Math.min(i, getInput().length) + 1;
+    }
+  }
+
+}
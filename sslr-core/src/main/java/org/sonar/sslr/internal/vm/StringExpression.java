@@ -29,9 +29,19 @@ public class StringExpression extends NativeExpression implements Matcher {
     this.string = string;
   }
 
+  /**
+   * @return specialized expression for a string of a single character, otherwise {@link StringExpression}
+   * @since 1.24
+   */
+  public static StringExpression of(String string) {
+    return string.length() == 1 ? new CharacterExpression(string.charAt(0)) : new StringExpression(string);
+  }
+
   @Override
   public void execute(Machine machine) {
-    if (machine.length() < string.length()) {
+    int length = machine.length();
+    if (length < string.length()) {
+      machine.markExamined(length);
       machine.backtrack();
       return;
     }
@@ -45,6 +55,10 @@ public class StringExpression extends NativeExpression implements Matcher {
     machine.jump(1);
   }
 
+  String getString() {
+    return string;
+  }
+
   @Override
   public String toString() {
     return "String " + string;
@@ -66,6 +66,10 @@ public class TokenExpression implements Matcher, ParsingExpression {
     return result;
   }
 
+  ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
   @Override
   public String toString() {
     return "Token " + tokenType + "[" + subExpression + "]";
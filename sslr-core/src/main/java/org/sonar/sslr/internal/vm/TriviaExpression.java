@@ -51,6 +51,10 @@ public class TriviaExpression implements Matcher, ParsingExpression {
     return TokenExpression.compile(compiler, this, subExpression);
   }
 
+  ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
   @Override
   public String toString() {
     return "Trivia " + triviaKind + "[" + subExpression + "]";
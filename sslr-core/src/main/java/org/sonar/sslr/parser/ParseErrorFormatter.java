@@ -52,6 +52,22 @@ public class ParseErrorFormatter {
     return sb.toString();
   }
 
+  /**
+   * Formats error together with what was expected at the place of error.
+   *
+   * @since 1.24
+   */
+  public String format(ParseErrorReport report) {
+    StringBuilder sb = new StringBuilder(format(report.getParseError()));
+    if (!report.getExpected().isEmpty()) {
+      sb.append("\nExpected one of: ").append(String.join(", ", report.getExpected())).append('\n');
+      for (String path : report.getFailedPaths()) {
+        sb.append("  ").append(path).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
   private static void appendSnippet(StringBuilder sb, InputBuffer inputBuffer, Position position) {
     int startLine = Math.max(position.getLine() - SNIPPET_SIZE, 1);
     int endLine = Math.min(position.getLine() + SNIPPET_SIZE, inputBuffer.getLineCount());
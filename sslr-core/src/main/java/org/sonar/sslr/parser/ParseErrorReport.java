@@ -0,0 +1,92 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.parser;
+
+import org.sonar.sslr.internal.matchers.MatcherPathElement;
+import org.sonar.sslr.internal.vm.ErrorReportingHandler;
+import org.sonar.sslr.internal.vm.ErrorTreeNode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Description of what was expected at the place of {@link ParseError}, see {@link ParseRunner#analyze(ParsingResult)}.
+ *
+ * <p>This class is not intended to be instantiated or subclassed by clients.</p>
+ *
+ * @since 1.24
+ */
+public class ParseErrorReport {
+
+  private final ParseError parseError;
+  private final List<String> expected;
+  private final List<String> failedPaths;
+
+  public ParseErrorReport(ParseError parseError, @Nullable ErrorTreeNode failedPaths) {
+    this.parseError = Objects.requireNonNull(parseError, "parseError");
+    Set<String> expectedSet = new LinkedHashSet<>();
+    List<String> paths = new ArrayList<>();
+    if (failedPaths != null) {
+      collect(failedPaths, "", expectedSet, paths);
+    }
+    this.expected = Collections.unmodifiableList(new ArrayList<>(expectedSet));
+    this.failedPaths = Collections.unmodifiableList(paths);
+  }
+
+  private static void collect(ErrorTreeNode node, String prefix, Set<String> expected, List<String> paths) {
+    String description = describe(node.pathElement);
+    if (node.children.isEmpty()) {
+      expected.add(description);
+      paths.add(prefix + description);
+    } else {
+      for (ErrorTreeNode child : node.children) {
+        collect(child, prefix + description + " > ", expected, paths);
+      }
+    }
+  }
+
+  private static String describe(MatcherPathElement pathElement) {
+    return ErrorReportingHandler.describe(pathElement.getMatcher());
+  }
+
+  public ParseError getParseError() {
+    return parseError;
+  }
+
+  /**
+   * @return descriptions of tokens, which were expected at the place of error, in order of their appearance in grammar
+   */
+  public List<String> getExpected() {
+    return expected;
+  }
+
+  /**
+   * @return for each expected token, the path of rules leading to it, e.g. {@code statement > expression > ")"}
+   */
+  public List<String> getFailedPaths() {
+    return failedPaths;
+  }
+
+}
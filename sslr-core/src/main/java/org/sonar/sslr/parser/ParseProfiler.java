@@ -0,0 +1,371 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.parser;
+
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MachineHandler;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates statistics of grammar rules over all parsings done by {@link ParseRunner#parse(char[], ParseProfiler)}
+ * with this profiler: number of invocations, time, number of failures, reuse of memoized results
+ * and re-scans of input - i.e. invocations of a rule at a position, where it was already invoked during the same parsing,
+ * which could be avoided by memoization.
+ * <p>
+ * Statistics can be exported as CSV, as JSON and as folded stacks, which can be rendered as a flame graph.
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 1.24
+ */
+public final class ParseProfiler {
+
+  private final Map<GrammarRuleKey, RuleStatistics> statistics = new LinkedHashMap<>();
+  private final CallTreeNode callTree = new CallTreeNode(null);
+
+  MachineHandler newHandler() {
+    return new Handler();
+  }
+
+  /**
+   * @return statistics of all invoked rules in order of their first invocation
+   */
+  public Collection<RuleStatistics> getStatistics() {
+    return Collections.unmodifiableCollection(statistics.values());
+  }
+
+  /**
+   * Writes statistics of rules with a header line, one line per rule, in descending order of self time.
+   */
+  public void writeCsv(Appendable out) throws IOException {
+    out.append("rule,invocations,backtracks,memoHits,memoMisses,rescans,rescannedChars,totalTimeNanos,selfTimeNanos\n");
+    for (RuleStatistics rule : sortedStatistics()) {
+      out.append(csvEscape(rule.getName())).append(',')
+        .append(Long.toString(rule.invocations)).append(',')
+        .append(Long.toString(rule.backtracks)).append(',')
+        .append(Long.toString(rule.memoHits)).append(',')
+        .append(Long.toString(rule.memoMisses)).append(',')
+        .append(Long.toString(rule.rescans)).append(',')
+        .append(Long.toString(rule.rescannedChars)).append(',')
+        .append(Long.toString(rule.totalTimeNanos)).append(',')
+        .append(Long.toString(rule.selfTimeNanos)).append('\n');
+    }
+  }
+
+  /**
+   * Writes statistics of rules as an array of objects, in descending order of self time.
+   */
+  public void writeJson(Appendable out) throws IOException {
+    out.append('[');
+    boolean first = true;
+    for (RuleStatistics rule : sortedStatistics()) {
+      out.append(first ? "\n" : ",\n");
+      first = false;
+      out.append("  {\"rule\": ").append(jsonEscape(rule.getName()))
+        .append(", \"invocations\": ").append(Long.toString(rule.invocations))
+        .append(", \"backtracks\": ").append(Long.toString(rule.backtracks))
+        .append(", \"memoHits\": ").append(Long.toString(rule.memoHits))
+        .append(", \"memoMisses\": ").append(Long.toString(rule.memoMisses))
+        .append(", \"rescans\": ").append(Long.toString(rule.rescans))
+        .append(", \"rescannedChars\": ").append(Long.toString(rule.rescannedChars))
+        .append(", \"totalTimeNanos\": ").append(Long.toString(rule.totalTimeNanos))
+        .append(", \"selfTimeNanos\": ").append(Long.toString(rule.selfTimeNanos))
+        .append('}');
+    }
+    out.append(first ? "]\n" : "\n]\n");
+  }
+
+  /**
+   * Writes self time in nanoseconds of each path of rule invocations in "folded stacks" format,
+   * i.e. one line per path with names of rules separated by semicolons, followed by a space and time,
+   * which is accepted by flame graph tools.
+   */
+  public void writeFoldedStacks(Appendable out) throws IOException {
+    for (CallTreeNode child : callTree.children.values()) {
+      writeFoldedStacks(out, child, child.rule.getName());
+    }
+  }
+
+  private static void writeFoldedStacks(Appendable out, CallTreeNode node, String path) throws IOException {
+    if (node.selfTimeNanos > 0) {
+      out.append(path).append(' ').append(Long.toString(node.selfTimeNanos)).append('\n');
+    }
+    for (CallTreeNode child : node.children.values()) {
+      writeFoldedStacks(out, child, path + ";" + child.rule.getName());
+    }
+  }
+
+  private List<RuleStatistics> sortedStatistics() {
+    List<RuleStatistics> result = new ArrayList<>(statistics.values());
+    result.sort(Comparator.comparingLong(RuleStatistics::getSelfTimeNanos).reversed());
+    return result;
+  }
+
+  private static String csvEscape(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static String jsonEscape(String value) {
+    StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * Statistics of a rule.
+   */
+  public static final class RuleStatistics {
+
+    private final MutableParsingRule rule;
+    private long invocations;
+    private long backtracks;
+    private long memoHits;
+    private long memoMisses;
+    private long rescans;
+    private long rescannedChars;
+    private long totalTimeNanos;
+    private long selfTimeNanos;
+    // number of invocations in progress, so that time of recursive invocations is not counted several times in total
+    private int active;
+
+    private RuleStatistics(MutableParsingRule rule) {
+      this.rule = rule;
+    }
+
+    public GrammarRuleKey getRuleKey() {
+      return rule.getRuleKey();
+    }
+
+    public String getName() {
+      return rule.getName();
+    }
+
+    /**
+     * @return number of invocations, excluding the ones whose result was taken from memo
+     */
+    public long getInvocations() {
+      return invocations;
+    }
+
+    /**
+     * @return number of invocations, which didn't match
+     */
+    public long getBacktracks() {
+      return backtracks;
+    }
+
+    /**
+     * @return number of invocations, whose result was taken from memo
+     */
+    public long getMemoHits() {
+      return memoHits;
+    }
+
+    /**
+     * @return number of invocations of memoized rule, whose result was not in memo
+     */
+    public long getMemoMisses() {
+      return memoMisses;
+    }
+
+    /**
+     * @return number of invocations at a position, where rule was already invoked during the same parsing
+     */
+    public long getRescans() {
+      return rescans;
+    }
+
+    /**
+     * @return number of characters matched or examined before failure by {@link #getRescans() re-scans}
+     */
+    public long getRescannedChars() {
+      return rescannedChars;
+    }
+
+    /**
+     * @return time spent in rule including invoked rules
+     */
+    public long getTotalTimeNanos() {
+      return totalTimeNanos;
+    }
+
+    /**
+     * @return time spent in rule excluding invoked rules
+     */
+    public long getSelfTimeNanos() {
+      return selfTimeNanos;
+    }
+
+  }
+
+  private static final class CallTreeNode {
+
+    private final MutableParsingRule rule;
+    private final Map<MutableParsingRule, CallTreeNode> children = new LinkedHashMap<>();
+    private long selfTimeNanos;
+
+    CallTreeNode(@Nullable MutableParsingRule rule) {
+      this.rule = rule;
+    }
+
+    CallTreeNode child(MutableParsingRule childRule) {
+      return children.computeIfAbsent(childRule, CallTreeNode::new);
+    }
+
+  }
+
+  private static final class Invocation {
+
+    private final RuleStatistics statistics;
+    private final CallTreeNode node;
+    private final int startIndex;
+    private final boolean rescan;
+    private final long startNanos;
+    private long childrenNanos;
+
+    Invocation(RuleStatistics statistics, CallTreeNode node, int startIndex, boolean rescan) {
+      this.statistics = statistics;
+      this.node = node;
+      this.startIndex = startIndex;
+      this.rescan = rescan;
+      this.startNanos = System.nanoTime();
+    }
+
+  }
+
+  /**
+   * Handler for a single parsing.
+   */
+  private final class Handler implements MachineHandler {
+
+    private final Deque<Invocation> invocations = new ArrayDeque<>();
+    private final Map<RuleStatistics, BitSet> startIndexes = new IdentityHashMap<>();
+
+    @Override
+    public void onCall(Machine machine) {
+      MutableParsingRule rule = rule(machine.peek().matcher());
+      if (rule == null) {
+        return;
+      }
+      RuleStatistics ruleStatistics = statistics.computeIfAbsent(rule.getRuleKey(), k -> new RuleStatistics(rule));
+      ruleStatistics.invocations++;
+      ruleStatistics.active++;
+      BitSet seen = startIndexes.computeIfAbsent(ruleStatistics, k -> new BitSet());
+      int startIndex = machine.getIndex();
+      boolean rescan = seen.get(startIndex);
+      if (rescan) {
+        ruleStatistics.rescans++;
+      } else {
+        seen.set(startIndex);
+      }
+      CallTreeNode parent = invocations.isEmpty() ? callTree : invocations.peek().node;
+      invocations.push(new Invocation(ruleStatistics, parent.child(rule), startIndex, rescan));
+    }
+
+    @Override
+    public void onReturn(Machine machine) {
+      if (rule(machine.peek().matcher()) != null) {
+        finish(machine.getIndex());
+      }
+    }
+
+    @Override
+    public void onBacktrack(Machine machine) {
+      if (rule(machine.peek().matcher()) != null) {
+        invocations.peek().statistics.backtracks++;
+        finish(machine.getIndex());
+      }
+    }
+
+    @Override
+    public void onMemoHit(Machine machine, ParseNode memo) {
+      MutableParsingRule rule = rule(memo.getMatcher());
+      if (rule != null) {
+        statistics.computeIfAbsent(rule.getRuleKey(), k -> new RuleStatistics(rule)).memoHits++;
+      }
+    }
+
+    @Override
+    public void onMemoMiss(Machine machine) {
+      MutableParsingRule rule = rule(machine.peek().matcher());
+      if (rule != null) {
+        statistics.computeIfAbsent(rule.getRuleKey(), k -> new RuleStatistics(rule)).memoMisses++;
+      }
+    }
+
+    private void finish(int endIndex) {
+      Invocation invocation = invocations.pop();
+      long elapsed = System.nanoTime() - invocation.startNanos;
+      long self = elapsed - invocation.childrenNanos;
+      RuleStatistics ruleStatistics = invocation.statistics;
+      ruleStatistics.active--;
+      if (ruleStatistics.active == 0) {
+        ruleStatistics.totalTimeNanos += elapsed;
+      }
+      ruleStatistics.selfTimeNanos += self;
+      invocation.node.selfTimeNanos += self;
+      if (invocation.rescan) {
+        ruleStatistics.rescannedChars += endIndex - invocation.startIndex;
+      }
+      if (!invocations.isEmpty()) {
+        invocations.peek().childrenNanos += elapsed;
+      }
+    }
+
+  }
+
+  /**
+   * Only grammar rules are profiled, but not tokens and trivias, which are part of rules.
+   */
+  @Nullable
+  private static MutableParsingRule rule(@Nullable Matcher matcher) {
+    return matcher instanceof MutableParsingRule ? (MutableParsingRule) matcher : null;
+  }
+
+}
@@ -20,11 +20,22 @@
 package org.sonar.sslr.parser;
 
 import com.sonar.sslr.api.Rule;
+import org.sonar.sslr.internal.matchers.InputBuffer;
+import org.sonar.sslr.internal.vm.AdaptiveMemoization;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
 import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.CompiledGrammarSerializer;
 import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MemoTable;
 import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Objects;
 
 /**
@@ -42,8 +53,123 @@ public class ParseRunner {
     compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) Objects.requireNonNull(rule, "rule"));
   }
 
+  /**
+   * Creates runner from the grammar written by {@link #writeGrammar(OutputStream)}.
+   * Loading is not necessarily faster than construction and compilation of the grammar from its definition:
+   * for a small grammar, such as PEG grammar of sslr-examples, both take about 60 microseconds.
+   *
+   * @param classLoader used to resolve classes of rule keys and of token types
+   * @throws IOException if data is not a grammar written by {@link #writeGrammar(OutputStream)}
+   * @since 1.24
+   */
+  public ParseRunner(InputStream grammar, ClassLoader classLoader) throws IOException {
+    compiledGrammar = CompiledGrammarSerializer.read(new DataInputStream(new BufferedInputStream(grammar)), classLoader);
+  }
+
+  /**
+   * Writes grammar of this runner in a binary form, which can be loaded by {@link #ParseRunner(InputStream, ClassLoader)}.
+   * Rule keys of the grammar must be constants of enums, unless rules were created without keys,
+   * and token types must be constants of enums.
+   *
+   * @throws IllegalArgumentException if grammar can not be written
+   * @since 1.24
+   */
+  public void writeGrammar(OutputStream out) throws IOException {
+    DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(out));
+    CompiledGrammarSerializer.write(compiledGrammar, dataOutput);
+    dataOutput.flush();
+  }
+
   public ParsingResult parse(char[] input) {
     return Machine.parse(input, compiledGrammar);
   }
 
+  /**
+   * Parses text, adding statistics of invoked rules to the given profiler.
+   *
+   * @since 1.24
+   */
+  public ParsingResult parse(char[] input, ParseProfiler profiler) {
+    return Machine.parse(input, compiledGrammar, profiler.newHandler());
+  }
+
+  /**
+   * Enables memoization of rules, which adapts to the parsed texts, for all subsequent parsings by this runner
+   * instead of memoization of every rule.
+   *
+   * @return policy of memoization, which provides statistics and decisions taken for rules
+   * @since 1.24
+   */
+  public AdaptiveMemoization enableAdaptiveMemoization() {
+    return compiledGrammar.enableAdaptiveMemoization();
+  }
+
+  /**
+   * Parses text, recovering from errors by skipping of text as defined by
+   * {@link org.sonar.sslr.grammar.LexerlessGrammarBuilder#recover(Object, Object)} expressions of grammar.
+   * Result is matched when all errors were recovered, in which case they are listed by {@link ParsingResult#getRecoveredErrors()}
+   * and the parse tree contains skipped text instead of erroneous parts.
+   *
+   * @since 1.24
+   */
+  public ParsingResult parseWithRecovery(char[] input) {
+    return Machine.parseWithRecovery(input, compiledGrammar);
+  }
+
+  /**
+   * Parses text of the given failed result again in order to find out what was expected at the place of error.
+   * This is done separately from {@link #parse(char[])}, so that successful parsing doesn't pay for it.
+   *
+   * @throws IllegalArgumentException if the given result is matched
+   * @since 1.24
+   */
+  public ParseErrorReport analyze(ParsingResult result) {
+    ParseError parseError = result.getParseError();
+    if (result.isMatched() || parseError == null) {
+      throw new IllegalArgumentException("Parsing was successful");
+    }
+    InputBuffer inputBuffer = result.getInputBuffer();
+    char[] input = new char[inputBuffer.length()];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = inputBuffer.charAt(i);
+    }
+    return new ParseErrorReport(parseError, Machine.analyzeError(input, compiledGrammar, parseError.getErrorIndex()));
+  }
+
+  /**
+   * Parses text like {@link #parse(char[])}, but keeps memoized nodes in the result,
+   * so that it can be used for {@link #parse(ParsingResult, TextEdit) incremental parsing} of an edited version of this text.
+   * Result retains its text and memoized nodes, and tracking of examined characters makes parsing slightly slower,
+   * so this should be used only when text is expected to be edited and parsed again.
+   *
+   * @since 1.24
+   */
+  public ParsingResult parseForReuse(char[] input) {
+    return reusable(Machine.parseForReuse(input, compiledGrammar));
+  }
+
+  /**
+   * Parses text obtained by application of the given edit to the text of the given result of previous parsing.
+   * <p>
+   * Nodes of rules, which were memoized during previous parsing and which are not affected by the edit, are reused,
+   * so that only the part of the text around the edit is parsed again. Result is the same as the one of {@link #parse(char[])},
+   * and can be used for incremental parsing again.
+   *
+   * @param previous result of {@link #parseForReuse(char[])} or of incremental parsing by this runner
+   * @throws IllegalArgumentException if the given result doesn't keep memoized nodes
+   * @since 1.24
+   */
+  public ParsingResult parse(ParsingResult previous, TextEdit edit) {
+    MemoTable memoTable = previous.getMemoTable();
+    if (memoTable == null) {
+      throw new IllegalArgumentException("Result of previous parsing can't be reused, it must be produced by parseForReuse");
+    }
+    char[] input = edit.apply(memoTable.getInput());
+    return reusable(Machine.reparse(input, compiledGrammar, memoTable, edit.getOffset(), edit.getRemovedLength(), edit.getInsertedText().length()));
+  }
+
+  private static ParsingResult reusable(MemoTable memoTable) {
+    return new ParsingResult(memoTable.getResult(), memoTable);
+  }
+
 }
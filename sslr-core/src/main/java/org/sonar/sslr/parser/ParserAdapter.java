@@ -28,6 +28,7 @@ import org.sonar.sslr.internal.matchers.AstCreator;
 import org.sonar.sslr.internal.matchers.InputBuffer;
 import org.sonar.sslr.internal.matchers.LocatedText;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -75,6 +76,32 @@ public class ParserAdapter<G extends LexerlessGrammar> extends Parser<G> {
     return parse(text);
   }
 
+  /**
+   * Parses with recovery from errors, see {@link ParseRunner#parseWithRecovery(char[])}.
+   *
+   * @param recoveredErrors receives errors, from which parsing recovered
+   * @return constructed AST, which doesn't contain skipped text
+   * @throws RecognitionException if unable to parse despite recovery
+   * @since 1.24
+   */
+  public AstNode parseWithRecovery(String source, List<ParseError> recoveredErrors) {
+    LocatedText text = new LocatedText(null, source.toCharArray());
+    return parse(text, Objects.requireNonNull(recoveredErrors, "recoveredErrors"));
+  }
+
+  /**
+   * Parses with recovery from errors, see {@link ParseRunner#parseWithRecovery(char[])}.
+   *
+   * @param recoveredErrors receives errors, from which parsing recovered
+   * @return constructed AST, which doesn't contain skipped text
+   * @throws RecognitionException if unable to parse despite recovery
+   * @since 1.24
+   */
+  public AstNode parseWithRecovery(File file, List<ParseError> recoveredErrors) {
+    LocatedText text = new LocatedText(file, fileToCharArray(file, charset));
+    return parse(text, Objects.requireNonNull(recoveredErrors, "recoveredErrors"));
+  }
+
   private static char[] fileToCharArray(File file, Charset charset) {
     try {
       return new String(Files.readAllBytes(Paths.get(file.getPath())), charset).toCharArray();
@@ -84,9 +111,19 @@ public class ParserAdapter<G extends LexerlessGrammar> extends Parser<G> {
   }
 
   private AstNode parse(LocatedText input) {
+    return parse(input, null);
+  }
+
+  /**
+   * @param recoveredErrors null if parsing should be done without recovery
+   */
+  private AstNode parse(LocatedText input, @Nullable List<ParseError> recoveredErrors) {
     char[] chars = input.toChars();
-    ParsingResult result = parseRunner.parse(chars);
+    ParsingResult result = recoveredErrors == null ? parseRunner.parse(chars) : parseRunner.parseWithRecovery(chars);
     if (result.isMatched()) {
+      if (recoveredErrors != null) {
+        recoveredErrors.addAll(result.getRecoveredErrors());
+      }
       return AstCreator.create(result, input);
     } else {
       ParseError parseError = result.getParseError();
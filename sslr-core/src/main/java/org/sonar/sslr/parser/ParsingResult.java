@@ -21,8 +21,11 @@ package org.sonar.sslr.parser;
 
 import org.sonar.sslr.internal.matchers.InputBuffer;
 import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.MemoTable;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -38,12 +41,37 @@ public class ParsingResult {
   private final ParseNode parseTreeRoot;
   private final InputBuffer inputBuffer;
   private final ParseError parseError;
+  private final MemoTable memoTable;
+  private final List<ParseError> recoveredErrors;
 
   public ParsingResult(InputBuffer inputBuffer, boolean matched, @Nullable ParseNode parseTreeRoot, @Nullable ParseError parseError) {
+    this(inputBuffer, matched, parseTreeRoot, parseError, Collections.emptyList());
+  }
+
+  /**
+   * @param recoveredErrors errors from which parser recovered, see {@link ParseRunner#parseWithRecovery(char[])}
+   * @since 1.24
+   */
+  public ParsingResult(InputBuffer inputBuffer, boolean matched, @Nullable ParseNode parseTreeRoot, @Nullable ParseError parseError,
+    List<ParseError> recoveredErrors) {
+    this(inputBuffer, matched, parseTreeRoot, parseError, null, recoveredErrors);
+  }
+
+  /**
+   * Copy of the given result, which keeps memoized nodes for {@link ParseRunner#parse(ParsingResult, TextEdit)}.
+   */
+  ParsingResult(ParsingResult result, MemoTable memoTable) {
+    this(result.inputBuffer, result.matched, result.parseTreeRoot, result.parseError, memoTable, result.recoveredErrors);
+  }
+
+  private ParsingResult(InputBuffer inputBuffer, boolean matched, @Nullable ParseNode parseTreeRoot, @Nullable ParseError parseError,
+    @Nullable MemoTable memoTable, List<ParseError> recoveredErrors) {
     this.inputBuffer = Objects.requireNonNull(inputBuffer, "inputBuffer");
     this.matched = matched;
     this.parseTreeRoot = parseTreeRoot;
     this.parseError = parseError;
+    this.memoTable = memoTable;
+    this.recoveredErrors = Objects.requireNonNull(recoveredErrors, "recoveredErrors");
   }
 
   public InputBuffer getInputBuffer() {
@@ -58,9 +86,22 @@ public class ParsingResult {
     return parseError;
   }
 
+  /**
+   * @return errors from which parser recovered in order of their appearance in text, never null
+   * @since 1.24
+   */
+  public List<ParseError> getRecoveredErrors() {
+    return recoveredErrors;
+  }
+
   // @VisibleForTesting
   public ParseNode getParseTreeRoot() {
     return parseTreeRoot;
   }
 
+  @Nullable
+  MemoTable getMemoTable() {
+    return memoTable;
+  }
+
 }
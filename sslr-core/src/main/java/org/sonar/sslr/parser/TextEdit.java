@@ -0,0 +1,82 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.parser;
+
+import java.util.Objects;
+
+/**
+ * Replacement of a range of characters of a text by another text.
+ *
+ * @see ParseRunner#parse(ParsingResult, TextEdit)
+ * @since 1.24
+ */
+public final class TextEdit {
+
+  private final int offset;
+  private final int removedLength;
+  private final String insertedText;
+
+  /**
+   * @param offset index of the first removed character, or of the insertion point
+   * @param removedLength number of removed characters
+   * @param insertedText text to insert at offset
+   */
+  public TextEdit(int offset, int removedLength, String insertedText) {
+    if (offset < 0 || removedLength < 0) {
+      throw new IllegalArgumentException("Offset and removed length must not be negative: " + offset + ", " + removedLength);
+    }
+    this.offset = offset;
+    this.removedLength = removedLength;
+    this.insertedText = Objects.requireNonNull(insertedText, "insertedText");
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getRemovedLength() {
+    return removedLength;
+  }
+
+  public String getInsertedText() {
+    return insertedText;
+  }
+
+  /**
+   * @return new text, which is the result of application of this edit to the given one
+   * @throws IllegalArgumentException if removed range is out of the given text
+   */
+  public char[] apply(char[] text) {
+    if (offset + removedLength > text.length) {
+      throw new IllegalArgumentException("Edit [" + offset + ", " + (offset + removedLength) + ") is out of text of length " + text.length);
+    }
+    char[] result = new char[text.length - removedLength + insertedText.length()];
+    System.arraycopy(text, 0, result, 0, offset);
+    insertedText.getChars(0, insertedText.length(), result, offset);
+    System.arraycopy(text, offset + removedLength, result, offset + insertedText.length(), text.length - offset - removedLength);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "TextEdit{offset=" + offset + ", removedLength=" + removedLength + ", insertedText=" + insertedText + "}";
+  }
+
+}
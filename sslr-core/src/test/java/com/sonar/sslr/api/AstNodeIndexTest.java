@@ -0,0 +1,219 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class AstNodeIndexTest {
+
+  private AstNodeType a;
+  private AstNodeType b;
+  private AstNodeType c;
+  private AstNode a1;
+  private AstNode a2;
+  private AstNode b1;
+  private AstNode b2;
+  private AstNode b3;
+  private AstNode c1;
+  private AstNode c2;
+
+  /**
+   * <pre>
+   *   A1
+   *   |- A2
+   *   |   \- B1
+   *   |- B2
+   *   |   \- C1
+   *   |- B3
+   *   \- C2
+   * </pre>
+   */
+  @Before
+  public void setUp() {
+    a = mock(AstNodeType.class);
+    b = mock(AstNodeType.class);
+    c = mock(AstNodeType.class);
+    a1 = new AstNode(a, "a1", null);
+    a2 = new AstNode(a, "a2", null);
+    b1 = new AstNode(b, "b1", null);
+    b2 = new AstNode(b, "b2", null);
+    b3 = new AstNode(b, "b3", null);
+    c1 = new AstNode(c, "c1", null);
+    c2 = new AstNode(c, "c2", null);
+    a1.addChild(a2);
+    a2.addChild(b1);
+    a1.addChild(b2);
+    b2.addChild(c1);
+    a1.addChild(b3);
+    a1.addChild(c2);
+  }
+
+  @Test
+  public void should_index_nodes_by_type() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+
+    assertThat(index.getRoot()).isSameAs(a1);
+    assertThat(index.size()).isEqualTo(7);
+    assertThat(index.isValid()).isTrue();
+    assertThat(index.getNodes(a)).containsExactly(a1, a2);
+    assertThat(index.getNodes(b)).containsExactly(b1, b2, b3);
+    assertThat(index.getNodes(mock(AstNodeType.class))).isEmpty();
+
+    assertThat(a1.getIndex()).isSameAs(index);
+    assertThat(c2.getIndex()).isSameAs(index);
+  }
+
+  @Test
+  public void should_give_ids_to_types_in_document_order() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+
+    assertThat(index.getTypes()).containsExactly(a, b, c);
+    assertThat(index.getTypeId(a2)).isEqualTo(0);
+    assertThat(index.getTypeId(b3)).isEqualTo(1);
+    assertThat(index.getTypeId(c2)).isEqualTo(2);
+    assertThrows(IllegalArgumentException.class, () -> index.getTypeId(new AstNode(a, "a3", null)));
+  }
+
+  @Test
+  public void should_answer_descendant_queries() {
+    AstNodeIndex.build(a1);
+
+    assertThat(a1.hasDescendant(mock(AstNodeType.class))).isFalse();
+    assertThat(a1.hasDescendant(a)).isTrue();
+    assertThat(a1.hasDescendant(a, b)).isTrue();
+    assertThat(b3.hasDescendant(a, b, c)).isFalse();
+
+    assertThat(a1.getFirstDescendant(mock(AstNodeType.class))).isNull();
+    assertThat(a1.getFirstDescendant(a)).isSameAs(a2);
+    assertThat(a1.getFirstDescendant(b)).isSameAs(b1);
+    assertThat(a1.getFirstDescendant(c, b)).isSameAs(b1);
+    assertThat(b2.getFirstDescendant(a, c)).isSameAs(c1);
+
+    assertThat(a1.getDescendants(mock(AstNodeType.class))).isEmpty();
+    assertThat(a1.getDescendants(a)).containsExactly(a2);
+    assertThat(a1.getDescendants(b)).containsExactly(b1, b2, b3);
+    assertThat(a1.getDescendants(c, b)).containsExactly(b1, b2, c1, b3, c2);
+    assertThat(a1.getDescendants(b, b)).containsExactly(b1, b1, b2, b2, b3, b3);
+    assertThat(a2.getDescendants(b, c)).containsExactly(b1);
+    assertThat(c2.getDescendants(c)).isEmpty();
+  }
+
+  @Test
+  public void should_answer_descendant_queries_by_name() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+
+    assertThat(index.getDescendantsByName(a1, "unknown")).isEmpty();
+    assertThat(index.getDescendantsByName(a1, "a1")).isEmpty();
+    assertThat(index.getDescendantsByName(a1, "b2")).containsExactly(b2);
+    assertThat(index.getDescendantsByName(a1, "c1")).containsExactly(c1);
+    assertThat(index.getDescendantsByName(b2, "c1")).containsExactly(c1);
+    assertThat(index.getDescendantsByName(b3, "c2")).isEmpty();
+    assertThat(index.getDescendantsByName(c2, "c2")).isEmpty();
+
+    AstNode c3 = new AstNode(c, "c1", null);
+    b3.addChild(c3);
+    AstNodeIndex.build(a1);
+    assertThat(a1.getIndex().getDescendantsByName(a1, "c1")).containsExactly(c1, c3);
+    assertThat(a1.getIndex().getDescendantsByName(b3, "c1")).containsExactly(c3);
+    assertThat(a1.getIndex().getDescendantsByName(a2, "c1")).isEmpty();
+  }
+
+  @Test
+  public void should_answer_descendant_queries_for_many_types() {
+    AstNodeIndex.build(a1);
+    AstNodeType d = mock(AstNodeType.class);
+
+    assertThat(a1.getDescendants(c, b, d, d, d, d, d, d, d)).containsExactly(b1, b2, c1, b3, c2);
+    assertThat(a1.getDescendants(b, b, d, d, d, d, d, d, d)).containsExactly(b1, b1, b2, b2, b3, b3);
+    assertThat(b2.getDescendants(a, b, c, d, d, d, d, d, d)).containsExactly(c1);
+    assertThat(c2.getDescendants(a, b, c, d, d, d, d, d, d)).isEmpty();
+  }
+
+  @Test
+  public void should_answer_ordering_queries() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+
+    assertThat(a1.isAncestorOf(c1)).isTrue();
+    assertThat(b2.isAncestorOf(c1)).isTrue();
+    assertThat(c1.isAncestorOf(c1)).isFalse();
+    assertThat(c1.isAncestorOf(b2)).isFalse();
+    assertThat(a2.isAncestorOf(c1)).isFalse();
+
+    assertThat(a1.isBefore(a2)).isTrue();
+    assertThat(b1.isBefore(b2)).isTrue();
+    assertThat(c1.isBefore(b3)).isTrue();
+    assertThat(b3.isBefore(c1)).isFalse();
+    assertThat(c1.isBefore(c1)).isFalse();
+
+    assertThat(a1.getNextAstNode()).isNull();
+    assertThat(b1.getNextAstNode()).isSameAs(b2);
+    assertThat(b2.getNextAstNode()).isSameAs(b3);
+    assertThat(c1.getNextAstNode()).isSameAs(b3);
+    assertThat(c2.getNextAstNode()).isNull();
+
+    assertThat(index.getFollowing(c1)).containsExactly(b3, c2);
+    assertThat(index.getFollowing(a2)).containsExactly(b2, c1, b3, c2);
+    List<AstNode> preceding = new ArrayList<>();
+    index.getPrecedingIterator(b3).forEachRemaining(preceding::add);
+    assertThat(preceding).containsExactly(c1, b2, b1, a2);
+  }
+
+  @Test
+  public void should_get_next_node_outside_of_index() {
+    AstNodeIndex.build(a2);
+
+    assertThat(b1.getNextAstNode()).isSameAs(b2);
+    assertThat(a2.getNextAstNode()).isSameAs(b2);
+    assertThat(a1.isAncestorOf(b1)).isTrue();
+    assertThat(a1.isBefore(b1)).isTrue();
+  }
+
+  @Test
+  public void should_be_invalidated_by_modification() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+    AstNode c3 = new AstNode(c, "c3", null);
+    b3.addChild(c3);
+
+    assertThat(index.isValid()).isFalse();
+    assertThat(a1.getIndex()).isNull();
+    assertThat(b3.getDescendants(c)).containsExactly(c3);
+  }
+
+  @Test
+  public void should_invalidate_previous_index() {
+    AstNodeIndex index = AstNodeIndex.build(a1);
+    AstNodeIndex subtreeIndex = AstNodeIndex.build(b2);
+
+    assertThat(index.isValid()).isFalse();
+    assertThat(a1.getIndex()).isNull();
+    assertThat(c1.getIndex()).isSameAs(subtreeIndex);
+    assertThat(b2.getDescendants(c)).containsExactly(c1);
+    assertThat(a1.getDescendants(c)).containsExactly(c1, c2);
+  }
+
+}
@@ -121,6 +121,18 @@ public class AstNodeTest {
     assertThat(c1.getFirstAncestor(a, c)).isSameAs(a1);
     assertThat(c1.getFirstAncestor(c, c)).isNull();
 
+    assertThat(a1.isAncestorOf(c1)).isTrue();
+    assertThat(b2.isAncestorOf(c1)).isTrue();
+    assertThat(c1.isAncestorOf(c1)).isFalse();
+    assertThat(a2.isAncestorOf(c1)).isFalse();
+
+    assertThat(a1.isBefore(a2)).isTrue();
+    assertThat(c1.isBefore(b3)).isTrue();
+    assertThat(b3.isBefore(c1)).isFalse();
+    assertThat(a2.isBefore(a1)).isFalse();
+    assertThat(c1.isBefore(c1)).isFalse();
+    assertThat(c1.isBefore(new AstNode(a, "other", null))).isFalse();
+
     assertThat(a1.hasParent()).isFalse();
     assertThat(a2.hasParent(a)).isTrue();
     assertThat(a2.hasParent(b)).isFalse();
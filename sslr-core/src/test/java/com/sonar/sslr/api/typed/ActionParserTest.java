@@ -32,10 +32,15 @@ import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.vm.PatternExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
+import org.sonar.sslr.parser.ParseError;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -114,6 +119,28 @@ public class ActionParserTest {
     assertEquals("Unexpected trivia kind: PREPROCESSOR", thrown.getMessage());
   }
 
+  @Test
+  public void recovery() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammarKeys.PLUS).is(b.regexp("\\+"));
+    b.rule(MyGrammarKeys.MINUS).is(b.regexp("-"));
+    b.rule(MyGrammarKeys.NUMERIC_TOKEN).is(
+      b.optional(b.skippedTrivia(b.regexp("\\s+"))),
+      b.recover(b.next(b.regexp("[0-9]+")), b.next(b.regexp("[0-9]+"))),
+      b.regexp("[0-9]+"));
+    b.rule(MyGrammarKeys.EOF).is(b.token(GenericTokenType.EOF, b.endOfInput())).skip();
+    ActionParser<AstNode> parser = new ActionParser<>(StandardCharsets.UTF_8, b, MyGrammar.class, new MyTreeFactory(), new AstNodeBuilder(), MyGrammarKeys.NUMERIC_LIST);
+
+    assertThat(parser.parse("42 x 7 y z 1").toString()).isEqualTo("[42]");
+
+    List<ParseError> recoveredErrors = new ArrayList<>();
+    AstNode node = parser.parseWithRecovery("42 x 7 y z 1", recoveredErrors);
+    assertThat(node.toString()).isEqualTo("[42, 7, 1]");
+    assertThat(recoveredErrors).hasSize(2);
+    assertThat(recoveredErrors.get(0).getErrorIndex()).isEqualTo(3);
+    assertThat(recoveredErrors.get(1).getErrorIndex()).isEqualTo(7);
+  }
+
   @Test
   public void rootRule() throws Exception {
     assertThat(parser(MyGrammarKeys.OPERATOR).rootRule()).isEqualTo(MyGrammarKeys.OPERATOR);
@@ -143,6 +170,32 @@ public class ActionParserTest {
     assertThat(parse(MyGrammarKeys.NUMERIC2, "42", Numeric.class).toString()).isEqualTo("42");
   }
 
+  @Test
+  public void written_grammar() throws Exception {
+    ActionParser<AstNode> parser = reload(parser(MyGrammarKeys.UNARY_EXP));
+    assertThat(parser.rootRule()).isEqualTo(MyGrammarKeys.UNARY_EXP);
+    assertThat(parser.parse("42")).isInstanceOf(UnaryExp.class);
+    assertThat(parser.parse("+/* myComment */ 42").toString()).isEqualTo("+ 42");
+    assertThrows(RecognitionException.class, () -> parser.parse("x"));
+
+    assertThat(reload(parser(MyGrammarKeys.NUMERIC_LIST)).parse("42 7").toString()).isEqualTo("[42, 7]");
+    assertThat(reload(parser(MyGrammarKeys.POTENTIALLY_EMPTY_NUMERIC_LIST)).parse("").toString()).isEqualTo("[]");
+    assertThat(reload(parser(MyGrammarKeys.OPERATOR)).parse("-").toString()).isEqualTo("-");
+    assertThat(reload(parser(MyGrammarKeys.NUMERIC_WITH_EOF)).parse("42").toString()).isEqualTo("42");
+  }
+
+  @Test
+  public void read_invalid_grammar() {
+    assertThrows(IOException.class,
+      () -> new ActionParser<AstNode>(StandardCharsets.UTF_8, new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), new MyTreeFactory(), new AstNodeBuilder()));
+  }
+
+  private static ActionParser<AstNode> reload(ActionParser<AstNode> parser) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    parser.writeGrammar(out);
+    return new ActionParser<>(StandardCharsets.UTF_8, new ByteArrayInputStream(out.toByteArray()), new MyTreeFactory(), new AstNodeBuilder());
+  }
+
   @SuppressWarnings("unchecked")
   private <T extends AstNode> T parse(GrammarRuleKey ruleKey, String toParse, Class<T> expectedClass) {
     AstNode astNode = parse(ruleKey, toParse);
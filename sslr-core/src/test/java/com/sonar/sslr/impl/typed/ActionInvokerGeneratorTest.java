@@ -0,0 +1,108 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class ActionInvokerGeneratorTest {
+
+  public static class BaseFactory {
+    public Object base(String s) {
+      return "base(" + s + ")";
+    }
+  }
+
+  public static class Factory extends BaseFactory {
+    public Object none() {
+      return "none()";
+    }
+
+    public Object two(String first, Integer second) {
+      return "two(" + first + ", " + second + ")";
+    }
+
+    public Object fail() {
+      throw new IllegalStateException("fail()");
+    }
+  }
+
+  static class NotAccessible {
+  }
+
+  public static class FactoryWithNotAccessibleParameter {
+    public Object m(NotAccessible p) {
+      return "m()";
+    }
+  }
+
+  @Test
+  public void should_generate_direct_calls() throws Exception {
+    ActionInvoker invoker = ActionInvokerGenerator.create(Factory.class, Arrays.asList(
+      Factory.class.getMethod("none"),
+      Factory.class.getMethod("two", String.class, Integer.class),
+      Factory.class.getMethod("base", String.class),
+      Factory.class.getMethod("fail")));
+
+    assertThat(invoker.getClass().getName()).isEqualTo("GeneratedBySSLR$ActionInvoker");
+    Factory factory = new Factory();
+    assertThat(invoker.invoke(0, factory, Collections.emptyList())).isEqualTo("none()");
+    assertThat(invoker.invoke(1, factory, Arrays.asList("a", 42))).isEqualTo("two(a, 42)");
+    assertThat(invoker.invoke(2, factory, Collections.singletonList("b"))).isEqualTo("base(b)");
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> invoker.invoke(3, factory, Collections.emptyList()));
+    assertThat(e.getMessage()).isEqualTo("fail()");
+    assertThrows(IllegalArgumentException.class, () -> invoker.invoke(4, factory, Collections.emptyList()));
+    assertThrows(ClassCastException.class, () -> invoker.invoke(1, factory, Arrays.asList(42, "a")));
+  }
+
+  @Test
+  public void should_share_invoker_for_same_class_and_actions() throws Exception {
+    List<Method> actions = Arrays.asList(Factory.class.getMethod("none"), Factory.class.getMethod("base", String.class));
+    ActionInvoker invoker = ActionInvokerGenerator.create(Factory.class, actions);
+
+    assertThat(ActionInvokerGenerator.create(Factory.class, new ArrayList<>(actions))).isSameAs(invoker);
+    assertThat(ActionInvokerGenerator.create(Factory.class, Arrays.asList(actions.get(1), actions.get(0)))).isNotSameAs(invoker);
+    assertThat(ActionInvokerGenerator.create(BaseFactory.class, actions.subList(1, 2)))
+      .isNotSameAs(ActionInvokerGenerator.create(Factory.class, actions.subList(1, 2)));
+  }
+
+  @Test
+  public void should_fallback_to_reflection() throws Exception {
+    Method method = FactoryWithNotAccessibleParameter.class.getMethod("m", NotAccessible.class);
+    ActionInvoker invoker = ActionInvokerGenerator.create(FactoryWithNotAccessibleParameter.class, Collections.singletonList(method));
+
+    assertThat(invoker.getClass().getName()).doesNotContain("GeneratedBySSLR");
+    assertThat(invoker.invoke(0, new FactoryWithNotAccessibleParameter(), Collections.singletonList(new NotAccessible()))).isEqualTo("m()");
+  }
+
+  @Test
+  public void should_support_no_actions() {
+    assertThat(ActionInvokerGenerator.create(Factory.class, Collections.emptyList())).isNotNull();
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import org.junit.Test;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.StringExpression;
+
+import java.lang.reflect.Method;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SyntheticRuleExpressionTest {
+
+  @Test
+  public void should_compile_inline() {
+    StringExpression subExpression = new StringExpression("foo");
+    SyntheticRuleExpression expression = new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ACTION, 3, subExpression, "f.foo()");
+    assertThat(expression.toString()).isEqualTo("f.foo()");
+    assertThat(expression.getKind()).isSameAs(SyntheticRuleExpression.Kind.ACTION);
+    assertThat(expression.getAction()).isEqualTo(3);
+    assertThat(expression.getSubExpression()).isSameAs(subExpression);
+    Instruction[] instructions = expression.compile(new CompilationHandler());
+    assertThat(instructions).isEqualTo(new Instruction[] {
+      Instruction.mark(expression),
+      subExpression,
+      Instruction.mark(expression)
+    });
+  }
+
+  @Test
+  public void should_be_recognized_by_interceptor() throws Exception {
+    GrammarBuilderInterceptor<Object> interceptor = new GrammarBuilderInterceptor<>(LexerlessGrammarBuilder.create());
+    Method method = Object.class.getMethod("toString");
+    interceptor.addAction(method, 0);
+    SyntheticRuleExpression action = new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ACTION, 0, null, "action");
+    SyntheticRuleExpression optional = new SyntheticRuleExpression(SyntheticRuleExpression.Kind.OPTIONAL, -1, null, "optional");
+    SyntheticRuleExpression oneOrMore = new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ONE_OR_MORE, -1, null, "oneOrMore");
+    SyntheticRuleExpression zeroOrMore = new SyntheticRuleExpression(SyntheticRuleExpression.Kind.ZERO_OR_MORE, -1, null, "zeroOrMore");
+
+    assertThat(interceptor.actionForRuleKey(action)).isSameAs(method);
+    assertThat(interceptor.actionForRuleKey(optional)).isNull();
+    assertThat(interceptor.isOptionalRule(optional)).isTrue();
+    assertThat(interceptor.isOptionalRule(zeroOrMore)).isFalse();
+    assertThat(interceptor.isOneOrMoreRule(oneOrMore)).isTrue();
+    assertThat(interceptor.isOneOrMoreRule(action)).isFalse();
+    assertThat(interceptor.isZeroOrMoreRule(zeroOrMore)).isTrue();
+    assertThat(interceptor.isZeroOrMoreRule("zeroOrMore")).isFalse();
+  }
+
+}
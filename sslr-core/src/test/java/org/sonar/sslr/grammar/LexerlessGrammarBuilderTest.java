@@ -24,6 +24,8 @@ import com.sonar.sslr.api.Trivia.TriviaKind;
 import org.junit.Test;
 import org.sonar.sslr.internal.grammar.MutableGrammar;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.vm.CharacterClassExpression;
+import org.sonar.sslr.internal.vm.CharacterExpression;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
 import org.sonar.sslr.internal.vm.EndOfInputExpression;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
@@ -59,6 +61,8 @@ public class LexerlessGrammarBuilderTest {
     assertThat(b.convertToExpression(e1)).isSameAs(e1);
     assertThat(b.convertToExpression("")).isInstanceOf(StringExpression.class);
     assertThat(b.convertToExpression('c')).isInstanceOf(StringExpression.class);
+    assertThat(b.convertToExpression('c')).isInstanceOf(CharacterExpression.class);
+    assertThat(b.convertToExpression("c")).isInstanceOf(CharacterExpression.class);
 
     GrammarRuleKey ruleKey = mock(GrammarRuleKey.class);
     assertThat(b.convertToExpression(ruleKey)).isInstanceOf(MutableParsingRule.class);
@@ -88,6 +92,7 @@ public class LexerlessGrammarBuilderTest {
     assertThat(b.nothing()).as("singleton").isSameAs(NothingExpression.INSTANCE);
 
     assertThat(b.regexp("")).isInstanceOf(PatternExpression.class);
+    assertThat(b.regexp("[a-z]++")).isInstanceOf(CharacterClassExpression.class);
 
     assertThat(b.endOfInput()).as("singleton").isSameAs(EndOfInputExpression.INSTANCE);
   }
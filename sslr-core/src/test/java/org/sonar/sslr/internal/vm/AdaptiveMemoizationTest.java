@@ -0,0 +1,140 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.AdaptiveMemoization.RuleStatistics;
+import org.sonar.sslr.parser.GrammarOperators;
+import org.sonar.sslr.parser.ParseRunner;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AdaptiveMemoizationTest {
+
+  private MutableParsingRule root;
+  private MutableParsingRule a;
+  private MutableParsingRule b;
+  private ParseRunner runner;
+
+  @Before
+  public void setUp() {
+    root = new MutableParsingRule("root");
+    a = new MutableParsingRule("A");
+    b = new MutableParsingRule("B");
+    root.is(GrammarOperators.zeroOrMore(GrammarOperators.firstOf(GrammarOperators.sequence(a, "x"), GrammarOperators.sequence(a, "y"), b)));
+    a.is("a");
+    b.is("b");
+    runner = new ParseRunner(root);
+  }
+
+  @Test
+  public void should_keep_decisions_of_rules_until_enough_matches() {
+    AdaptiveMemoization memoization = runner.enableAdaptiveMemoization();
+    assertThat(runner.enableAdaptiveMemoization()).isSameAs(memoization);
+    assertThat(runner.parse("ayb".toCharArray()).isMatched()).isTrue();
+
+    assertThat(memoization.getParsings()).isEqualTo(1);
+    for (RuleStatistics statistics : memoization.getStatistics()) {
+      assertThat(statistics.isMemoized()).isTrue();
+      assertThat(statistics.isOverridden()).isFalse();
+    }
+  }
+
+  @Test
+  public void should_disable_memoization_of_rules_without_reentries() {
+    AdaptiveMemoization memoization = runner.enableAdaptiveMemoization();
+    char[] input = repeat("ayb", AdaptiveMemoization.WINDOW).toCharArray();
+    assertThat(runner.parse(input).isMatched()).isTrue();
+
+    List<RuleStatistics> statistics = memoization.getStatistics();
+    assertThat(statistics).hasSize(3);
+    RuleStatistics statisticsOfA = statistics(statistics, a);
+    assertThat(statisticsOfA.getMatches()).isEqualTo(AdaptiveMemoization.WINDOW);
+    assertThat(statisticsOfA.getReentries()).isEqualTo(AdaptiveMemoization.WINDOW);
+    assertThat(statisticsOfA.isMemoized()).isTrue();
+
+    RuleStatistics statisticsOfB = statistics(statistics, b);
+    assertThat(statisticsOfB.getMatches()).isEqualTo(AdaptiveMemoization.WINDOW);
+    assertThat(statisticsOfB.getReentries()).isEqualTo(0);
+    assertThat(statisticsOfB.isMemoized()).isFalse();
+    assertThat(statisticsOfB.isOverridden()).isTrue();
+    assertThat(statisticsOfB.toString()).isEqualTo("B not memoized (0 re-entries / 32 matches)");
+  }
+
+  @Test
+  public void should_enable_memoization_of_rules_with_reentries_across_parsings() {
+    AdaptiveMemoization memoization = runner.enableAdaptiveMemoization();
+    char[] input = repeat("ay", AdaptiveMemoization.WINDOW / 2).toCharArray();
+    // first parsing decides to disable memoization of A, because of too few re-entries
+    assertThat(runner.parse(repeat("ax", AdaptiveMemoization.WINDOW * 2).toCharArray()).isMatched()).isTrue();
+    assertThat(statistics(memoization.getStatistics(), a).isMemoized()).isFalse();
+
+    // and following parsings count re-entries of A, which are not memo hits anymore
+    for (int i = 0; i < 10; i++) {
+      assertThat(runner.parse(input).isMatched()).isTrue();
+    }
+    RuleStatistics statisticsOfA = statistics(memoization.getStatistics(), a);
+    assertThat(memoization.getParsings()).isEqualTo(11);
+    assertThat(statisticsOfA.getReentries()).isEqualTo(10 * AdaptiveMemoization.WINDOW / 2);
+    assertThat(statisticsOfA.isMemoized()).isTrue();
+  }
+
+  @Test
+  public void should_produce_same_result_as_without_adaptive_memoization() {
+    char[] input = repeat("aybax", AdaptiveMemoization.WINDOW * 4).toCharArray();
+    String expected = toString(runner.parse(input).getParseTreeRoot());
+    runner.enableAdaptiveMemoization();
+    for (int i = 0; i < 3; i++) {
+      assertThat(toString(runner.parse(input).getParseTreeRoot())).isEqualTo(expected);
+    }
+  }
+
+  private static String toString(ParseNode node) {
+    StringBuilder result = new StringBuilder();
+    result.append(node.getMatcher()).append('[').append(node.getStartIndex()).append(',').append(node.getEndIndex());
+    for (ParseNode child : node.getChildren()) {
+      result.append(' ').append(toString(child));
+    }
+    return result.append(']').toString();
+  }
+
+  private static String repeat(String s, int times) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      result.append(s);
+    }
+    return result.toString();
+  }
+
+  private static RuleStatistics statistics(List<RuleStatistics> statistics, MutableParsingRule rule) {
+    for (RuleStatistics ruleStatistics : statistics) {
+      if (ruleStatistics.getRule() == rule) {
+        return ruleStatistics;
+      }
+    }
+    throw new AssertionError(rule.getName());
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Test;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CharacterClassExpressionTest {
+
+  @Test
+  public void should_parse_supported_expressions() {
+    assertThat(CharacterClassExpression.parse("a")).isNotNull();
+    assertThat(CharacterClassExpression.parse("\\+")).isNotNull();
+    assertThat(CharacterClassExpression.parse("\\s*+")).isNotNull();
+    assertThat(CharacterClassExpression.parse("\\d++")).isNotNull();
+    assertThat(CharacterClassExpression.parse("[a-z]")).isNotNull();
+    assertThat(CharacterClassExpression.parse("[ \\t]*")).isNotNull();
+    assertThat(CharacterClassExpression.parse("[+-]+")).isNotNull();
+    assertThat(CharacterClassExpression.parse("[\\s,]")).isNotNull();
+  }
+
+  @Test
+  public void should_not_parse_unsupported_expressions() {
+    assertThat(CharacterClassExpression.parse("")).isNull();
+    assertThat(CharacterClassExpression.parse("ab")).isNull();
+    assertThat(CharacterClassExpression.parse(".")).isNull();
+    assertThat(CharacterClassExpression.parse("a?")).isNull();
+    assertThat(CharacterClassExpression.parse("a*?")).isNull();
+    assertThat(CharacterClassExpression.parse("a{2}")).isNull();
+    assertThat(CharacterClassExpression.parse("(a)")).isNull();
+    assertThat(CharacterClassExpression.parse("[^a]")).isNull();
+    assertThat(CharacterClassExpression.parse("[a&&b]")).isNull();
+    assertThat(CharacterClassExpression.parse("[[a]b]")).isNull();
+    assertThat(CharacterClassExpression.parse("\\p{L}")).isNull();
+    assertThat(CharacterClassExpression.parse("\\u0041")).isNull();
+    assertThat(CharacterClassExpression.parse("[\\x{10000}-\\x{10001}]")).isNull();
+  }
+
+  @Test
+  public void should_be_created_for_supported_expressions() {
+    assertThat(PatternExpression.of("[a-z]+")).isInstanceOf(CharacterClassExpression.class);
+    assertThat(PatternExpression.of("[a-z]+").toString()).isEqualTo("Pattern [a-z]+");
+    assertThat(PatternExpression.of("foo|bar") instanceof CharacterClassExpression).isFalse();
+  }
+
+  @Test
+  public void should_match_single_character() {
+    CharacterClassExpression expression = CharacterClassExpression.parse("[a-c]");
+    assertMatch(expression, "b", 1, 1);
+    assertMatch(expression, "bb", 1, 1);
+    assertMatch(expression, "d", -1, 1);
+    assertMatch(expression, "", -1, 1);
+  }
+
+  @Test
+  public void should_match_zero_or_more_characters() {
+    CharacterClassExpression expression = CharacterClassExpression.parse("[ \\t]*+");
+    assertMatch(expression, " \tx", 2, 3);
+    assertMatch(expression, "x", 0, 1);
+    // end of input examined
+    assertMatch(expression, "  ", 2, 3);
+    assertMatch(expression, "", 0, 1);
+  }
+
+  @Test
+  public void should_match_one_or_more_characters() {
+    CharacterClassExpression expression = CharacterClassExpression.parse("\\d+");
+    assertMatch(expression, "42x", 2, 3);
+    assertMatch(expression, "x", -1, 1);
+    assertMatch(expression, "", -1, 1);
+  }
+
+  @Test
+  public void should_match_same_as_pattern() {
+    String[] regexps = {"\\s*", "[a-z0-9_]+", "[\\t\\]\\-]*", "-", "\\.", "[.]+", "[\u00e0-\u00ff]"};
+    String[] inputs = {"", " \n\tx", "ab_9-", "\t]-a", "-.", "..a", "\u00e9\u00e0", "\ud83d\ude00"};
+    for (String regexp : regexps) {
+      CharacterClassExpression characterClass = CharacterClassExpression.parse(regexp);
+      assertThat(characterClass).as(regexp).isNotNull();
+      PatternExpression pattern = new PatternExpression(regexp);
+      for (String input : inputs) {
+        assertThat(execute(characterClass, input)).as(regexp + " on " + input).isEqualTo(execute(pattern, input));
+      }
+    }
+  }
+
+  private static void assertMatch(CharacterClassExpression expression, String input, int expectedLength, int expectedExaminedIndex) {
+    assertThat(execute(expression, input)).isEqualTo(expectedLength + "/" + expectedExaminedIndex);
+  }
+
+  /**
+   * @return length of match or -1 if there is no match, followed by upper bound of indexes of examined characters
+   */
+  private static String execute(PatternExpression expression, String input) {
+    Machine machine = new ReusingMachine(input, new Instruction[] {expression, Instruction.end()});
+    machine.pushBacktrack(2);
+    expression.execute(machine);
+    boolean matched = machine.getAddress() == 1;
+    int length = machine.getIndex();
+    // node records examined characters
+    machine.createLeafNode(expression, 0);
+    List<ParseNode> nodes = machine.peek().subNodes();
+    return (matched ? length : -1) + "/" + nodes.get(nodes.size() - 1).getExaminedIndex();
+  }
+
+}
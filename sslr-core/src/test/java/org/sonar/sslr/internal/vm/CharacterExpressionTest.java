@@ -0,0 +1,83 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.GenericTokenType;
+import org.junit.Test;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CharacterExpressionTest {
+
+  private CharacterExpression expression = new CharacterExpression('a');
+
+  @Test
+  public void should_compile() {
+    assertThat(expression.compile(new CompilationHandler())).containsOnly(expression);
+    assertThat(expression.toString()).isEqualTo("String a");
+    assertThat(expression.getString()).isEqualTo("a");
+  }
+
+  @Test
+  public void should_be_created_for_single_character() {
+    assertThat(StringExpression.of("a")).isInstanceOf(CharacterExpression.class);
+    assertThat(StringExpression.of("ab") instanceof CharacterExpression).isFalse();
+    assertThat(StringExpression.of("") instanceof CharacterExpression).isFalse();
+  }
+
+  @Test
+  public void should_match() {
+    Machine machine = new ReusingMachine("ab", new Instruction[] {expression});
+    expression.execute(machine);
+    assertThat(machine.getIndex()).isEqualTo(1);
+    assertThat(machine.getAddress()).isEqualTo(1);
+    ParseNode node = machine.peek().subNodes().get(0);
+    assertThat(node.getMatcher()).isSameAs(expression);
+    assertThat(node.getStartIndex()).isEqualTo(0);
+    assertThat(node.getEndIndex()).isEqualTo(1);
+    assertThat(node.getExaminedIndex()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_backtrack() {
+    assertThat(Machine.execute("b", new Instruction[] {expression})).isFalse();
+    assertThat(Machine.execute("", new Instruction[] {expression})).isFalse();
+  }
+
+  @Test
+  public void should_not_create_node_inside_of_token() {
+    Instruction[] instructions = new TokenExpression(GenericTokenType.IDENTIFIER, expression).compile(new CompilationHandler());
+    Machine machine = new Machine("a", instructions);
+    // execute up to Ret
+    while (machine.getAddress() != instructions.length - 1) {
+      instructions[machine.getAddress()].execute(machine);
+    }
+    assertThat(machine.getIndex()).isEqualTo(1);
+    assertThat(machine.peek().subNodes()).isEmpty();
+
+    instructions[machine.getAddress()].execute(machine);
+    ParseNode node = machine.peek().subNodes().get(0);
+    assertThat(node.getMatcher()).isInstanceOf(TokenExpression.class);
+    assertThat(node.getEndIndex()).isEqualTo(1);
+    assertThat(node.getChildren()).isEmpty();
+  }
+
+}
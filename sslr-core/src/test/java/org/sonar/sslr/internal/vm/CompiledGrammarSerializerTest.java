@@ -0,0 +1,180 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.GenericTokenType;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.CompiledGrammarSerializer.ObjectCodec;
+import org.sonar.sslr.parser.ParsingResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class CompiledGrammarSerializerTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, WORD, SPACING
+  }
+
+  @Test
+  public void should_read_written_grammar() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.ROOT).is(b.oneOrMore(Keys.WORD), b.token(GenericTokenType.EOF, b.endOfInput()));
+    b.rule(Keys.WORD).is(Keys.SPACING, b.firstOf("foo", b.regexp("[0-9]+")), b.nextNot(b.nothing()));
+    b.rule(Keys.SPACING).is(b.skippedTrivia(b.regexp("\\s*"))).skip();
+    CompiledGrammar grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+
+    CompiledGrammar restored = read(write(grammar));
+
+    assertThat(restored.getRootRuleKey()).isSameAs(Keys.ROOT);
+    assertThat(restored.getRootRuleOffset()).isEqualTo(grammar.getRootRuleOffset());
+    assertThat(restored.getInstructions().length).isEqualTo(grammar.getInstructions().length);
+    for (int i = 0; i < grammar.getInstructions().length; i++) {
+      assertThat(restored.getInstructions()[i].toString()).isEqualTo(grammar.getInstructions()[i].toString());
+    }
+    MutableParsingRule spacing = (MutableParsingRule) restored.getMatcher(Keys.SPACING);
+    assertThat(spacing.hasToBeSkippedFromAst(null)).isTrue();
+
+    ParsingResult result = Machine.parse("foo 42".toCharArray(), restored);
+    assertThat(result.isMatched()).isTrue();
+    ParseNode root = result.getParseTreeRoot();
+    assertThat(root.getMatcher()).isSameAs(restored.getMatcher(Keys.ROOT));
+    assertThat(root.getChildren().get(1).getMatcher()).isSameAs(restored.getMatcher(Keys.WORD));
+    assertThat(Machine.parse("foo bar".toCharArray(), restored).isMatched()).isFalse();
+  }
+
+  @Test
+  public void should_read_written_recovery() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.ROOT).is(b.zeroOrMore(b.recover(Keys.WORD, b.next(" foo"))), b.endOfInput());
+    b.rule(Keys.WORD).is(b.regexp(" *"), "foo");
+    CompiledGrammar grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+
+    CompiledGrammar restored = read(write(grammar));
+
+    ParsingResult result = Machine.parseWithRecovery(" foo bar foo baz".toCharArray(), restored);
+    assertThat(result.isMatched()).isTrue();
+    assertThat(result.getRecoveredErrors()).hasSize(2);
+    assertThat(result.getRecoveredErrors().get(0).getErrorIndex()).isEqualTo(5);
+    assertThat(result.getRecoveredErrors().get(1).getErrorIndex()).isEqualTo(13);
+  }
+
+  @Test
+  public void should_preserve_rules_created_by_name() throws Exception {
+    MutableParsingRule rule = new MutableParsingRule("rule");
+    rule.setExpression(new StringExpression("foo"));
+    CompiledGrammar grammar = MutableGrammarCompiler.compile(rule);
+
+    CompiledGrammar restored = read(write(grammar));
+
+    MutableParsingRule restoredRule = (MutableParsingRule) restored.getMatcher(restored.getRootRuleKey());
+    assertThat(restoredRule.getName()).isEqualTo("rule");
+    assertThat(Machine.parse("foo".toCharArray(), restored).isMatched()).isTrue();
+  }
+
+  @Test
+  public void should_fail_to_write_unsupported_rule_key() {
+    MutableParsingRule rule = new MutableParsingRule(new GrammarRuleKey() {
+    });
+    rule.setExpression(new StringExpression("foo"));
+    CompiledGrammar grammar = MutableGrammarCompiler.compile(rule);
+
+    assertThrows(IllegalArgumentException.class, () -> write(grammar));
+  }
+
+  @Test
+  public void should_write_unsupported_rule_key_with_codec() throws Exception {
+    GrammarRuleKey key = new GrammarRuleKey() {
+    };
+    MutableParsingRule rule = new MutableParsingRule(key);
+    rule.setExpression(new StringExpression("foo"));
+    CompiledGrammar grammar = MutableGrammarCompiler.compile(rule);
+    ObjectCodec codec = new ObjectCodec() {
+      @Override
+      public boolean canWrite(Object object) {
+        return object == key;
+      }
+
+      @Override
+      public void write(DataOutput out, Object object) {
+        // the only supported object
+      }
+
+      @Override
+      public Object read(DataInput in) {
+        return key;
+      }
+    };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledGrammarSerializer.write(grammar, new DataOutputStream(out), codec);
+    byte[] data = out.toByteArray();
+
+    CompiledGrammar restored = CompiledGrammarSerializer.read(new DataInputStream(new ByteArrayInputStream(data)), null, codec);
+    assertThat(restored.getRootRuleKey()).isSameAs(key);
+    IOException thrown = assertThrows(IOException.class, () -> read(data));
+    assertThat(thrown.getMessage()).isEqualTo("Unable to read object serialized by ObjectCodec without it");
+  }
+
+  @Test
+  public void should_not_compile_again_sub_expressions_of_tokens() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.ROOT).is(b.token(GenericTokenType.EOF, b.endOfInput()));
+    CompiledGrammar restored = read(write(MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT))));
+
+    TokenExpression token = null;
+    for (Instruction instruction : restored.getInstructions()) {
+      if (instruction instanceof Instruction.CallInstruction && ((Instruction.CallInstruction) instruction).getMatcher() instanceof TokenExpression) {
+        token = (TokenExpression) ((Instruction.CallInstruction) instruction).getMatcher();
+      }
+    }
+    ParsingExpression subExpression = token.getSubExpression();
+    IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> subExpression.compile(null));
+    assertThat(thrown.getMessage()).isEqualTo("Sub-expression of deserialized grammar can not be compiled again: " + subExpression);
+  }
+
+  @Test
+  public void should_fail_to_read_invalid_data() {
+    IOException thrown = assertThrows(IOException.class, () -> read(new byte[] {0, 0, 0, 0}));
+    assertThat(thrown.getMessage()).isEqualTo("Not a compiled grammar");
+  }
+
+  private static byte[] write(CompiledGrammar grammar) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledGrammarSerializer.write(grammar, new DataOutputStream(out));
+    return out.toByteArray();
+  }
+
+  private static CompiledGrammar read(byte[] data) throws IOException {
+    return CompiledGrammarSerializer.read(new DataInputStream(new ByteArrayInputStream(data)), CompiledGrammarSerializerTest.class.getClassLoader());
+  }
+
+}
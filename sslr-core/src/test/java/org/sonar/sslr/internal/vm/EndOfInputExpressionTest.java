@@ -44,6 +44,7 @@ public class EndOfInputExpressionTest {
     when(machine.length()).thenReturn(0);
     expression.execute(machine);
     InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).markExamined(0);
     inOrder.verify(machine).length();
     inOrder.verify(machine).jump(1);
     verifyNoMoreInteractions(machine);
@@ -54,6 +55,7 @@ public class EndOfInputExpressionTest {
     when(machine.length()).thenReturn(1);
     expression.execute(machine);
     InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).markExamined(0);
     inOrder.verify(machine).length();
     inOrder.verify(machine).backtrack();
     verifyNoMoreInteractions(machine);
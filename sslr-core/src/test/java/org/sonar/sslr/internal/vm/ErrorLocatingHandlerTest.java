@@ -32,6 +32,8 @@ public class ErrorLocatingHandlerTest {
   @Test
   public void should_find_location_of_error() {
     Machine machine = mock(Machine.class);
+    MachineStack stack = mock(MachineStack.class);
+    when(machine.peek()).thenReturn(stack);
     when(machine.getIndex()).thenReturn(1);
     errorLocatingHandler.onBacktrack(machine);
     assertThat(errorLocatingHandler.getErrorIndex()).isEqualTo(1);
@@ -43,4 +45,15 @@ public class ErrorLocatingHandlerTest {
     assertThat(errorLocatingHandler.getErrorIndex()).isEqualTo(3);
   }
 
+  @Test
+  public void should_ignore_errors_inside_of_predicates() {
+    Machine machine = mock(Machine.class);
+    MachineStack stack = mock(MachineStack.class);
+    when(machine.peek()).thenReturn(stack);
+    when(stack.isIgnoreErrors()).thenReturn(true);
+    when(machine.getIndex()).thenReturn(1);
+    errorLocatingHandler.onBacktrack(machine);
+    assertThat(errorLocatingHandler.getErrorIndex()).isEqualTo(-1);
+  }
+
 }
@@ -34,6 +34,7 @@ import org.sonar.sslr.internal.vm.Instruction.EndInstruction;
 import org.sonar.sslr.internal.vm.Instruction.FailTwiceInstruction;
 import org.sonar.sslr.internal.vm.Instruction.IgnoreErrorsInstruction;
 import org.sonar.sslr.internal.vm.Instruction.JumpInstruction;
+import org.sonar.sslr.internal.vm.Instruction.MarkInstruction;
 import org.sonar.sslr.internal.vm.Instruction.PredicateChoiceInstruction;
 import org.sonar.sslr.internal.vm.Instruction.RetInstruction;
 
@@ -84,6 +85,24 @@ public class InstructionTest {
     verifyNoMoreInteractions(machine);
   }
 
+  @Test
+  public void mark() {
+    Matcher matcher = mock(Matcher.class);
+    Instruction instruction = Instruction.mark(matcher);
+    assertThat(instruction).isInstanceOf(MarkInstruction.class);
+    assertThat(instruction.toString()).isEqualTo("Mark");
+    assertThat(instruction.equals(Instruction.mark(matcher))).isTrue();
+    assertThat(instruction.equals(Instruction.mark(mock(Matcher.class)))).isFalse();
+    assertThat(instruction.equals(new Object())).isFalse();
+    assertThat(instruction.hashCode()).isEqualTo(matcher.hashCode());
+
+    instruction.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).createLeafNode(matcher, 0);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
   @Test
   public void choice() {
     Instruction instruction = Instruction.choice(42);
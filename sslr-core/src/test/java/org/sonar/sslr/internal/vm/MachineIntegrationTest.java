@@ -25,6 +25,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.sonar.sslr.grammar.GrammarException;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -144,4 +149,73 @@ public class MachineIntegrationTest {
     assertThat(Machine.execute("bar", instructions)).isFalse();
   }
 
+  @Test
+  public void should_record_only_span_of_token() {
+    GrammarRuleKey root = new GrammarRuleKey() {
+    };
+    GrammarRuleKey word = new GrammarRuleKey() {
+    };
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(root).is(b.firstOf(
+      b.sequence(b.token(GenericTokenType.IDENTIFIER, b.sequence(word, "bar")), "x"),
+      b.sequence(word, "bar"),
+      b.token(GenericTokenType.IDENTIFIER, b.sequence(word, "baz"))));
+    b.rule(word).is("f", b.regexp("[a-z]"), "o");
+    ParseRunner parseRunner = new ParseRunner(b.build().rule(root));
+
+    // node of word is memoized outside of token and reused inside of token
+    ParseNode node = parseRunner.parse("foobaz".toCharArray()).getParseTreeRoot();
+    assertThat(node.getChildren()).hasSize(1);
+    ParseNode token = node.getChildren().get(0);
+    assertThat(token.getMatcher()).isInstanceOf(TokenExpression.class);
+    assertThat(token.getEndIndex()).isEqualTo(6);
+    assertThat(token.getChildren()).isEmpty();
+
+    // node of word is not memoized inside of token
+    node = parseRunner.parse("foobar".toCharArray()).getParseTreeRoot();
+    assertThat(node.getChildren()).hasSize(2);
+    ParseNode wordNode = node.getChildren().get(0);
+    assertThat(wordNode.getEndIndex()).isEqualTo(3);
+    assertThat(wordNode.getChildren()).hasSize(3);
+  }
+
+  @Test
+  public void deep_nesting() {
+    GrammarRuleKey nested = new GrammarRuleKey() {
+    };
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(nested).is("(", b.optional(nested), ")");
+    ParseRunner parseRunner = new ParseRunner(b.build().rule(nested));
+
+    int depth = 10000;
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      input.append('(');
+    }
+    for (int i = 0; i < depth; i++) {
+      input.append(')');
+    }
+    ParsingResult result = parseRunner.parse(input.toString().toCharArray());
+    assertThat(result.isMatched()).isTrue();
+
+    int levels = 0;
+    ParseNode node = result.getParseTreeRoot();
+    while (node != null) {
+      levels++;
+      assertThat(node.getStartIndex()).isEqualTo(levels - 1);
+      assertThat(node.getEndIndex()).isEqualTo(2 * depth - levels + 1);
+      ParseNode next = null;
+      for (ParseNode child : node.getChildren()) {
+        if (child.getMatcher() == node.getMatcher()) {
+          next = child;
+        }
+      }
+      node = next;
+    }
+    assertThat(levels).isEqualTo(depth);
+
+    input.setCharAt(depth, '(');
+    assertThat(parseRunner.parse(input.toString().toCharArray()).isMatched()).isFalse();
+  }
+
 }
@@ -0,0 +1,69 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RecoverExpressionTest {
+
+  @Test
+  public void should_compile() {
+    RecoverExpression expression = new RecoverExpression(new SubExpression(1, 2), new SubExpression(3));
+    assertThat(expression.toString()).isEqualTo("Recover[SubExpression, SubExpression]");
+    Instruction[] instructions = expression.compile(new CompilationHandler());
+    assertThat(instructions[0]).isSameAs(RecoverExpression.RecoverBeginInstruction.INSTANCE);
+    assertThat(instructions[1]).isEqualTo(Instruction.choice(4));
+    assertThat(instructions[2]).isEqualTo(SubExpression.mockInstruction(1));
+    assertThat(instructions[3]).isEqualTo(SubExpression.mockInstruction(2));
+    assertThat(instructions[4]).isEqualTo(Instruction.commit(instructions.length - 5));
+    assertThat(instructions[5]).isInstanceOf(RecoverExpression.RecoverInstruction.class);
+    assertThat(instructions[6]).isInstanceOf(Instruction.CallInstruction.class);
+    assertThat(instructions[instructions.length - 2]).isEqualTo(Instruction.jump(2));
+    assertThat(instructions[instructions.length - 1]).isSameAs(RecoverExpression.RecoverEndInstruction.INSTANCE);
+  }
+
+  @Test
+  public void should_backtrack_when_nothing_matched() {
+    Machine machine = mock(Machine.class);
+    MachineStack stack = mock(MachineStack.class);
+    when(machine.peek()).thenReturn(stack);
+    when(stack.index()).thenReturn(1);
+    when(machine.getIndex()).thenReturn(1);
+    RecoverExpression.NonEmptyExpression.INSTANCE.execute(machine);
+    verify(machine).backtrack();
+  }
+
+  @Test
+  public void should_continue_when_something_matched() {
+    Machine machine = mock(Machine.class);
+    MachineStack stack = mock(MachineStack.class);
+    when(machine.peek()).thenReturn(stack);
+    when(stack.index()).thenReturn(1);
+    when(machine.getIndex()).thenReturn(2);
+    RecoverExpression.NonEmptyExpression.INSTANCE.execute(machine);
+    verify(machine).jump(1);
+  }
+
+}
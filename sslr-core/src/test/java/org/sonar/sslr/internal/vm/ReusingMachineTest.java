@@ -0,0 +1,85 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Test;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ReusingMachineTest {
+
+  private final Matcher matcher = mock(Matcher.class);
+
+  @Test
+  public void should_track_examined_characters() {
+    Machine machine = new ReusingMachine("foo", new Instruction[2]);
+    machine.charAt(1);
+    assertThat(examinedIndex(machine)).isEqualTo(2);
+    machine.charAt(0);
+    assertThat(examinedIndex(machine)).isEqualTo(2);
+    machine.markExamined(2);
+    assertThat(examinedIndex(machine)).isEqualTo(3);
+    machine.markExamined(42);
+    assertThat(examinedIndex(machine)).as("end of input").isEqualTo(4);
+  }
+
+  @Test
+  public void plain_machine_should_not_track_examined_characters() {
+    Machine machine = new Machine("foo", new Instruction[2]);
+    machine.charAt(1);
+    machine.markExamined(42);
+    assertThat(examinedIndex(machine)).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void should_reuse_memoized_node() {
+    char[] input = "foo".toCharArray();
+    ParseNode[] nodes = new ParseNode[input.length + 1];
+    nodes[1] = new ParseNode(1, 3, matcher, 3);
+    Machine machine = new ReusingMachine(input, new Instruction[4], new MemoTable(input, nodes, null));
+    machine.setIndex(1);
+    machine.pushReturn(2, matcher, 1);
+    assertThat(machine.getIndex()).isEqualTo(3);
+    assertThat(machine.getAddress()).isEqualTo(2);
+    assertThat(machine.peek().subNodes()).containsExactly(nodes[1]);
+    assertThat(examinedIndex(machine)).isEqualTo(3);
+  }
+
+  @Test
+  public void should_not_reuse_node_of_other_matcher() {
+    char[] input = "foo".toCharArray();
+    ParseNode[] nodes = new ParseNode[input.length + 1];
+    nodes[0] = new ParseNode(0, 3, mock(Matcher.class), 3);
+    Machine machine = new ReusingMachine(input, new Instruction[4], new MemoTable(input, nodes, null));
+    machine.pushReturn(2, matcher, 1);
+    assertThat(machine.getIndex()).isEqualTo(0);
+    assertThat(machine.getAddress()).isEqualTo(1);
+    assertThat(machine.peek().matcher()).isSameAs(matcher);
+  }
+
+  private int examinedIndex(Machine machine) {
+    machine.createLeafNode(matcher, 0);
+    return machine.peek().subNodes().get(machine.peek().subNodes().size() - 1).getExaminedIndex();
+  }
+
+}
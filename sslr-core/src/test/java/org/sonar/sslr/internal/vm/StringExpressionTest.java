@@ -62,6 +62,7 @@ public class StringExpressionTest {
     expression.execute(machine);
     InOrder inOrder = Mockito.inOrder(machine);
     inOrder.verify(machine).length();
+    inOrder.verify(machine).markExamined(0);
     inOrder.verify(machine).backtrack();
     verifyNoMoreInteractions(machine);
   }
@@ -21,6 +21,7 @@ package org.sonar.sslr.parser;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
 import org.sonar.sslr.internal.matchers.ImmutableInputBuffer;
 import org.sonar.sslr.internal.matchers.InputBuffer;
 
@@ -51,4 +52,32 @@ public class ParseErrorFormatterTest {
     assertThat(result).isEqualTo(expected);
   }
 
+  @Test
+  public void should_format_expected_tokens() {
+    ParseRunner runner = new ParseRunner(new MutableParsingRule("rule").is("foo", GrammarOperators.firstOf("bar", "baz")));
+    ParseErrorReport report = runner.analyze(runner.parse("foo\nqux".toCharArray()));
+    String result = formatter.format(report);
+    System.out.print(result);
+    String expected = new StringBuilder()
+        .append("Parse error at line 1 column 4:\n")
+        .append('\n')
+        .append("1: foo\n")
+        .append("      ^\n")
+        .append("2: qux\n")
+        .append('\n')
+        .append("Expected one of: \"bar\", \"baz\"\n")
+        .append("  rule > \"bar\"\n")
+        .append("  rule > \"baz\"\n")
+        .toString();
+
+    assertThat(result).isEqualTo(expected);
+  }
+
+  @Test
+  public void should_format_report_without_expected_tokens() {
+    InputBuffer inputBuffer = new ImmutableInputBuffer("foo".toCharArray());
+    ParseError parseError = new ParseError(inputBuffer, 0);
+    assertThat(formatter.format(new ParseErrorReport(parseError, null))).isEqualTo(formatter.format(parseError));
+  }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.parser;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.parser.ParseProfiler.RuleStatistics;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParseProfilerTest {
+
+  private MutableParsingRule a;
+  private MutableParsingRule c;
+  private ParseRunner runner;
+
+  @Before
+  public void setUp() {
+    a = new MutableParsingRule("A");
+    c = new MutableParsingRule("C");
+    a.is(GrammarOperators.firstOf(GrammarOperators.sequence(c, "x"), GrammarOperators.sequence(c, "y")));
+    c.is("c", "d");
+    runner = new ParseRunner(a);
+  }
+
+  @Test
+  public void should_count_rescans() {
+    ParseProfiler profiler = new ParseProfiler();
+    assertThat(runner.parse("ce".toCharArray(), profiler).isMatched()).isFalse();
+
+    Iterator<RuleStatistics> statistics = profiler.getStatistics().iterator();
+    RuleStatistics statisticsOfA = statistics.next();
+    assertThat(statisticsOfA.getRuleKey()).isSameAs(a);
+    assertThat(statisticsOfA.getInvocations()).isEqualTo(1);
+    assertThat(statisticsOfA.getBacktracks()).isEqualTo(1);
+    assertThat(statisticsOfA.getMemoMisses()).isEqualTo(0);
+    assertThat(statisticsOfA.getRescans()).isEqualTo(0);
+    assertThat(statisticsOfA.getTotalTimeNanos()).isGreaterThanOrEqualTo(statisticsOfA.getSelfTimeNanos());
+
+    RuleStatistics statisticsOfC = statistics.next();
+    assertThat(statisticsOfC.getName()).isEqualTo("C");
+    assertThat(statisticsOfC.getInvocations()).isEqualTo(2);
+    assertThat(statisticsOfC.getBacktracks()).isEqualTo(2);
+    assertThat(statisticsOfC.getMemoHits()).isEqualTo(0);
+    assertThat(statisticsOfC.getMemoMisses()).isEqualTo(2);
+    assertThat(statisticsOfC.getRescans()).isEqualTo(1);
+    assertThat(statisticsOfC.getRescannedChars()).isEqualTo(1);
+    assertThat(statistics.hasNext()).isFalse();
+  }
+
+  @Test
+  public void should_count_memo_hits_across_parsings() {
+    ParseProfiler profiler = new ParseProfiler();
+    assertThat(runner.parse("cdy".toCharArray(), profiler).isMatched()).isTrue();
+    assertThat(runner.parse("cdy".toCharArray(), profiler).isMatched()).isTrue();
+
+    Iterator<RuleStatistics> statistics = profiler.getStatistics().iterator();
+    RuleStatistics statisticsOfA = statistics.next();
+    assertThat(statisticsOfA.getInvocations()).isEqualTo(2);
+    assertThat(statisticsOfA.getBacktracks()).isEqualTo(0);
+    RuleStatistics statisticsOfC = statistics.next();
+    assertThat(statisticsOfC.getInvocations()).isEqualTo(2);
+    assertThat(statisticsOfC.getMemoHits()).isEqualTo(2);
+    assertThat(statisticsOfC.getRescans()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_export() throws IOException {
+    ParseProfiler profiler = new ParseProfiler();
+    runner.parse("ce".toCharArray(), profiler);
+
+    StringBuilder csv = new StringBuilder();
+    profiler.writeCsv(csv);
+    String[] lines = csv.toString().split("\n");
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0]).isEqualTo("rule,invocations,backtracks,memoHits,memoMisses,rescans,rescannedChars,totalTimeNanos,selfTimeNanos");
+    for (int i = 1; i < lines.length; i++) {
+      assertThat(lines[i]).matches("(A,1,1,0,0,0,0|C,2,2,0,2,1,1),\\d+,\\d+");
+    }
+
+    StringBuilder json = new StringBuilder();
+    profiler.writeJson(json);
+    assertThat(json.toString())
+      .startsWith("[\n  {\"rule\": ")
+      .contains("{\"rule\": \"C\", \"invocations\": 2, \"backtracks\": 2, \"memoHits\": 0, \"memoMisses\": 2, \"rescans\": 1, \"rescannedChars\": 1, ")
+      .endsWith("}\n]\n");
+
+    StringBuilder folded = new StringBuilder();
+    profiler.writeFoldedStacks(folded);
+    for (String line : folded.toString().split("\n")) {
+      assertThat(line).matches("(A|A;C) \\d+");
+    }
+  }
+
+  @Test
+  public void should_export_nothing() throws IOException {
+    ParseProfiler profiler = new ParseProfiler();
+    StringBuilder json = new StringBuilder();
+    profiler.writeJson(json);
+    assertThat(json.toString()).isEqualTo("[]\n");
+    StringBuilder folded = new StringBuilder();
+    profiler.writeFoldedStacks(folded);
+    assertThat(folded.toString()).isEmpty();
+  }
+
+}
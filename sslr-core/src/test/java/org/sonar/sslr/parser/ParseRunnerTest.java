@@ -22,7 +22,18 @@ package org.sonar.sslr.parser;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Rule;
 import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.ExpressionGrammar;
+import org.sonar.sslr.internal.matchers.ImmutableInputBuffer;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.TriviaExpression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
@@ -130,4 +141,217 @@ public class ParseRunnerTest {
     assertThat(parseError.getErrorIndex()).isEqualTo(0);
   }
 
+  @Test
+  public void should_analyze_error() {
+    Rule subRule1 = new MutableParsingRule("subRule1").is("foo");
+    Rule subRule2 = new MutableParsingRule("subRule2").is(GrammarOperators.token(GenericTokenType.IDENTIFIER, "bar"));
+    Rule rule = new MutableParsingRule("rule").is("(", GrammarOperators.firstOf(subRule1, subRule2, GrammarOperators.endOfInput()));
+    ParseRunner runner = new ParseRunner(rule);
+    ParsingResult result = runner.parse("(baz".toCharArray());
+
+    ParseErrorReport report = runner.analyze(result);
+    assertThat(report.getParseError()).isSameAs(result.getParseError());
+    assertThat(report.getExpected()).containsExactly("\"foo\"", "IDENTIFIER", "end of input");
+    assertThat(report.getFailedPaths()).containsExactly("rule > subRule1 > \"foo\"", "rule > subRule2 > IDENTIFIER", "rule > end of input");
+  }
+
+  @Test
+  public void should_analyze_error_at_furthest_index() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ParsingResult result = runner.parse("2+4*(10-0*".toCharArray());
+
+    ParseErrorReport report = runner.analyze(result);
+    assertThat(report.getParseError().getErrorIndex()).isEqualTo(10);
+    assertThat(report.getExpected()).isNotEmpty();
+    for (String path : report.getFailedPaths()) {
+      assertThat(path).startsWith("root > expression > term > factor > parens > expression > term > factor > ");
+    }
+  }
+
+  @Test
+  public void should_not_analyze_successful_result() {
+    ParseRunner runner = new ParseRunner(new MutableParsingRule("rule").is("foo"));
+    ParsingResult result = runner.parse("foo".toCharArray());
+    assertThrows(IllegalArgumentException.class,
+      () -> runner.analyze(result));
+  }
+
+  @Test
+  public void should_recover_from_errors() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(RecoveryKeys.STATEMENTS).is(b.zeroOrMore(b.recover(RecoveryKeys.STATEMENT, ";")), b.endOfInput());
+    b.rule(RecoveryKeys.STATEMENT).is(b.regexp("[a-z]+"), ";");
+    ParseRunner runner = new ParseRunner(b.build().rule(RecoveryKeys.STATEMENTS));
+    char[] input = "foo;bar x;1 2 3;baz;4".toCharArray();
+
+    ParsingResult result = runner.parse(input);
+    assertThat(result.isMatched()).isFalse();
+    assertThat(result.getParseError().getErrorIndex()).isEqualTo(7);
+    assertThat(result.getRecoveredErrors()).isEmpty();
+
+    result = runner.parseWithRecovery(input);
+    assertThat(result.isMatched()).isTrue();
+    assertThat(result.getParseError()).isNull();
+    assertThat(result.getRecoveredErrors()).hasSize(3);
+    assertThat(result.getRecoveredErrors().get(0).getErrorIndex()).isEqualTo(7);
+    assertThat(result.getRecoveredErrors().get(1).getErrorIndex()).isEqualTo(10);
+    assertThat(result.getRecoveredErrors().get(2).getErrorIndex()).isEqualTo(20);
+    StringBuilder children = new StringBuilder();
+    for (ParseNode child : result.getParseTreeRoot().getChildren()) {
+      boolean skipped = child.getMatcher() instanceof TriviaExpression;
+      children.append(skipped ? "skipped" : child.getMatcher().toString()).append('[').append(input, child.getStartIndex(), child.getEndIndex() - child.getStartIndex()).append(']');
+    }
+    assertThat(children.toString()).isEqualTo("STATEMENT[foo;]skipped[bar x;]skipped[1 2 3;]STATEMENT[baz;]skipped[4]");
+  }
+
+  @Test
+  public void should_not_recover_when_nothing_to_skip() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(RecoveryKeys.STATEMENTS).is("{", b.zeroOrMore(b.recover(RecoveryKeys.STATEMENT, b.next("}"))), "}");
+    b.rule(RecoveryKeys.STATEMENT).is(b.regexp("[a-z]+"), ";");
+    ParseRunner runner = new ParseRunner(b.build().rule(RecoveryKeys.STATEMENTS));
+
+    ParsingResult result = runner.parseWithRecovery("{foo;1;bar;}".toCharArray());
+    assertThat(result.isMatched()).isTrue();
+    assertThat(result.getRecoveredErrors()).hasSize(1);
+    assertThat(result.getRecoveredErrors().get(0).getErrorIndex()).isEqualTo(5);
+
+    result = runner.parseWithRecovery("{foo;}}".toCharArray());
+    assertThat(result.isMatched()).isTrue();
+    assertThat(result.getRecoveredErrors()).isEmpty();
+
+    assertThat(runner.parseWithRecovery("{foo;".toCharArray()).isMatched()).isFalse();
+  }
+
+  @Test
+  public void should_not_reparse_result_with_recovery() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ParsingResult previous = runner.parseWithRecovery("1+1".toCharArray());
+    assertThat(previous.isMatched()).isTrue();
+    assertThrows(IllegalArgumentException.class,
+      () -> runner.parse(previous, new TextEdit(0, 1, "2")));
+  }
+
+  private enum RecoveryKeys implements GrammarRuleKey {
+    STATEMENTS, STATEMENT
+  }
+
+  @Test
+  public void should_reparse_like_from_scratch() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    String text = "(a + 12) * b2 / (c - (d + 3)) + e";
+    ParsingResult previous = runner.parseForReuse(text.toCharArray());
+    for (int offset = 0; offset <= text.length(); offset++) {
+      for (String inserted : Arrays.asList("", " ", "x", "1", "(", ")", "+ f")) {
+        for (int removed = 0; removed <= 2 && offset + removed <= text.length(); removed++) {
+          assertReparsedLikeFromScratch(runner, previous, new TextEdit(offset, removed, inserted));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void should_reparse_after_lookahead() {
+    Rule word = new MutableParsingRule("word").is(GrammarOperators.regexp("[a-z]++"), GrammarOperators.regexp(" *+"));
+    Rule keyword = new MutableParsingRule("keyword").is("if", GrammarOperators.nextNot(GrammarOperators.regexp("[a-z]")), GrammarOperators.regexp(" *+"));
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(GrammarOperators.firstOf(keyword, word)), GrammarOperators.endOfInput());
+    ParseRunner runner = new ParseRunner(rule);
+    String text = "if ifx a if";
+    ParsingResult previous = runner.parseForReuse(text.toCharArray());
+    for (int offset = 0; offset <= text.length(); offset++) {
+      for (String inserted : Arrays.asList("", " ", "x", "if")) {
+        for (int removed = 0; removed <= 1 && offset + removed <= text.length(); removed++) {
+          assertReparsedLikeFromScratch(runner, previous, new TextEdit(offset, removed, inserted));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void should_reuse_nodes_outside_of_edit() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ParsingResult previous = runner.parseForReuse("(a + b) + (c + d) + (e + f)".toCharArray());
+    ParsingResult result = runner.parse(previous, new TextEdit(11, 1, "x"));
+
+    assertThat(new String(text(result))).isEqualTo("(a + b) + (x + d) + (e + f)");
+    ParseNode previousFirstTerm = previous.getParseTreeRoot().getChildren().get(1).getChildren().get(0);
+    ParseNode firstTerm = result.getParseTreeRoot().getChildren().get(1).getChildren().get(0);
+    assertThat(firstTerm).isSameAs(previousFirstTerm);
+
+    // chain of edits
+    result = runner.parse(result, new TextEdit(0, 0, "z + "));
+    result = runner.parse(result, new TextEdit(result.getInputBuffer().length(), 0, " + g"));
+    assertThat(toString(result.getParseTreeRoot())).isEqualTo(toString(runner.parse("z + (a + b) + (x + d) + (e + f) + g".toCharArray()).getParseTreeRoot()));
+  }
+
+  @Test
+  public void should_report_same_error_as_from_scratch() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ParsingResult previous = runner.parseForReuse("a + (b + c) + d".toCharArray());
+    ParsingResult result = runner.parse(previous, new TextEdit(5, 1, "+"));
+
+    assertThat(result.isMatched()).isFalse();
+    assertThat(result.getParseError().getErrorIndex()).isEqualTo(runner.parse("a + (+ + c) + d".toCharArray()).getParseError().getErrorIndex());
+  }
+
+  @Test
+  public void should_not_reparse_without_previous_memos() {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ParsingResult previous = new ParsingResult(new ImmutableInputBuffer(new char[0]), false, null, null);
+    assertThrows(IllegalArgumentException.class, () -> runner.parse(previous, new TextEdit(0, 0, "a")));
+    assertThrows(IllegalArgumentException.class, () -> new TextEdit(-1, 0, "a"));
+    assertThrows(IllegalArgumentException.class, () -> runner.parse(runner.parse("a".toCharArray()), new TextEdit(0, 0, "b")));
+    assertThrows(IllegalArgumentException.class, () -> runner.parse(runner.parseForReuse("a".toCharArray()), new TextEdit(1, 1, "")));
+  }
+
+  private static void assertReparsedLikeFromScratch(ParseRunner runner, ParsingResult previous, TextEdit edit) {
+    ParsingResult result = runner.parse(previous, edit);
+    ParsingResult expected = runner.parse(edit.apply(text(previous)));
+    assertThat(result.isMatched()).as(edit.toString()).isEqualTo(expected.isMatched());
+    if (expected.isMatched()) {
+      assertThat(toString(result.getParseTreeRoot())).as(edit.toString()).isEqualTo(toString(expected.getParseTreeRoot()));
+    } else {
+      assertThat(result.getParseError().getErrorIndex()).as(edit.toString()).isEqualTo(expected.getParseError().getErrorIndex());
+    }
+  }
+
+  @Test
+  public void should_load_written_grammar() throws Exception {
+    ParseRunner runner = new ParseRunner(new ExpressionGrammar().getRootRule());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    runner.writeGrammar(out);
+    ParseRunner loadedRunner = new ParseRunner(new ByteArrayInputStream(out.toByteArray()), getClass().getClassLoader());
+
+    char[] input = "20 * ( 2 + 2 ) - var".toCharArray();
+    assertThat(toString(loadedRunner.parse(input).getParseTreeRoot())).isEqualTo(toString(runner.parse(input).getParseTreeRoot()));
+    assertThat(loadedRunner.parse("2+".toCharArray()).getParseError().getErrorIndex()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_load_invalid_grammar() {
+    assertThrows(IOException.class,
+      () -> new ParseRunner(new ByteArrayInputStream(new byte[] {1, 2, 3, 4}), getClass().getClassLoader()));
+  }
+
+  private static char[] text(ParsingResult result) {
+    char[] text = new char[result.getInputBuffer().length()];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = result.getInputBuffer().charAt(i);
+    }
+    return text;
+  }
+
+  private static String toString(ParseNode node) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(node.getMatcher()).append('[').append(node.getStartIndex()).append(',').append(node.getEndIndex()).append(']');
+    if (!node.getChildren().isEmpty()) {
+      sb.append('(');
+      for (ParseNode child : node.getChildren()) {
+        sb.append(toString(child)).append(' ');
+      }
+      sb.append(')');
+    }
+    return sb.toString();
+  }
+
 }
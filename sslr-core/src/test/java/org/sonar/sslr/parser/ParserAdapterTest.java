@@ -19,6 +19,7 @@
  */
 package org.sonar.sslr.parser;
 
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
@@ -26,6 +27,8 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.matchers.ExpressionGrammar;
 
 import java.io.File;
@@ -33,6 +36,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -94,6 +98,52 @@ public class ParserAdapterTest {
       () -> parser.parse(file));
   }
 
+  @Test
+  public void should_parse_string_with_recovery() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(RecoveryKeys.STATEMENTS).is(b.zeroOrMore(b.recover(RecoveryKeys.STATEMENT, ";")), b.endOfInput());
+    b.rule(RecoveryKeys.STATEMENT).is(b.regexp("[a-z]+"), ";");
+    b.setRootRule(RecoveryKeys.STATEMENTS);
+    ParserAdapter<LexerlessGrammar> recoveringParser = new ParserAdapter<>(StandardCharsets.UTF_8, b.build());
+    String input = "foo;bar x;1 2 3;baz;4";
+
+    assertThrows(RecognitionException.class,
+      () -> recoveringParser.parse(input));
+
+    List<ParseError> recoveredErrors = new ArrayList<>();
+    AstNode root = recoveringParser.parseWithRecovery(input, recoveredErrors);
+    assertThat(recoveredErrors).hasSize(3);
+    assertThat(recoveredErrors.get(0).getErrorIndex()).isEqualTo(7);
+    assertThat(recoveredErrors.get(1).getErrorIndex()).isEqualTo(10);
+    assertThat(recoveredErrors.get(2).getErrorIndex()).isEqualTo(20);
+    List<AstNode> statements = root.getChildren(RecoveryKeys.STATEMENT);
+    assertThat(statements).hasSize(2);
+    assertThat(statements.get(0).getTokenValue()).isEqualTo("foo");
+    assertThat(statements.get(1).getTokenValue()).isEqualTo("baz");
+  }
+
+  @Test
+  public void should_parse_file_with_recovery() throws Exception {
+    File file = temporaryFolder.newFile();
+    try (
+      FileOutputStream fileOutputStream = new FileOutputStream(file);
+      OutputStreamWriter writer = new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8);
+    ) {
+      writer.write("1+1");
+    }
+    List<ParseError> recoveredErrors = new ArrayList<>();
+    parser.parseWithRecovery(file, recoveredErrors);
+    assertThat(recoveredErrors).isEmpty();
+  }
+
+  @Test
+  public void should_not_parse_invalid_string_with_recovery() {
+    List<ParseError> recoveredErrors = new ArrayList<>();
+    assertThrows(RecognitionException.class,
+      () -> parser.parseWithRecovery("1+", recoveredErrors));
+    assertThat(recoveredErrors).isEmpty();
+  }
+
   @Test
   public void builder_should_not_create_new_instance_from_adapter() {
     assertThat(Parser.builder(parser).build()).isSameAs(parser);
@@ -112,4 +162,8 @@ public class ParserAdapterTest {
       () -> parser.getRootRule());
   }
 
+  private enum RecoveryKeys implements GrammarRuleKey {
+    STATEMENTS, STATEMENT
+  }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import com.sonar.sslr.test.minic.MiniCGrammar;
+import com.sonar.sslr.test.minic.MiniCParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class MemoizationAdvisorTest {
+
+  private Parser<Grammar> parser;
+  private RuleDefinition primaryExpression;
+
+  @Before
+  public void setUp() {
+    parser = MiniCParser.create();
+    primaryExpression = (RuleDefinition) parser.getGrammar().rule(MiniCGrammar.PRIMARY_EXPRESSION);
+  }
+
+  @Test
+  public void should_recommend_rules_reparsed_at_same_position() throws IOException {
+    MemoizationAdvisor.Advice advice = new MemoizationAdvisor(parser)
+      .addSource("int a = (((1)));")
+      .addSource("void f() { a = 1; }")
+      .advise();
+
+    assertThat(advice.getRecommendedRules()).containsOnly(primaryExpression);
+    assertThat(advice.getRecommendedInvocations()).isLessThan(advice.getInvocations());
+    assertThat(advice.getExpectedSpeedup()).isGreaterThan(1.0);
+
+    MemoizationAdvisor.RuleStatistics statistics = advice.getStatistics().get(0);
+    assertThat(statistics.getName()).isEqualTo("COMPILATION_UNIT");
+    assertThat(statistics.getInvocations()).isEqualTo(2);
+    assertThat(statistics.getRescans()).isEqualTo(0);
+    assertThat(statistics.isRecommended()).isFalse();
+
+    StringWriter report = new StringWriter();
+    advice.writeReport(report);
+    assertThat(report.toString())
+      .startsWith("Expected speedup: ")
+      .endsWith("Recommended memoization:\n  PRIMARY_EXPRESSION\n");
+
+    StringWriter csv = new StringWriter();
+    advice.writeCsv(csv);
+    assertThat(csv.toString())
+      .startsWith("rule,invocations,matches,rescans,savedInvocations,memoize\nCOMPILATION_UNIT,2,2,0,0,false\n")
+      .contains("\nPRIMARY_EXPRESSION,");
+  }
+
+  @Test
+  public void should_apply_recommendation() {
+    RuleDefinition compilationUnit = (RuleDefinition) parser.getGrammar().rule(MiniCGrammar.COMPILATION_UNIT);
+    compilationUnit.enableMemoization();
+    MemoizationAdvisor.Advice advice = new MemoizationAdvisor(parser)
+      .addSource("int a = ((1));")
+      .advise();
+
+    assertThat(compilationUnit.shouldMemoize()).isTrue();
+    assertThat(primaryExpression.shouldMemoize()).isFalse();
+
+    advice.apply();
+    assertThat(compilationUnit.shouldMemoize()).isFalse();
+    assertThat(primaryExpression.shouldMemoize()).isTrue();
+    assertThat(parser.parse("int a = ((1));")).isNotNull();
+  }
+
+  @Test
+  public void should_not_recommend_without_rescans() {
+    MemoizationAdvisor.Advice advice = new MemoizationAdvisor(parser)
+      .addTokens(parser.lex(""))
+      .advise();
+
+    assertThat(advice.getRecommendedRules()).isEmpty();
+    assertThat(advice.getExpectedSpeedup()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void should_fail_on_unparsable_source() {
+    MemoizationAdvisor advisor = new MemoizationAdvisor(parser).addSource("int");
+    assertThrows(RecognitionException.class, advisor::advise);
+  }
+
+}
@@ -106,6 +106,82 @@ public class AstWalkerTest {
     verify(astVisitor, never()).visitNode(ast11);
   }
 
+  @Test
+  public void should_visit_only_subscribed_nodes_of_indexed_tree() {
+    AstVisitor otherVisitor = mock(AstVisitor.class);
+    when(astVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(animal, tiger));
+    when(otherVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(tiger, cat));
+    walker.addVisitor(astVisitor);
+    walker.addVisitor(otherVisitor);
+    AstNodeIndex.build(ast1);
+    walker.walkAndVisit(ast1);
+
+    InOrder inOrder = inOrder(astVisitor, otherVisitor);
+    inOrder.verify(astVisitor).visitFile(ast1);
+    inOrder.verify(otherVisitor).visitFile(ast1);
+    inOrder.verify(astVisitor).visitNode(ast1);
+    inOrder.verify(astVisitor).visitNode(ast12);
+    inOrder.verify(astVisitor).visitNode(ast121);
+    inOrder.verify(astVisitor).leaveNode(ast121);
+    inOrder.verify(astVisitor).visitNode(ast122);
+    inOrder.verify(otherVisitor).visitNode(ast122);
+    inOrder.verify(otherVisitor).leaveNode(ast122);
+    inOrder.verify(astVisitor).leaveNode(ast122);
+    inOrder.verify(astVisitor).leaveNode(ast12);
+    inOrder.verify(otherVisitor).visitNode(ast13);
+    inOrder.verify(otherVisitor).leaveNode(ast13);
+    inOrder.verify(astVisitor).leaveNode(ast1);
+    inOrder.verify(otherVisitor).leaveFile(ast1);
+    inOrder.verify(astVisitor).leaveFile(ast1);
+    verify(astVisitor, never()).visitNode(ast11);
+    verify(otherVisitor, never()).visitNode(ast11);
+  }
+
+  @Test
+  public void should_visit_nodes_in_same_order_when_not_indexed() {
+    AstVisitor otherVisitor = mock(AstVisitor.class);
+    when(astVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(animal, tiger));
+    when(otherVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(tiger, cat));
+    walker.addVisitor(astVisitor);
+    walker.addVisitor(otherVisitor);
+    walker.walkAndVisit(ast1);
+
+    InOrder inOrder = inOrder(astVisitor, otherVisitor);
+    inOrder.verify(astVisitor).visitNode(ast1);
+    inOrder.verify(astVisitor).visitNode(ast12);
+    inOrder.verify(astVisitor).visitNode(ast121);
+    inOrder.verify(astVisitor).leaveNode(ast121);
+    inOrder.verify(astVisitor).visitNode(ast122);
+    inOrder.verify(otherVisitor).visitNode(ast122);
+    inOrder.verify(otherVisitor).leaveNode(ast122);
+    inOrder.verify(astVisitor).leaveNode(ast122);
+    inOrder.verify(astVisitor).leaveNode(ast12);
+    inOrder.verify(otherVisitor).visitNode(ast13);
+    inOrder.verify(otherVisitor).leaveNode(ast13);
+    inOrder.verify(astVisitor).leaveNode(ast1);
+  }
+
+  @Test
+  public void should_visit_all_nodes_of_indexed_tree_with_token_visitor() {
+    when(astVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(tiger, cat));
+    when(astAndTokenVisitor.getAstNodeTypesToVisit()).thenReturn(Arrays.asList(dog));
+    walker.addVisitor(astVisitor);
+    walker.addVisitor(astAndTokenVisitor);
+    ast13.addChild(astNodeWithToken);
+    AstNodeIndex.build(ast1);
+    walker.walkAndVisit(ast1);
+
+    InOrder inOrder = inOrder(astVisitor, astAndTokenVisitor);
+    inOrder.verify(astAndTokenVisitor).visitNode(ast11);
+    inOrder.verify(astAndTokenVisitor).leaveNode(ast11);
+    inOrder.verify(astVisitor).visitNode(ast122);
+    inOrder.verify(astVisitor).leaveNode(ast122);
+    inOrder.verify(astVisitor).visitNode(ast13);
+    inOrder.verify(astAndTokenVisitor).visitToken(token);
+    inOrder.verify(astVisitor).leaveNode(ast13);
+    verify(astVisitor, never()).visitNode(ast1);
+  }
+
   @Test
   public void testAddVisitor() {
     AstWalker walker = new AstWalker();
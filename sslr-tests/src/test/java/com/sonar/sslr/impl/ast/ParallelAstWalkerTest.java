@@ -0,0 +1,151 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.ast;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class ParallelAstWalkerTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  private final AstNodeType a = new AstNodeType() {
+  };
+
+  private final AstNodeType b = new AstNodeType() {
+  };
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void should_notify_each_group_in_order() {
+    AstNode root = tree(a, b, 10, 4);
+    RecordingVisitor visitorA = new RecordingVisitor(a);
+    RecordingVisitor visitorB = new RecordingVisitor(b);
+    RecordingVisitor visitorAB = new RecordingVisitor(a, b);
+    RecordingVisitor expectedA = new RecordingVisitor(a);
+    RecordingVisitor expectedB = new RecordingVisitor(b);
+    RecordingVisitor expectedAB = new RecordingVisitor(a, b);
+
+    new ParallelAstWalker(pool, Arrays.asList(Arrays.asList(visitorA, visitorB), Collections.singletonList(visitorAB))).walkAndVisit(root);
+    new AstWalker(expectedA, expectedB, expectedAB).walkAndVisit(root);
+
+    assertThat(visitorA.events).isEqualTo(expectedA.events);
+    assertThat(visitorB.events).isEqualTo(expectedB.events);
+    assertThat(visitorAB.events).isEqualTo(expectedAB.events);
+    assertThat(visitorAB.events.get(0)).isEqualTo("visitFile");
+    assertThat(visitorAB.events.get(visitorAB.events.size() - 1)).isEqualTo("leaveFile");
+  }
+
+  @Test
+  public void should_walk_with_independent_visitors() {
+    AstNode root = tree(a, b, 8, 3);
+    List<RecordingVisitor> visitors = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      visitors.add(new RecordingVisitor(i % 2 == 0 ? a : b));
+    }
+    ParallelAstWalker.ofIndependentVisitors(pool, visitors).walkAndVisit(root);
+
+    RecordingVisitor expected = new RecordingVisitor(a);
+    new AstWalker(expected).walkAndVisit(root);
+    assertThat(visitors.get(0).events).isEqualTo(expected.events);
+    assertThat(visitors.get(8).events).isEqualTo(expected.events);
+  }
+
+  @Test
+  public void should_rethrow_failure() {
+    AstNode root = tree(a, b, 2, 2);
+    RecordingVisitor failing = new RecordingVisitor(a) {
+      @Override
+      public void visitNode(AstNode ast) {
+        throw new IllegalStateException("failure");
+      }
+    };
+    RecordingVisitor other = new RecordingVisitor(b);
+    ParallelAstWalker walker = ParallelAstWalker.ofIndependentVisitors(pool, Arrays.asList(failing, other));
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> walker.walkAndVisit(root));
+    assertThat(e.getMessage()).contains("failure");
+    assertThat(other.events).contains("leaveFile");
+  }
+
+  private static AstNode tree(AstNodeType a, AstNodeType b, int width, int depth) {
+    AstNode node = new AstNode(depth % 2 == 0 ? a : b, "node", null);
+    if (depth > 0) {
+      for (int i = 0; i < width; i++) {
+        node.addChild(tree(a, b, width, depth - 1));
+      }
+    }
+    return node;
+  }
+
+  private static class RecordingVisitor implements AstVisitor {
+
+    private final List<AstNodeType> types;
+    private final List<String> events = new ArrayList<>();
+
+    RecordingVisitor(AstNodeType... types) {
+      this.types = Arrays.asList(types);
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return types;
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      events.add("visitFile");
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      events.add("leaveFile");
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      events.add("visitNode " + System.identityHashCode(ast));
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      events.add("leaveNode " + System.identityHashCode(ast));
+    }
+
+  }
+
+}
@@ -20,22 +20,33 @@
 package com.sonar.sslr.impl.xpath;
 
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeIndex;
 import org.jaxen.DefaultNavigator;
+import org.jaxen.UnsupportedAxisException;
 import org.jaxen.XPath;
 import org.jaxen.util.SingleObjectIterator;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Objects;
 
+/**
+ * Navigator, which exposes a tree of {@link AstNode}s to Jaxen.
+ * <p>
+ * Navigator remembers the document node of the first tree that it navigates, so a new instance should be used for each
+ * evaluation - see {@link #reset()}. Tree itself is not modified, so several navigators can be used concurrently on the same tree.
+ */
 @SuppressWarnings("serial")
 public class AstNodeNavigator extends DefaultNavigator {
 
   private transient AstNode documentNode = null;
+  private transient AstNode rootNode = null;
 
   public void reset() {
     documentNode = null;
+    rootNode = null;
   }
 
   /* Type conversions */
@@ -52,8 +63,10 @@ public class AstNodeNavigator extends DefaultNavigator {
 
   @Override
   public String getAttributeStringValue(Object attributeObject) {
-    Attribute attribute = (Attribute) attributeObject;
+    return attributeStringValue((Attribute) attributeObject);
+  }
 
+  static String attributeStringValue(Attribute attribute) {
     if ("tokenLine".equals(attribute.getName())) {
       return Integer.toString(attribute.getAstNode().getToken().getLine());
     } else if ("tokenColumn".equals(attribute.getName())) {
@@ -168,8 +181,9 @@ public class AstNodeNavigator extends DefaultNavigator {
           root = root.getParent();
         }
 
+        // root is not added as a child of document to not modify the tree - see getChildAxisIterator and getParentNode
         documentNode = new AstNode(null, "[root]", null);
-        documentNode.addChild(root);
+        rootNode = root;
       } else if (isAttribute(contextNode)) {
         Attribute attribute = (Attribute) contextNode;
         computeDocumentNode(attribute.getAstNode());
@@ -184,10 +198,14 @@ public class AstNodeNavigator extends DefaultNavigator {
     return documentNode;
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public Iterator getChildAxisIterator(Object contextNode) {
     if (isElement(contextNode)) {
       AstNode astNode = (AstNode) contextNode;
+      if (astNode == documentNode) {
+        return new SingleObjectIterator(rootNode);
+      }
       return astNode.getChildren().iterator();
     } else if (isAttribute(contextNode)) {
       return Collections.emptyIterator();
@@ -199,8 +217,7 @@ public class AstNodeNavigator extends DefaultNavigator {
   @Override
   public Object getParentNode(Object contextNode) {
     if (isElement(contextNode)) {
-      AstNode astNode = (AstNode) contextNode;
-      return astNode.getParent();
+      return parent((AstNode) contextNode);
     } else if (isAttribute(contextNode)) {
       Attribute attribute = (Attribute) contextNode;
       return attribute.getAstNode();
@@ -213,8 +230,7 @@ public class AstNodeNavigator extends DefaultNavigator {
   @Override
   public Iterator getParentAxisIterator(Object contextNode) {
     if (isElement(contextNode)) {
-      AstNode astNode = (AstNode) contextNode;
-      AstNode parent = astNode.getParent();
+      AstNode parent = parent((AstNode) contextNode);
       return parent == null ? Collections.emptyIterator() : new SingleObjectIterator(parent);
     } else if (isAttribute(contextNode)) {
       Attribute attribute = (Attribute) contextNode;
@@ -224,6 +240,39 @@ public class AstNodeNavigator extends DefaultNavigator {
     }
   }
 
+  @Nullable
+  private AstNode parent(AstNode astNode) {
+    AstNode parent = astNode.getParent();
+    if (parent == null && astNode == rootNode) {
+      return documentNode;
+    }
+    return parent;
+  }
+
+  @Override
+  public Iterator getFollowingAxisIterator(Object contextNode) throws UnsupportedAxisException {
+    if (isElement(contextNode)) {
+      AstNode astNode = (AstNode) contextNode;
+      AstNodeIndex index = astNode.getIndex();
+      if (index != null) {
+        return new ConcatIterator(index.getFollowing(astNode).iterator(), super.getFollowingAxisIterator(index.getRoot()));
+      }
+    }
+    return super.getFollowingAxisIterator(contextNode);
+  }
+
+  @Override
+  public Iterator getPrecedingAxisIterator(Object contextNode) throws UnsupportedAxisException {
+    if (isElement(contextNode)) {
+      AstNode astNode = (AstNode) contextNode;
+      AstNodeIndex index = astNode.getIndex();
+      if (index != null) {
+        return new ConcatIterator(index.getPrecedingIterator(astNode), super.getPrecedingAxisIterator(index.getRoot()));
+      }
+    }
+    return super.getPrecedingAxisIterator(contextNode);
+  }
+
   @Override
   public Iterator getAttributeAxisIterator(Object contextNode) {
     if (isElement(contextNode)) {
@@ -251,6 +300,28 @@ public class AstNodeNavigator extends DefaultNavigator {
     return null;
   }
 
+  private static class ConcatIterator implements Iterator {
+
+    private final Iterator first;
+    private final Iterator second;
+
+    ConcatIterator(Iterator first, Iterator second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return first.hasNext() || second.hasNext();
+    }
+
+    @Override
+    public Object next() {
+      return first.hasNext() ? first.next() : second.next();
+    }
+
+  }
+
   // @VisibleForTesting
   public static class Attribute {
 
@@ -0,0 +1,89 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nodes of a tree with given names, collected in a single traversal of the tree,
+ * so that steps "//name" of several {@link NativeXPath}s do not traverse the tree again.
+ *
+ * @since 1.24
+ */
+public final class DescendantScan {
+
+  private final AstNode root;
+  private final Map<String, List<AstNode>> nodesByName;
+
+  private DescendantScan(AstNode root, Map<String, List<AstNode>> nodesByName) {
+    this.root = root;
+    this.nodesByName = nodesByName;
+  }
+
+  /**
+   * @param node any node of the tree to scan
+   * @param names names of nodes to collect, for example the ones from {@link NativeXPath#collectDescendantNames(Collection)}
+   */
+  public static DescendantScan scan(AstNode node, Collection<String> names) {
+    AstNode root = XPathContext.findRoot(node);
+    Map<String, List<AstNode>> nodesByName = new HashMap<>();
+    for (String name : names) {
+      nodesByName.put(name, new ArrayList<>());
+    }
+    if (!nodesByName.isEmpty()) {
+      Deque<AstNode> stack = new ArrayDeque<>();
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        AstNode current = stack.pop();
+        List<AstNode> nodes = nodesByName.get(current.getName());
+        if (nodes != null) {
+          nodes.add(current);
+        }
+        List<AstNode> children = current.getChildren();
+        for (int i = children.size() - 1; i >= 0; i--) {
+          stack.push(children.get(i));
+        }
+      }
+    }
+    return new DescendantScan(root, nodesByName);
+  }
+
+  AstNode getRoot() {
+    return root;
+  }
+
+  /**
+   * @return nodes with the given name in document order, including the root, or null if they were not collected
+   */
+  @Nullable
+  List<AstNode> getNodes(String name) {
+    return nodesByName.get(name);
+  }
+
+}
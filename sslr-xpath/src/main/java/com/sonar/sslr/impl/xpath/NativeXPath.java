@@ -0,0 +1,270 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.XPathContext.UnsupportedEvaluationException;
+import com.sonar.sslr.impl.xpath.XPathExpression.Comparison;
+import com.sonar.sslr.impl.xpath.XPathExpression.Function;
+import org.jaxen.expr.AllNodeStep;
+import org.jaxen.expr.BinaryExpr;
+import org.jaxen.expr.EqualityExpr;
+import org.jaxen.expr.Expr;
+import org.jaxen.expr.FilterExpr;
+import org.jaxen.expr.FunctionCallExpr;
+import org.jaxen.expr.LiteralExpr;
+import org.jaxen.expr.LocationPath;
+import org.jaxen.expr.LogicalExpr;
+import org.jaxen.expr.NameStep;
+import org.jaxen.expr.NumberExpr;
+import org.jaxen.expr.PathExpr;
+import org.jaxen.expr.Predicate;
+import org.jaxen.expr.RelationalExpr;
+import org.jaxen.expr.Step;
+import org.jaxen.expr.UnionExpr;
+import org.jaxen.saxpath.Axis;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Evaluator of XPath expressions on {@link AstNode}s, which doesn't use Jaxen for evaluation.
+ * <p>
+ * Supported subset of XPath consists of location paths on all axes except "following", "preceding" and "namespace",
+ * numeric predicates on forward axes, unions, literals, comparisons, "and", "or", and functions "not", "boolean", "true", "false", "count", "name", "local-name",
+ * "string", "string-length", "contains" and "starts-with".
+ * Abbreviation "//" followed by a name test is evaluated as a single scan of descendants, or as a range scan when the tree is
+ * indexed by {@link com.sonar.sslr.api.AstNodeIndex}, so that predicates are evaluated only on nodes with this name.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @since 1.24
+ */
+public final class NativeXPath {
+
+  private final XPathExpression expression;
+
+  private NativeXPath(XPathExpression expression) {
+    this.expression = expression;
+  }
+
+  /**
+   * @param expr expression parsed by Jaxen
+   * @return compiled expression, or null if expression is not supported
+   */
+  @Nullable
+  public static NativeXPath compile(Expr expr) {
+    try {
+      return new NativeXPath(compileExpr(expr));
+    } catch (UnsupportedExpressionException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return list of nodes for a node-set, {@link Boolean}, {@link Double} or {@link String} otherwise,
+   * or null if this expression can't be evaluated for the given node and should be evaluated by Jaxen
+   */
+  @Nullable
+  public Object evaluate(AstNode contextNode) {
+    return evaluate(contextNode, null);
+  }
+
+  /**
+   * Same as {@link #evaluate(AstNode)}, but uses nodes collected in advance by the given scan, if it was made on the same tree.
+   */
+  @Nullable
+  public Object evaluate(AstNode contextNode, @Nullable DescendantScan scan) {
+    try {
+      Object result = expression.evaluate(new XPathContext(contextNode, scan), contextNode);
+      if (result instanceof List && ((List) result).contains(XPathContext.DOCUMENT)) {
+        return null;
+      }
+      return result;
+    } catch (UnsupportedEvaluationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Adds names of nodes, which can be collected in advance by {@link DescendantScan} for evaluation of this expression.
+   */
+  public void collectDescendantNames(Collection<String> names) {
+    expression.collectDescendantNames(names);
+  }
+
+  private static XPathExpression compileExpr(Expr expr) throws UnsupportedExpressionException {
+    if (expr instanceof LocationPath) {
+      return compileLocationPath((LocationPath) expr);
+    } else if (expr instanceof PathExpr && ((PathExpr) expr).getFilterExpr() == null) {
+      return compileLocationPath(((PathExpr) expr).getLocationPath());
+    } else if (expr instanceof FilterExpr && ((FilterExpr) expr).getPredicates().isEmpty()) {
+      return compileExpr(((FilterExpr) expr).getExpr());
+    } else if (expr instanceof LiteralExpr) {
+      return new XPathExpression.Literal(((LiteralExpr) expr).getLiteral());
+    } else if (expr instanceof NumberExpr) {
+      return new XPathExpression.Literal(((NumberExpr) expr).getNumber().doubleValue());
+    } else if (expr instanceof BinaryExpr) {
+      return compileBinaryExpr((BinaryExpr) expr);
+    } else if (expr instanceof FunctionCallExpr) {
+      return compileFunctionCall((FunctionCallExpr) expr);
+    }
+    throw new UnsupportedExpressionException();
+  }
+
+  private static XPathExpression compileBinaryExpr(BinaryExpr expr) throws UnsupportedExpressionException {
+    XPathExpression lhs = compileExpr(expr.getLHS());
+    XPathExpression rhs = compileExpr(expr.getRHS());
+    String operator = expr.getOperator();
+    if (expr instanceof UnionExpr) {
+      if (lhs.type() != XPathExpression.Type.NODE_SET || rhs.type() != XPathExpression.Type.NODE_SET) {
+        throw new UnsupportedExpressionException();
+      }
+      return new XPathExpression.Union(lhs, rhs);
+    } else if (expr instanceof LogicalExpr) {
+      return new XPathExpression.Logical("and".equals(operator), lhs, rhs);
+    } else if (expr instanceof EqualityExpr || expr instanceof RelationalExpr) {
+      return new Comparison(comparisonOperator(operator), lhs, rhs);
+    }
+    throw new UnsupportedExpressionException();
+  }
+
+  private static Comparison.Operator comparisonOperator(String operator) throws UnsupportedExpressionException {
+    switch (operator) {
+      case "=":
+        return Comparison.Operator.EQ;
+      case "!=":
+        return Comparison.Operator.NE;
+      case "<":
+        return Comparison.Operator.LT;
+      case "<=":
+        return Comparison.Operator.LE;
+      case ">":
+        return Comparison.Operator.GT;
+      case ">=":
+        return Comparison.Operator.GE;
+      default:
+        throw new UnsupportedExpressionException();
+    }
+  }
+
+  private static XPathExpression compileFunctionCall(FunctionCallExpr expr) throws UnsupportedExpressionException {
+    if (expr.getPrefix() != null && !expr.getPrefix().isEmpty()) {
+      throw new UnsupportedExpressionException();
+    }
+    Function.Name name;
+    try {
+      name = Function.Name.valueOf(expr.getFunctionName().toUpperCase(Locale.ENGLISH).replace('-', '_'));
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedExpressionException();
+    }
+    List parameters = expr.getParameters();
+    XPathExpression[] arguments = new XPathExpression[parameters.size()];
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = compileExpr((Expr) parameters.get(i));
+    }
+    if (!name.accepts(arguments)) {
+      throw new UnsupportedExpressionException();
+    }
+    return new Function(name, arguments);
+  }
+
+  private static XPathExpression compileLocationPath(LocationPath path) throws UnsupportedExpressionException {
+    List<XPathStep> steps = new ArrayList<>();
+    for (Object step : path.getSteps()) {
+      XPathStep compiledStep = compileStep((Step) step);
+      XPathStep previous = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+      if (previous != null && isDescendantOrSelfNode(previous)
+        && compiledStep.getAxis() == XPathStep.Axis.CHILD && !compiledStep.isPositional()) {
+        // "//name" is "descendant-or-self::node()/child::name"
+        steps.set(steps.size() - 1, compiledStep.toDescendant());
+      } else {
+        steps.add(compiledStep);
+      }
+    }
+    return new XPathExpression.Path(path.isAbsolute(), steps.toArray(new XPathStep[steps.size()]));
+  }
+
+  private static boolean isDescendantOrSelfNode(XPathStep step) {
+    return step.getAxis() == XPathStep.Axis.DESCENDANT_OR_SELF && step.isAnyNode() && !step.hasPredicates();
+  }
+
+  private static XPathStep compileStep(Step step) throws UnsupportedExpressionException {
+    XPathStep.Axis axis = compileAxis(step.getAxis());
+    List predicates = step.getPredicates();
+    XPathExpression[] compiledPredicates = new XPathExpression[predicates.size()];
+    for (int i = 0; i < compiledPredicates.length; i++) {
+      compiledPredicates[i] = compileExpr(((Predicate) predicates.get(i)).getExpr());
+    }
+    XPathStep result;
+    if (step instanceof AllNodeStep) {
+      result = new XPathStep(axis, true, null, compiledPredicates);
+    } else if (step instanceof NameStep) {
+      NameStep nameStep = (NameStep) step;
+      if (nameStep.getPrefix() != null && !nameStep.getPrefix().isEmpty()) {
+        throw new UnsupportedExpressionException();
+      }
+      String name = "*".equals(nameStep.getLocalName()) ? null : nameStep.getLocalName();
+      result = new XPathStep(axis, false, name, compiledPredicates);
+    } else {
+      throw new UnsupportedExpressionException();
+    }
+    if (result.isReverse() && result.isPositional()) {
+      // Jaxen doesn't count positions on reverse axes in reverse document order for several context nodes,
+      // so evaluation is left to it for compatibility
+      throw new UnsupportedExpressionException();
+    }
+    return result;
+  }
+
+  private static XPathStep.Axis compileAxis(int axis) throws UnsupportedExpressionException {
+    switch (axis) {
+      case Axis.CHILD:
+        return XPathStep.Axis.CHILD;
+      case Axis.DESCENDANT:
+        return XPathStep.Axis.DESCENDANT;
+      case Axis.DESCENDANT_OR_SELF:
+        return XPathStep.Axis.DESCENDANT_OR_SELF;
+      case Axis.SELF:
+        return XPathStep.Axis.SELF;
+      case Axis.PARENT:
+        return XPathStep.Axis.PARENT;
+      case Axis.ANCESTOR:
+        return XPathStep.Axis.ANCESTOR;
+      case Axis.ANCESTOR_OR_SELF:
+        return XPathStep.Axis.ANCESTOR_OR_SELF;
+      case Axis.FOLLOWING_SIBLING:
+        return XPathStep.Axis.FOLLOWING_SIBLING;
+      case Axis.PRECEDING_SIBLING:
+        return XPathStep.Axis.PRECEDING_SIBLING;
+      case Axis.ATTRIBUTE:
+        return XPathStep.Axis.ATTRIBUTE;
+      default:
+        throw new UnsupportedExpressionException();
+    }
+  }
+
+  private static class UnsupportedExpressionException extends Exception {
+  }
+
+}
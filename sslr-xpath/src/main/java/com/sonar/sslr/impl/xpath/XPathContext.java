@@ -0,0 +1,193 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeIndex;
+import com.sonar.sslr.impl.xpath.AstNodeNavigator.Attribute;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * State of a single evaluation of {@link NativeXPath}: document of the context node and the operations on nodes, which depend on it.
+ * Nodes are represented by {@link AstNode}, {@link Attribute} and {@link #DOCUMENT}.
+ */
+final class XPathContext {
+
+  /**
+   * Parent of the root of the tree, which is not represented by an {@link AstNode}.
+   */
+  static final Object DOCUMENT = new Object() {
+    @Override
+    public String toString() {
+      return "[root]";
+    }
+  };
+
+  private static final List<String> ATTRIBUTE_NAMES = Arrays.asList("tokenLine", "tokenColumn", "tokenValue");
+  // order of attributes after sorting by Jaxen
+  private static final List<String> SORTED_ATTRIBUTE_NAMES = Arrays.asList("tokenColumn", "tokenLine", "tokenValue");
+
+  private final AstNode root;
+  @Nullable
+  private final DescendantScan scan;
+
+  XPathContext(AstNode contextNode, @Nullable DescendantScan scan) {
+    this.root = findRoot(contextNode);
+    this.scan = scan != null && scan.getRoot() == root ? scan : null;
+  }
+
+  static AstNode findRoot(AstNode contextNode) {
+    AstNode node = contextNode;
+    // node without type is the document created by AstNodeNavigator
+    while (node.getParent() != null && node.getParent().getType() != null) {
+      node = node.getParent();
+    }
+    return node;
+  }
+
+  AstNode getRoot() {
+    return root;
+  }
+
+  @Nullable
+  Object getParent(Object node) {
+    if (node instanceof AstNode) {
+      return node == root ? DOCUMENT : ((AstNode) node).getParent();
+    } else if (node instanceof Attribute) {
+      return ((Attribute) node).getAstNode();
+    }
+    return null;
+  }
+
+  List<AstNode> getChildren(Object node) {
+    if (node instanceof AstNode) {
+      return ((AstNode) node).getChildren();
+    } else if (node == DOCUMENT) {
+      return Collections.singletonList(root);
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * @return descendants of the given node with the given name in document order, or null if they were neither collected in advance
+   * by {@link DescendantScan}, nor indexed by {@link AstNodeIndex}
+   */
+  @Nullable
+  List<AstNode> getDescendantsByName(Object node, String name) {
+    List<AstNode> nodes = scan == null ? null : scan.getNodes(name);
+    if (nodes != null) {
+      if (node == DOCUMENT) {
+        return nodes;
+      } else if (node == root) {
+        return !nodes.isEmpty() && nodes.get(0) == root ? nodes.subList(1, nodes.size()) : nodes;
+      }
+    }
+    if (node == DOCUMENT) {
+      AstNodeIndex index = root.getIndex();
+      if (index == null) {
+        return null;
+      }
+      List<AstNode> descendants = index.getDescendantsByName(root, name);
+      if (!name.equals(root.getName())) {
+        return descendants;
+      }
+      List<AstNode> result = new ArrayList<>(descendants.size() + 1);
+      result.add(root);
+      result.addAll(descendants);
+      return result;
+    } else if (node instanceof AstNode) {
+      AstNode astNode = (AstNode) node;
+      AstNodeIndex index = astNode.getIndex();
+      return index == null ? null : index.getDescendantsByName(astNode, name);
+    }
+    return null;
+  }
+
+  /**
+   * Sorts given nodes in document order, unless they are already sorted.
+   */
+  void sort(List<Object> nodes) {
+    for (int i = 1; i < nodes.size(); i++) {
+      if (compare(nodes.get(i - 1), nodes.get(i)) > 0) {
+        nodes.sort(this::compare);
+        return;
+      }
+    }
+  }
+
+  private int compare(Object first, Object second) {
+    if (first == second) {
+      return 0;
+    } else if (first == DOCUMENT) {
+      return -1;
+    } else if (second == DOCUMENT) {
+      return 1;
+    }
+    AstNode firstElement = element(first);
+    AstNode secondElement = element(second);
+    if (firstElement != secondElement) {
+      return firstElement.isBefore(secondElement) ? -1 : 1;
+    }
+    // element precedes its attributes
+    return Integer.compare(attributeRank(first), attributeRank(second));
+  }
+
+  private static AstNode element(Object node) {
+    return node instanceof Attribute ? ((Attribute) node).getAstNode() : (AstNode) node;
+  }
+
+  private static int attributeRank(Object node) {
+    return node instanceof Attribute ? SORTED_ATTRIBUTE_NAMES.indexOf(((Attribute) node).getName()) : -1;
+  }
+
+  static List<Attribute> getAttributes(AstNode node) {
+    if (!node.hasToken()) {
+      return Collections.emptyList();
+    }
+    return Arrays.asList(
+      new Attribute(ATTRIBUTE_NAMES.get(0), node),
+      new Attribute(ATTRIBUTE_NAMES.get(1), node),
+      new Attribute(ATTRIBUTE_NAMES.get(2), node));
+  }
+
+  /**
+   * @return exception, which indicates that evaluation should be delegated to Jaxen,
+   * because {@link #DOCUMENT} should have been represented by an {@link AstNode}
+   */
+  static RuntimeException unsupported() {
+    return UnsupportedEvaluationException.INSTANCE;
+  }
+
+  static final class UnsupportedEvaluationException extends RuntimeException {
+
+    private static final UnsupportedEvaluationException INSTANCE = new UnsupportedEvaluationException();
+
+    private UnsupportedEvaluationException() {
+      super(null, null, false, false);
+    }
+
+  }
+
+}
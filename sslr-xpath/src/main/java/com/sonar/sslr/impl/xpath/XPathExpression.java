@@ -0,0 +1,441 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.AstNodeNavigator.Attribute;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled XPath expression. Values are represented by {@link Boolean}, {@link Double}, {@link String} and node-sets by {@link List}.
+ * Instances are immutable.
+ */
+abstract class XPathExpression {
+
+  enum Type {
+    NODE_SET, BOOLEAN, NUMBER, STRING
+  }
+
+  private static final Pattern NUMBER = Pattern.compile("-?(\\d+(\\.\\d*)?|\\.\\d+)");
+
+  abstract Type type();
+
+  abstract Object evaluate(XPathContext context, Object node);
+
+  /**
+   * Adds names of nodes, which can be collected in advance by {@link DescendantScan} for evaluation of this expression.
+   */
+  void collectDescendantNames(Collection<String> names) {
+    // no nodes by default
+  }
+
+  static boolean toBoolean(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Double) {
+      double number = (Double) value;
+      return number != 0 && !Double.isNaN(number);
+    } else if (value instanceof String) {
+      return !((String) value).isEmpty();
+    }
+    return !((List) value).isEmpty();
+  }
+
+  static double toNumber(Object value) {
+    if (value instanceof Double) {
+      return (Double) value;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    }
+    String string = toString(value).trim();
+    return NUMBER.matcher(string).matches() ? Double.parseDouble(string) : Double.NaN;
+  }
+
+  static String toString(Object value) {
+    if (value instanceof String) {
+      return (String) value;
+    } else if (value instanceof Boolean) {
+      return value.toString();
+    } else if (value instanceof Double) {
+      return toString((double) (Double) value);
+    }
+    List nodes = (List) value;
+    return nodes.isEmpty() ? "" : stringValue(nodes.get(0));
+  }
+
+  private static String toString(double number) {
+    if (Double.isNaN(number)) {
+      return "NaN";
+    } else if (Double.isInfinite(number)) {
+      return number > 0 ? "Infinity" : "-Infinity";
+    } else if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE) {
+      return Long.toString((long) number);
+    }
+    return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+  }
+
+  static String stringValue(Object node) {
+    if (node instanceof Attribute) {
+      return AstNodeNavigator.attributeStringValue((Attribute) node);
+    }
+    throw new UnsupportedOperationException("Implicit nodes to string conversion is not supported. Use the tokenValue attribute instead.");
+  }
+
+  static String name(Object node) {
+    if (node instanceof AstNode) {
+      return ((AstNode) node).getName();
+    } else if (node instanceof Attribute) {
+      return ((Attribute) node).getName();
+    }
+    throw XPathContext.unsupported();
+  }
+
+  static Set<Object> newIdentitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  static final class Literal extends XPathExpression {
+
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Type type() {
+      return value instanceof Double ? Type.NUMBER : Type.STRING;
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      return value;
+    }
+
+  }
+
+  static final class Path extends XPathExpression {
+
+    private final boolean absolute;
+    private final XPathStep[] steps;
+
+    Path(boolean absolute, XPathStep[] steps) {
+      this.absolute = absolute;
+      this.steps = steps;
+    }
+
+    @Override
+    Type type() {
+      return Type.NODE_SET;
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      List<Object> nodes = Collections.singletonList(absolute ? XPathContext.DOCUMENT : node);
+      for (XPathStep step : steps) {
+        nodes = step.evaluate(context, nodes);
+      }
+      if (steps.length > 1) {
+        context.sort(nodes);
+      }
+      return nodes;
+    }
+
+    @Override
+    void collectDescendantNames(Collection<String> names) {
+      for (XPathStep step : steps) {
+        step.collectDescendantNames(names);
+      }
+    }
+
+  }
+
+  static final class Union extends XPathExpression {
+
+    private final XPathExpression lhs;
+    private final XPathExpression rhs;
+
+    Union(XPathExpression lhs, XPathExpression rhs) {
+      this.lhs = lhs;
+      this.rhs = rhs;
+    }
+
+    @Override
+    Type type() {
+      return Type.NODE_SET;
+    }
+
+    @Override
+    void collectDescendantNames(Collection<String> names) {
+      lhs.collectDescendantNames(names);
+      rhs.collectDescendantNames(names);
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      List<Object> result = new ArrayList<>((List) lhs.evaluate(context, node));
+      Set<Object> seen = newIdentitySet();
+      seen.addAll(result);
+      for (Object other : (List) rhs.evaluate(context, node)) {
+        if (seen.add(other)) {
+          result.add(other);
+        }
+      }
+      context.sort(result);
+      return result;
+    }
+
+  }
+
+  static final class Logical extends XPathExpression {
+
+    private final boolean and;
+    private final XPathExpression lhs;
+    private final XPathExpression rhs;
+
+    Logical(boolean and, XPathExpression lhs, XPathExpression rhs) {
+      this.and = and;
+      this.lhs = lhs;
+      this.rhs = rhs;
+    }
+
+    @Override
+    Type type() {
+      return Type.BOOLEAN;
+    }
+
+    @Override
+    void collectDescendantNames(Collection<String> names) {
+      lhs.collectDescendantNames(names);
+      rhs.collectDescendantNames(names);
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      boolean result = toBoolean(lhs.evaluate(context, node));
+      if (result != and) {
+        return result;
+      }
+      return toBoolean(rhs.evaluate(context, node));
+    }
+
+  }
+
+  static final class Comparison extends XPathExpression {
+
+    enum Operator {
+      EQ, NE, LT, LE, GT, GE;
+
+      Operator swap() {
+        switch (this) {
+          case LT:
+            return GT;
+          case LE:
+            return GE;
+          case GT:
+            return LT;
+          case GE:
+            return LE;
+          default:
+            return this;
+        }
+      }
+    }
+
+    private final Operator operator;
+    private final XPathExpression lhs;
+    private final XPathExpression rhs;
+
+    Comparison(Operator operator, XPathExpression lhs, XPathExpression rhs) {
+      this.operator = operator;
+      this.lhs = lhs;
+      this.rhs = rhs;
+    }
+
+    @Override
+    Type type() {
+      return Type.BOOLEAN;
+    }
+
+    @Override
+    void collectDescendantNames(Collection<String> names) {
+      lhs.collectDescendantNames(names);
+      rhs.collectDescendantNames(names);
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      Object left = lhs.evaluate(context, node);
+      Object right = rhs.evaluate(context, node);
+      if (left instanceof List && right instanceof List) {
+        for (Object leftNode : (List) left) {
+          String leftValue = stringValue(leftNode);
+          for (Object rightNode : (List) right) {
+            if (compare(operator, leftValue, stringValue(rightNode))) {
+              return true;
+            }
+          }
+        }
+        return false;
+      } else if (left instanceof List) {
+        return compare(operator, (List) left, right);
+      } else if (right instanceof List) {
+        return compare(operator.swap(), (List) right, left);
+      }
+      return compare(operator, left, right);
+    }
+
+    private static boolean compare(Operator operator, List nodes, Object value) {
+      if (value instanceof Boolean) {
+        return compare(operator, !nodes.isEmpty(), value);
+      }
+      for (Object node : nodes) {
+        String nodeValue = stringValue(node);
+        if (compare(operator, value instanceof Double ? (Object) toNumber(nodeValue) : nodeValue, value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean compare(Operator operator, Object left, Object right) {
+      if (operator == Operator.EQ || operator == Operator.NE) {
+        boolean equal;
+        if (left instanceof Boolean || right instanceof Boolean) {
+          equal = toBoolean(left) == toBoolean(right);
+        } else if (left instanceof Double || right instanceof Double) {
+          equal = toNumber(left) == toNumber(right);
+        } else {
+          equal = toString(left).equals(toString(right));
+        }
+        return equal == (operator == Operator.EQ);
+      }
+      double leftNumber = toNumber(left);
+      double rightNumber = toNumber(right);
+      switch (operator) {
+        case LT:
+          return leftNumber < rightNumber;
+        case LE:
+          return leftNumber <= rightNumber;
+        case GT:
+          return leftNumber > rightNumber;
+        default:
+          return leftNumber >= rightNumber;
+      }
+    }
+
+  }
+
+  static final class Function extends XPathExpression {
+
+    enum Name {
+      NOT(Type.BOOLEAN, 1, 1),
+      BOOLEAN(Type.BOOLEAN, 1, 1),
+      TRUE(Type.BOOLEAN, 0, 0),
+      FALSE(Type.BOOLEAN, 0, 0),
+      COUNT(Type.NUMBER, 1, 1),
+      NAME(Type.STRING, 0, 1),
+      LOCAL_NAME(Type.STRING, 0, 1),
+      STRING(Type.STRING, 1, 1),
+      STRING_LENGTH(Type.NUMBER, 1, 1),
+      CONTAINS(Type.BOOLEAN, 2, 2),
+      STARTS_WITH(Type.BOOLEAN, 2, 2);
+
+      private final Type type;
+      private final int minArguments;
+      private final int maxArguments;
+
+      Name(Type type, int minArguments, int maxArguments) {
+        this.type = type;
+        this.minArguments = minArguments;
+        this.maxArguments = maxArguments;
+      }
+
+      boolean accepts(XPathExpression[] arguments) {
+        if (arguments.length < minArguments || arguments.length > maxArguments) {
+          return false;
+        }
+        boolean nodeSetArgument = this == COUNT || this == NAME || this == LOCAL_NAME;
+        return !nodeSetArgument || arguments.length == 0 || arguments[0].type() == Type.NODE_SET;
+      }
+    }
+
+    private final Name name;
+    private final XPathExpression[] arguments;
+
+    Function(Name name, XPathExpression[] arguments) {
+      this.name = name;
+      this.arguments = arguments;
+    }
+
+    @Override
+    Type type() {
+      return name.type;
+    }
+
+    @Override
+    void collectDescendantNames(Collection<String> names) {
+      for (XPathExpression argument : arguments) {
+        argument.collectDescendantNames(names);
+      }
+    }
+
+    @Override
+    Object evaluate(XPathContext context, Object node) {
+      switch (name) {
+        case NOT:
+          return !toBoolean(arguments[0].evaluate(context, node));
+        case BOOLEAN:
+          return toBoolean(arguments[0].evaluate(context, node));
+        case TRUE:
+          return true;
+        case FALSE:
+          return false;
+        case COUNT:
+          return (double) ((List) arguments[0].evaluate(context, node)).size();
+        case NAME:
+        case LOCAL_NAME:
+          if (arguments.length == 0) {
+            return name(node);
+          }
+          List nodes = (List) arguments[0].evaluate(context, node);
+          return nodes.isEmpty() ? "" : name(nodes.get(0));
+        case STRING:
+          return XPathExpression.toString(arguments[0].evaluate(context, node));
+        case STRING_LENGTH:
+          return (double) XPathExpression.toString(arguments[0].evaluate(context, node)).length();
+        case CONTAINS:
+          return XPathExpression.toString(arguments[0].evaluate(context, node)).contains(XPathExpression.toString(arguments[1].evaluate(context, node)));
+        default:
+          return XPathExpression.toString(arguments[0].evaluate(context, node)).startsWith(XPathExpression.toString(arguments[1].evaluate(context, node)));
+      }
+    }
+
+  }
+
+}
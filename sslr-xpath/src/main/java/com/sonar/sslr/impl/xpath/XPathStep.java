@@ -0,0 +1,292 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.AstNodeNavigator.Attribute;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled location step. Instances are immutable.
+ */
+final class XPathStep {
+
+  enum Axis {
+    CHILD(false),
+    DESCENDANT(false),
+    DESCENDANT_OR_SELF(false),
+    SELF(false),
+    PARENT(true),
+    ANCESTOR(true),
+    ANCESTOR_OR_SELF(true),
+    FOLLOWING_SIBLING(false),
+    PRECEDING_SIBLING(true),
+    ATTRIBUTE(false);
+
+    private final boolean reverse;
+
+    Axis(boolean reverse) {
+      this.reverse = reverse;
+    }
+  }
+
+  private final Axis axis;
+  private final boolean anyNode;
+  @Nullable
+  private final String name;
+  private final XPathExpression[] predicates;
+  private final boolean positional;
+
+  /**
+   * @param anyNode true for node test "node()"
+   * @param name name for a name test, or null for the node test "*"
+   */
+  XPathStep(Axis axis, boolean anyNode, @Nullable String name, XPathExpression[] predicates) {
+    this.axis = axis;
+    this.anyNode = anyNode;
+    this.name = name;
+    this.predicates = predicates;
+    boolean hasNumericPredicate = false;
+    for (XPathExpression predicate : predicates) {
+      hasNumericPredicate |= predicate.type() == XPathExpression.Type.NUMBER;
+    }
+    this.positional = hasNumericPredicate;
+  }
+
+  boolean isReverse() {
+    return axis.reverse;
+  }
+
+  Axis getAxis() {
+    return axis;
+  }
+
+  boolean isAnyNode() {
+    return anyNode;
+  }
+
+  boolean hasPredicates() {
+    return predicates.length > 0;
+  }
+
+  boolean isPositional() {
+    return positional;
+  }
+
+  void collectDescendantNames(Collection<String> names) {
+    if ((axis == Axis.DESCENDANT || axis == Axis.DESCENDANT_OR_SELF) && name != null && !anyNode) {
+      names.add(name);
+    }
+    for (XPathExpression predicate : predicates) {
+      predicate.collectDescendantNames(names);
+    }
+  }
+
+  /**
+   * @return step, which selects the same nodes on the descendant axis
+   * as the abbreviation "//" followed by this step on the child axis
+   */
+  XPathStep toDescendant() {
+    return new XPathStep(Axis.DESCENDANT, anyNode, name, predicates);
+  }
+
+  List<Object> evaluate(XPathContext context, List<Object> contextNodes) {
+    List<Object> result = new ArrayList<>();
+    Set<Object> seen = contextNodes.size() > 1 ? XPathExpression.newIdentitySet() : null;
+    for (Object contextNode : contextNodes) {
+      List<Object> candidates = seen == null && predicates.length == 0 ? result : new ArrayList<>();
+      select(context, contextNode, candidates);
+      if (candidates != result) {
+        if (positional) {
+          for (XPathExpression predicate : predicates) {
+            candidates = filter(context, candidates, predicate);
+          }
+        } else if (predicates.length > 0) {
+          candidates = filter(context, candidates);
+        }
+        for (Object candidate : candidates) {
+          if (seen == null || seen.add(candidate)) {
+            result.add(candidate);
+          }
+        }
+      }
+    }
+    if (axis.reverse) {
+      Collections.reverse(result);
+    }
+    return result;
+  }
+
+  private List<Object> filter(XPathContext context, List<Object> candidates) {
+    List<Object> result = new ArrayList<>();
+    for (Object candidate : candidates) {
+      if (acceptsAll(context, candidate)) {
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  private boolean acceptsAll(XPathContext context, Object candidate) {
+    for (XPathExpression predicate : predicates) {
+      if (!XPathExpression.toBoolean(predicate.evaluate(context, candidate))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<Object> filter(XPathContext context, List<Object> candidates, XPathExpression predicate) {
+    List<Object> result = new ArrayList<>();
+    for (int i = 0; i < candidates.size(); i++) {
+      Object value = predicate.evaluate(context, candidates.get(i));
+      if (value instanceof Double ? (Double) value == i + 1 : XPathExpression.toBoolean(value)) {
+        result.add(candidates.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds nodes of the axis, which pass the node test, in the order of the axis.
+   */
+  private void select(XPathContext context, Object node, List<Object> result) {
+    switch (axis) {
+      case CHILD:
+        for (AstNode child : context.getChildren(node)) {
+          add(child, result);
+        }
+        break;
+      case DESCENDANT_OR_SELF:
+        add(node, result);
+        addDescendants(context, node, result);
+        break;
+      case DESCENDANT:
+        addDescendants(context, node, result);
+        break;
+      case SELF:
+        add(node, result);
+        break;
+      case ANCESTOR_OR_SELF:
+        add(node, result);
+        addAncestors(context, node, result);
+        break;
+      case ANCESTOR:
+        addAncestors(context, node, result);
+        break;
+      case PARENT:
+        Object parent = context.getParent(node);
+        if (parent != null) {
+          add(parent, result);
+        }
+        break;
+      case FOLLOWING_SIBLING:
+      case PRECEDING_SIBLING:
+        addSiblings(context, node, result);
+        break;
+      default:
+        if (node instanceof AstNode) {
+          for (Attribute attribute : XPathContext.getAttributes((AstNode) node)) {
+            add(attribute, result);
+          }
+        }
+        break;
+    }
+  }
+
+  private void addDescendants(XPathContext context, Object node, List<Object> result) {
+    if (name != null && !anyNode) {
+      List<AstNode> descendants = context.getDescendantsByName(node, name);
+      if (descendants != null) {
+        result.addAll(descendants);
+        return;
+      }
+    }
+    Deque<AstNode> stack = new ArrayDeque<>();
+    pushChildren(stack, context.getChildren(node));
+    while (!stack.isEmpty()) {
+      AstNode descendant = stack.pop();
+      add(descendant, result);
+      pushChildren(stack, descendant.getChildren());
+    }
+  }
+
+  private static void pushChildren(Deque<AstNode> stack, List<AstNode> children) {
+    for (int i = children.size() - 1; i >= 0; i--) {
+      stack.push(children.get(i));
+    }
+  }
+
+  private void addAncestors(XPathContext context, Object node, List<Object> result) {
+    Object ancestor = context.getParent(node);
+    while (ancestor != null) {
+      add(ancestor, result);
+      ancestor = context.getParent(ancestor);
+    }
+  }
+
+  private void addSiblings(XPathContext context, Object node, List<Object> result) {
+    if (!(node instanceof AstNode)) {
+      return;
+    }
+    Object parent = context.getParent(node);
+    List<AstNode> siblings = parent == null ? Collections.emptyList() : context.getChildren(parent);
+    int position = siblings.indexOf(node);
+    if (axis == Axis.FOLLOWING_SIBLING) {
+      for (int i = position + 1; i < siblings.size(); i++) {
+        add(siblings.get(i), result);
+      }
+    } else {
+      for (int i = position - 1; i >= 0; i--) {
+        add(siblings.get(i), result);
+      }
+    }
+  }
+
+  private void add(Object node, List<Object> result) {
+    if (matches(node)) {
+      result.add(node);
+    }
+  }
+
+  private boolean matches(Object node) {
+    if (anyNode) {
+      return true;
+    } else if (axis == Axis.ATTRIBUTE) {
+      return name == null || name.equals(((Attribute) node).getName());
+    } else if (node == XPathContext.DOCUMENT) {
+      if (name == null) {
+        // document is an element for Jaxen
+        throw XPathContext.unsupported();
+      }
+      return false;
+    }
+    return node instanceof AstNode && (name == null || name.equals(((AstNode) node).getName()));
+  }
+
+}
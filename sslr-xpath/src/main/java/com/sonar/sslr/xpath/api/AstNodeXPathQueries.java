@@ -0,0 +1,93 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.xpath.api;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.DescendantScan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Group of compiled XPath queries, which are evaluated together on the same AstNode.
+ * <p>
+ * Nodes selected by steps like "//IDENTIFIER" of all queries are collected in a single traversal of the tree,
+ * which is shared by all queries instead of being repeated by each of them.
+ *
+ * <pre>
+ *   AstNodeXPathQueries queries = AstNodeXPathQueries.create(Arrays.asList(
+ *     AstNodeXPathQuery.create("//IDENTIFIER"),
+ *     AstNodeXPathQuery.create("//STATEMENT[count(//IDENTIFIER) > 1]")));
+ *   Map&lt;AstNodeXPathQuery&lt;?&gt;, List&lt;?&gt;&gt; results = queries.selectNodes(node);
+ * </pre>
+ *
+ * @since 1.24
+ */
+public final class AstNodeXPathQueries {
+
+  private final List<AstNodeXPathQuery<?>> queries;
+  private final Set<String> descendantNames;
+
+  private AstNodeXPathQueries(List<AstNodeXPathQuery<?>> queries) {
+    this.queries = queries;
+    this.descendantNames = new HashSet<>();
+    for (AstNodeXPathQuery<?> query : queries) {
+      query.collectDescendantNames(descendantNames);
+    }
+  }
+
+  /**
+   * Evaluate all the queries on the given AstNode.
+   *
+   * @param astNode
+   *          The AstNode on which to evaluate the queries against to.
+   * @return The lists of resulting elements of each query, in the order of queries.
+   */
+  public Map<AstNodeXPathQuery<?>, List<?>> selectNodes(AstNode astNode) {
+    DescendantScan scan = descendantNames.isEmpty() ? null : DescendantScan.scan(astNode, descendantNames);
+    Map<AstNodeXPathQuery<?>, List<?>> result = new LinkedHashMap<>();
+    for (AstNodeXPathQuery<?> query : queries) {
+      result.put(query, query.selectNodes(astNode, scan));
+    }
+    return result;
+  }
+
+  public List<AstNodeXPathQuery<?>> getQueries() {
+    return queries;
+  }
+
+  /**
+   * Creates a group of compiled XPath queries, which can be evaluated multiple times on different AstNode.
+   *
+   * @param queries
+   *          The compiled queries
+   * @return The group of queries
+   */
+  public static AstNodeXPathQueries create(Collection<? extends AstNodeXPathQuery<?>> queries) {
+    return new AstNodeXPathQueries(Collections.unmodifiableList(new ArrayList<>(queries)));
+  }
+
+}
@@ -21,22 +21,45 @@ package com.sonar.sslr.xpath.api;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.impl.xpath.AstNodeNavigator;
+import com.sonar.sslr.impl.xpath.DescendantScan;
+import com.sonar.sslr.impl.xpath.NativeXPath;
 import org.jaxen.BaseXPath;
+import org.jaxen.Context;
+import org.jaxen.ContextSupport;
 import org.jaxen.JaxenException;
+import org.jaxen.NamespaceContext;
+import org.jaxen.SimpleNamespaceContext;
+import org.jaxen.SimpleVariableContext;
+import org.jaxen.VariableContext;
+import org.jaxen.XPathFunctionContext;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Compiled XPath query.
+ * <p>
+ * Query is immutable and can be shared between threads: each evaluation uses its own context.
+ */
 public final class AstNodeXPathQuery<T> {
 
-  private final AstNodeNavigator astNodeNavigator = new AstNodeNavigator();
+  private static final NamespaceContext NAMESPACE_CONTEXT = new SimpleNamespaceContext();
+  private static final VariableContext VARIABLE_CONTEXT = new SimpleVariableContext();
+
   private final BaseXPath expression;
+  @Nullable
+  private final NativeXPath nativeExpression;
 
   private AstNodeXPathQuery(String xpath) {
     try {
-      expression = new BaseXPath(xpath, astNodeNavigator);
+      expression = new BaseXPath(xpath, new AstNodeNavigator());
     } catch (JaxenException e) {
       throw new RuntimeException(e);
     }
+    // Jaxen is used only for expressions, which are not supported by native evaluator
+    nativeExpression = NativeXPath.compile(expression.getRootExpr());
   }
 
   /**
@@ -57,9 +80,12 @@ public final class AstNodeXPathQuery<T> {
    * @return The first result or null if there was no result.
    */
   public T selectSingleNode(AstNode astNode) {
+    List<T> nativeResult = selectNativeNodes(astNode, null);
+    if (nativeResult != null) {
+      return nativeResult.isEmpty() ? null : nativeResult.get(0);
+    }
     try {
-      astNodeNavigator.reset();
-      return (T) expression.selectSingleNode(astNode);
+      return (T) expression.selectSingleNode(newContext(astNode));
     } catch (JaxenException e) {
       throw new RuntimeException(e);
     }
@@ -83,14 +109,48 @@ public final class AstNodeXPathQuery<T> {
    * @return The list of resulting elements, empty when no result available.
    */
   public List<T> selectNodes(AstNode astNode) {
+    return selectNodes(astNode, null);
+  }
+
+  List<T> selectNodes(AstNode astNode, @Nullable DescendantScan scan) {
+    List<T> nativeResult = selectNativeNodes(astNode, scan);
+    if (nativeResult != null) {
+      return nativeResult;
+    }
     try {
-      astNodeNavigator.reset();
-      return expression.selectNodes(astNode);
+      return expression.selectNodes(newContext(astNode));
     } catch (JaxenException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Context of evaluation by Jaxen with a new navigator, which is not shared with other evaluations.
+   */
+  private static Context newContext(AstNode astNode) {
+    Context context = new Context(new ContextSupport(NAMESPACE_CONTEXT, XPathFunctionContext.getInstance(), VARIABLE_CONTEXT, new AstNodeNavigator()));
+    context.setNodeSet(Collections.singletonList(astNode));
+    return context;
+  }
+
+  @Nullable
+  private List<T> selectNativeNodes(AstNode astNode, @Nullable DescendantScan scan) {
+    if (nativeExpression == null) {
+      return null;
+    }
+    Object result = nativeExpression.evaluate(astNode, scan);
+    if (result == null) {
+      return null;
+    }
+    return result instanceof List ? (List<T>) result : Collections.singletonList((T) result);
+  }
+
+  void collectDescendantNames(Collection<String> names) {
+    if (nativeExpression != null) {
+      nativeExpression.collectDescendantNames(names);
+    }
+  }
+
   /**
    * Creates a compiled XPath query, which can be evaluated multiple times on different AstNode.
    *
@@ -20,6 +20,8 @@
 package com.sonar.sslr.impl.xpath;
 
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeIndex;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.xpath.AstNodeNavigator.Attribute;
@@ -27,6 +29,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -202,6 +207,21 @@ public class AstNodeNavigatorTest {
     assertThat(documentNode.getName()).isEqualTo("[root]");
   }
 
+  @Test
+  public void should_not_modify_tree() {
+    AstNode rootAstNode = new AstNode(mock(AstNodeType.class), "root", null);
+    AstNode astNode = new AstNode(mock(AstNodeType.class), "child", null);
+    rootAstNode.addChild(astNode);
+    AstNode documentNode = (AstNode) navigator.getDocumentNode(astNode);
+
+    assertThat(rootAstNode.getParent()).isNull();
+    assertThat(documentNode.getChildren()).isEmpty();
+    assertThat(navigator.getParentNode(rootAstNode)).isSameAs(documentNode);
+    assertThat(navigator.getParentAxisIterator(rootAstNode).next()).isSameAs(documentNode);
+    assertThat(navigator.getChildAxisIterator(documentNode).next()).isSameAs(rootAstNode);
+    assertThat(navigator.getParentNode(documentNode)).isNull();
+  }
+
   @Test
   public void getChildAxisIterator() {
     Attribute attribute = mock(Attribute.class);
@@ -243,6 +263,62 @@ public class AstNodeNavigatorTest {
       () -> navigator.getAttributeAxisIterator(new Object()));
   }
 
+  /**
+   * <pre>
+   *   A1
+   *   |- A2
+   *   |   \- B1
+   *   |- B2
+   *   |   \- C1
+   *   |- B3
+   *   \- C2
+   * </pre>
+   */
+  @Test
+  public void following_and_preceding_axes_should_use_index() throws Exception {
+    AstNodeType type = mock(AstNodeType.class);
+    AstNode a1 = new AstNode(type, "a1", null);
+    AstNode a2 = new AstNode(type, "a2", null);
+    AstNode b1 = new AstNode(type, "b1", null);
+    AstNode b2 = new AstNode(type, "b2", null);
+    AstNode b3 = new AstNode(type, "b3", null);
+    AstNode c1 = new AstNode(type, "c1", null);
+    AstNode c2 = new AstNode(type, "c2", null);
+    a1.addChild(a2);
+    a2.addChild(b1);
+    a1.addChild(b2);
+    b2.addChild(c1);
+    a1.addChild(b3);
+    a1.addChild(c2);
+    AstNode[] nodes = {a1, a2, b1, b2, b3, c1, c2};
+
+    List<List<Object>> following = new ArrayList<>();
+    List<List<Object>> preceding = new ArrayList<>();
+    for (AstNode node : nodes) {
+      following.add(toList(navigator.getFollowingAxisIterator(node)));
+      preceding.add(toList(navigator.getPrecedingAxisIterator(node)));
+    }
+
+    AstNodeIndex.build(a1);
+    for (int i = 0; i < nodes.length; i++) {
+      assertThat(toList(navigator.getFollowingAxisIterator(nodes[i]))).isEqualTo(following.get(i));
+      assertThat(toList(navigator.getPrecedingAxisIterator(nodes[i]))).isEqualTo(preceding.get(i));
+    }
+    assertThat(toList(navigator.getFollowingAxisIterator(a2))).containsExactly(b2, c1, b3, c2);
+    assertThat(toList(navigator.getPrecedingAxisIterator(b3))).containsExactly(c1, b2, b1, a2);
+
+    // subtree index
+    AstNodeIndex.build(b2);
+    assertThat(toList(navigator.getFollowingAxisIterator(c1))).containsExactly(b3, c2);
+    assertThat(toList(navigator.getPrecedingAxisIterator(c1))).containsExactly(b1, a2);
+  }
+
+  private static List<Object> toList(Iterator<?> iterator) {
+    List<Object> result = new ArrayList<>();
+    iterator.forEachRemaining(result::add);
+    return result;
+  }
+
   /* Unknown */
 
   @Test
@@ -0,0 +1,258 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeIndex;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import org.jaxen.BaseXPath;
+import org.jaxen.JaxenException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class NativeXPathTest {
+
+  private static final List<String> EXPRESSIONS = Arrays.asList(
+    "/COMPILATION_UNIT",
+    "//COMPILATION_UNIT",
+    "/COMPILATION_UNIT/EOF",
+    "/COMPILATION_UNIT/DEFINITION[2]",
+    "/COMPILATION_UNIT/DEFINITION[@tokenLine=5]",
+    "/COMPILATION_UNIT[not(EOF)]",
+    "/COMPILATION_UNIT[not(not(EOF))]",
+    "/COMPILATION_UNIT[count(//IDENTIFIER) = 4]",
+    "//IDENTIFIER",
+    "//IDENTIFIER[1]",
+    "//IDENTIFIER[@tokenValue = 'a']",
+    "//IDENTIFIER[@tokenValue != 'a']",
+    "//IDENTIFIER[string-length(@tokenValue) > 10]",
+    "//IDENTIFIER[contains(@tokenValue, 'long') or starts-with(@tokenValue, 'b')]",
+    "//IDENTIFIER[@tokenLine >= 2 and @tokenColumn < 3]",
+    "//STATEMENT/IDENTIFIER",
+    "//STATEMENT//IDENTIFIER",
+    "//STATEMENT/..",
+    "//STATEMENT/ancestor::DEFINITION",
+    "/..",
+    "//IDENTIFIER/ancestor-or-self::STATEMENT",
+    "//IDENTIFIER/parent::DEFINITION",
+    "//DEFINITION/following-sibling::*",
+    "//EOF/preceding-sibling::*",
+    "//EOF/preceding-sibling::*[@tokenLine = 1]",
+    "//DEFINITION/descendant::IDENTIFIER",
+    "//DEFINITION/descendant-or-self::*[name() = 'DEFINITION']",
+    "//*[local-name() = 'EOF']",
+    "//DEFINITION[IDENTIFIER/@tokenValue = STATEMENT/STATEMENT/IDENTIFIER/@tokenValue]",
+    "//STATEMENT[not(STATEMENT)]/..|//EOF",
+    "//IDENTIFIER/@tokenValue",
+    "//DEFINITION/@*",
+    "//DEFINITION[true()][boolean(STATEMENT)]",
+    "//DEFINITION[false()]",
+    "//IDENTIFIER[@tokenValue = 5]",
+    "//IDENTIFIER[@tokenLine = '3']",
+    "//IDENTIFIER[@tokenLine = true()]",
+    "//*[@tokenLine > 4.5]",
+    "IDENTIFIER",
+    "./STATEMENT",
+    "self::node()",
+    "*",
+    "..",
+    "../DEFINITION",
+    "count(//IDENTIFIER)",
+    "count(//IDENTIFIER) > 2",
+    "string(/COMPILATION_UNIT/@tokenValue)",
+    "string(/COMPILATION_UNIT/@tokenLine)",
+    "string(count(//*))",
+    "string(1.5)",
+    "string(//IDENTIFIER[1]/@tokenValue = //EOF/@tokenValue)",
+    "name(/*)",
+    "name(//UNKNOWN)",
+    "'literal'",
+    "1.5");
+
+  private AstNode root;
+  private AstNode firstDefinition;
+  private AstNode identifier;
+
+  /**
+   * <pre>
+   *   COMPILATION_UNIT
+   *   |- DEFINITION
+   *   |   |- IDENTIFIER "a"
+   *   |   \- STATEMENT
+   *   |       |- IDENTIFIER "bb"
+   *   |       \- STATEMENT
+   *   |           \- IDENTIFIER "a"
+   *   |- DEFINITION
+   *   |   \- IDENTIFIER "very_long_name"
+   *   \- EOF
+   * </pre>
+   */
+  @Before
+  public void setUp() {
+    identifier = node("IDENTIFIER", "a", 1, 4);
+    firstDefinition = node("DEFINITION", "int", 1, 0,
+      identifier,
+      node("STATEMENT", "bb", 2, 2,
+        node("IDENTIFIER", "bb", 2, 2),
+        node("STATEMENT", "a", 3, 2,
+          node("IDENTIFIER", "a", 3, 2))));
+    root = node("COMPILATION_UNIT", "int", 1, 0,
+      firstDefinition,
+      node("DEFINITION", "very_long_name", 5, 0,
+        node("IDENTIFIER", "very_long_name", 5, 0)),
+      node("EOF", "EOF", 6, 0));
+  }
+
+  @Test
+  public void should_evaluate_like_jaxen() throws Exception {
+    assertEvaluatesLikeJaxen();
+  }
+
+  @Test
+  public void should_evaluate_like_jaxen_with_index() throws Exception {
+    AstNodeIndex.build(root);
+    assertEvaluatesLikeJaxen();
+
+    AstNodeIndex.build(firstDefinition);
+    assertEvaluatesLikeJaxen();
+  }
+
+  private void assertEvaluatesLikeJaxen() throws JaxenException {
+    List<String> delegated = new ArrayList<>();
+    for (String expression : EXPRESSIONS) {
+      for (AstNode contextNode : Arrays.asList(root, firstDefinition, identifier)) {
+        Object result = evaluate(expression, contextNode);
+        if (result == null) {
+          delegated.add(expression + " on " + contextNode.getName());
+        } else {
+          assertThat(result).as(expression).isEqualTo(jaxen(expression, contextNode));
+        }
+      }
+    }
+    assertThat(delegated).containsOnly(".. on COMPILATION_UNIT");
+  }
+
+  @Test
+  public void should_not_compile_unsupported_expressions() throws Exception {
+    List<String> expressions = Arrays.asList(
+      "//IDENTIFIER[last()]",
+      "//IDENTIFIER[position() = 1]",
+      "count(//IDENTIFIER) + 1",
+      "-1",
+      "$variable",
+      "//text()",
+      "//IDENTIFIER/following::*",
+      "//IDENTIFIER/ancestor::*[1]",
+      "ns:function()",
+      "unknown()",
+      "count(1)",
+      "1 | 2",
+      "(//IDENTIFIER)[1]");
+    for (String expression : expressions) {
+      assertThat(NativeXPath.compile(new BaseXPath(expression, new AstNodeNavigator()).getRootExpr())).as(expression).isNull();
+    }
+  }
+
+  @Test
+  public void should_delegate_to_jaxen_when_document_is_selected() throws Exception {
+    assertThat(compile("/").evaluate(root)).isNull();
+    assertThat(compile("//STATEMENT/ancestor::*").evaluate(root)).isNull();
+    assertThat(compile("/self::*").evaluate(root)).isNull();
+    assertThat(compile("name(/)").evaluate(root)).isNull();
+  }
+
+  @Test
+  public void should_not_convert_nodes_to_string() throws Exception {
+    NativeXPath xpath = compile("//IDENTIFIER[. = 'a']");
+    UnsupportedOperationException thrown = assertThrows(UnsupportedOperationException.class, () -> xpath.evaluate(root));
+    assertThat(thrown.getMessage()).isEqualTo("Implicit nodes to string conversion is not supported. Use the tokenValue attribute instead.");
+  }
+
+  @Test
+  public void should_ignore_document_node_created_by_jaxen() throws Exception {
+    // navigators of previous versions were adding root to the document node
+    new AstNode(null, "[root]", null).addChild(root);
+    assertThat(root.getParent()).isNotNull();
+
+    assertThat(evaluate("/COMPILATION_UNIT", identifier)).isEqualTo(Collections.singletonList(root));
+  }
+
+  private static NativeXPath compile(String expression) throws JaxenException {
+    NativeXPath xpath = NativeXPath.compile(new BaseXPath(expression, new AstNodeNavigator()).getRootExpr());
+    assertThat(xpath).as(expression).isNotNull();
+    return xpath;
+  }
+
+  private static Object evaluate(String expression, AstNode contextNode) throws JaxenException {
+    return normalize(compile(expression).evaluate(contextNode));
+  }
+
+  private static Object jaxen(String expression, AstNode contextNode) throws JaxenException {
+    BaseXPath xpath = new BaseXPath(expression, new AstNodeNavigator());
+    return normalize(xpath.evaluate(contextNode));
+  }
+
+  /**
+   * Attributes are created on demand, so compared by their names and values.
+   */
+  private static Object normalize(Object value) {
+    if (!(value instanceof List)) {
+      return value;
+    }
+    List<Object> result = new ArrayList<>();
+    for (Object node : (List) value) {
+      if (node instanceof AstNodeNavigator.Attribute) {
+        AstNodeNavigator.Attribute attribute = (AstNodeNavigator.Attribute) node;
+        result.add(attribute.getName() + "=" + AstNodeNavigator.attributeStringValue(attribute) + "@" + System.identityHashCode(attribute.getAstNode()));
+      } else {
+        result.add(node);
+      }
+    }
+    return result;
+  }
+
+  private static AstNode node(String name, String value, int line, int column, AstNode... children) {
+    Token token = Token.builder()
+      .setType(GenericTokenType.IDENTIFIER)
+      .setValueAndOriginalValue(value)
+      .setLine(line)
+      .setColumn(column)
+      .setURI(URI.create("tests://unittest"))
+      .build();
+    AstNode node = new AstNode(mock(AstNodeType.class), name, token);
+    for (AstNode child : children) {
+      node.addChild(child);
+    }
+    return node;
+  }
+
+}
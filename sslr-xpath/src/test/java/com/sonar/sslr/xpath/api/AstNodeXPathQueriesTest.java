@@ -0,0 +1,119 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.xpath.api;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.xpath.api.AstNodeXPathQueryTest.NodeType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AstNodeXPathQueriesTest {
+
+  private AstNode tree;
+  private AstNode branch1;
+  private AstNode leaf1;
+  private AstNode leaf2;
+  private AstNode leaf3;
+
+  /**
+   * <pre>
+   *   tree
+   *   |- branch
+   *   |   |- leaf
+   *   |   \- branch
+   *   |       \- leaf
+   *   \- leaf
+   * </pre>
+   */
+  @Before
+  public void setUp() {
+    tree = new AstNode(new NodeType(), "tree", null);
+    branch1 = new AstNode(new NodeType(), "branch", null);
+    AstNode branch2 = new AstNode(new NodeType(), "branch", null);
+    leaf1 = new AstNode(new NodeType(), "leaf", null);
+    leaf2 = new AstNode(new NodeType(), "leaf", null);
+    leaf3 = new AstNode(new NodeType(), "leaf", null);
+    tree.addChild(branch1);
+    branch1.addChild(leaf1);
+    branch1.addChild(branch2);
+    branch2.addChild(leaf2);
+    tree.addChild(leaf3);
+  }
+
+  @Test
+  public void should_return_results_per_query() {
+    AstNodeXPathQuery<AstNode> leaves = AstNodeXPathQuery.create("//leaf");
+    AstNodeXPathQuery<AstNode> branches = AstNodeXPathQuery.create("//branch");
+    AstNodeXPathQueries queries = AstNodeXPathQueries.create(Arrays.asList(leaves, branches));
+
+    assertThat(queries.getQueries()).containsExactly(leaves, branches);
+    Map<AstNodeXPathQuery<?>, List<?>> results = queries.selectNodes(tree);
+    assertThat(new ArrayList<>(results.keySet())).containsExactly(leaves, branches);
+    assertThat(results.get(leaves)).containsExactly(leaf1, leaf2, leaf3);
+    assertThat(results.get(branches)).containsExactly(branch1, branch1.getLastChild());
+
+    results = queries.selectNodes(branch1);
+    assertThat(results.get(leaves)).containsExactly(leaf1, leaf2, leaf3);
+  }
+
+  @Test
+  public void should_evaluate_like_separate_queries() {
+    List<AstNodeXPathQuery<?>> list = new ArrayList<>();
+    for (String xpath : Arrays.asList(
+      "//leaf",
+      "//leaf[1]",
+      "//branch/leaf",
+      "//branch//leaf",
+      "//branch[leaf]",
+      "/tree//leaf",
+      "//leaf/..",
+      "count(//leaf)",
+      "//tree[count(//leaf) = 3]",
+      ".//leaf",
+      "descendant::leaf",
+      "descendant-or-self::branch",
+      "leaf",
+      "ancestor::*",
+      "//*")) {
+      list.add(AstNodeXPathQuery.create(xpath));
+    }
+    AstNodeXPathQueries queries = AstNodeXPathQueries.create(list);
+
+    for (AstNode node : Arrays.asList(tree, branch1, leaf2)) {
+      Map<AstNodeXPathQuery<?>, List<?>> results = queries.selectNodes(node);
+      for (AstNodeXPathQuery<?> query : list) {
+        assertThat(results.get(query)).isEqualTo(query.selectNodes(node));
+      }
+    }
+  }
+
+  @Test
+  public void should_accept_no_queries() {
+    assertThat(AstNodeXPathQueries.create(new ArrayList<>()).selectNodes(tree)).isEmpty();
+  }
+
+}
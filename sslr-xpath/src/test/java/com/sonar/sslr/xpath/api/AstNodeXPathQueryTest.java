@@ -24,6 +24,13 @@ import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.xpath.api.AstNodeXPathQuery;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class AstNodeXPathQueryTest {
@@ -211,6 +218,45 @@ public class AstNodeXPathQueryTest {
     assertThat(expr.selectNodes(tree2).size()).isEqualTo(1);
   }
 
+  @Test
+  public void should_be_shared_between_threads() throws Exception {
+    // "following" axis is evaluated by Jaxen
+    List<AstNodeXPathQuery<AstNode>> queries = Arrays.asList(
+      AstNodeXPathQuery.create("//leaf"),
+      AstNodeXPathQuery.create("//branch/following::leaf"));
+    List<AstNode> trees = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      AstNode tree = new AstNode(new NodeType(), "tree", null);
+      AstNode branch = new AstNode(new NodeType(), "branch", null);
+      tree.addChild(branch);
+      for (int j = 0; j < i; j++) {
+        branch.addChild(new AstNode(new NodeType(), "leaf", null));
+        tree.addChild(new AstNode(new NodeType(), "leaf", null));
+      }
+      trees.add(tree);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Integer>>> futures = new ArrayList<>();
+      for (AstNode tree : trees) {
+        futures.add(executor.submit(() -> {
+          List<Integer> sizes = new ArrayList<>();
+          for (AstNodeXPathQuery<AstNode> query : queries) {
+            sizes.add(query.selectNodes(tree).size());
+          }
+          return sizes;
+        }));
+      }
+      for (int i = 0; i < trees.size(); i++) {
+        assertThat(futures.get(i).get()).containsExactly(2 * i, i);
+        assertThat(trees.get(i).getParent()).isNull();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   static class NodeType implements AstNodeType {
 
   }